@@ -0,0 +1,188 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.bench
+
+import java.util.function.Function
+
+import org.nlpcraft.common._
+import org.nlpcraft.common.NCLifecycle
+import org.nlpcraft.common.nlp.NCNlpSentence
+import org.nlpcraft.common.nlp.dict.NCDictionaryManager
+import org.nlpcraft.common.nlp.numeric.NCNumericManager
+import org.nlpcraft.common.nlp.opennlp.NCNlpManager
+import org.nlpcraft.model.{NCQueryContext, NCQueryResult}
+import org.nlpcraft.model.builder.NCModelBuilder
+import org.nlpcraft.probe.mgrs.NCModelDecorator
+import org.nlpcraft.probe.mgrs.model.NCModelManager
+import org.nlpcraft.probe.mgrs.nlp.NCProbeNlpManager
+import org.nlpcraft.probe.mgrs.nlp.enrichers.context.NCContextEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.coordinates.NCCoordinatesEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.dictionary.NCDictionaryEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.function.NCFunctionEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.model.NCModelEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.stopword.{NCStopWordEnricher ⇒ NCProbeStopWordEnricher}
+import org.nlpcraft.probe.mgrs.nlp.enrichers.suspicious.NCSuspiciousNounsEnricher
+import org.nlpcraft.probe.mgrs.nlp.post.{NCPostEnrichCollapser, NCPostEnricher}
+import org.nlpcraft.server.geo.NCGeoManager
+import org.nlpcraft.server.nlp.enrichers.NCNlpEnricherManager
+import org.nlpcraft.server.nlp.enrichers.basenlp.NCBaseNlpEnricher
+import org.nlpcraft.server.nlp.enrichers.date.NCDateEnricher
+import org.nlpcraft.server.nlp.enrichers.geo.NCGeoEnricher
+import org.nlpcraft.server.nlp.enrichers.numeric.NCNumericEnricher
+import org.nlpcraft.server.nlp.enrichers.quote.NCQuoteEnricher
+import org.nlpcraft.server.nlp.enrichers.stopword.NCStopWordEnricher
+import org.nlpcraft.server.nlp.lang.NCLanguageManager
+import org.nlpcraft.server.nlp.preproc.NCPreProcessManager
+import org.nlpcraft.server.nlp.spell.NCSpellCheckManager
+import org.nlpcraft.server.nlp.synonym.NCSynonymManager
+import org.nlpcraft.server.nlp.wordnet.NCWordNetManager
+
+import scala.io.Source
+
+/**
+  * Shared benchmarks environment: utterances corpus, example models and NLP components
+  * started without Ignite, database or network connections.
+  *
+  * NOTE: benchmarks should be run from the project root folder since example models
+  * are loaded from their JSON files in the source tree.
+  */
+object NCBenchEnv {
+    // Utterances corpus bundled with benchmarks.
+    lazy val corpus: IndexedSeq[String] =
+        Source.fromInputStream(getClass.getResourceAsStream("/bench/utterances.txt"), "UTF-8").
+            getLines().
+            map(_.trim).
+            filter(p ⇒ p.nonEmpty && !p.startsWith("#")).
+            toIndexedSeq
+    
+    // Example models JSON files keyed by short names.
+    private final val MODELS = Map(
+        "time" → "src/main/scala/org/nlpcraft/examples/time/time_model.json",
+        "weather" → "src/main/scala/org/nlpcraft/examples/weather/weather_model.json",
+        "alarm" → "src/main/scala/org/nlpcraft/examples/alarm/alarm_model.json"
+    )
+    
+    // Server-side components in start order.
+    private lazy val srvComps = Seq[NCLifecycle](
+        NCWordNetManager,
+        NCDictionaryManager,
+        NCSpellCheckManager,
+        NCSynonymManager,
+        NCPreProcessManager,
+        NCLanguageManager,
+        NCGeoManager,
+        NCNlpManager,
+        NCNumericManager,
+        NCBaseNlpEnricher,
+        NCDateEnricher,
+        NCStopWordEnricher,
+        NCQuoteEnricher,
+        NCNumericEnricher,
+        NCGeoEnricher
+    )
+    
+    // Probe-side components in start order (shared ones are started by server-side list).
+    private lazy val probeComps = Seq[NCLifecycle](
+        NCProbeStopWordEnricher,
+        NCModelEnricher,
+        NCFunctionEnricher,
+        NCSuspiciousNounsEnricher,
+        NCPostEnrichCollapser,
+        NCPostEnricher,
+        NCContextEnricher,
+        NCDictionaryEnricher,
+        NCCoordinatesEnricher
+    )
+    
+    /**
+      *
+      * @param comps Components to start.
+      */
+    private def startAll(comps: Seq[NCLifecycle]): Unit =
+        comps.filter(!_.isStarted).foreach(_.start())
+    
+    /**
+      * Starts server-side NLP components.
+      */
+    def startServer(): Unit = synchronized { startAll(srvComps) }
+    
+    /**
+      * Starts server-side and probe-side NLP components.
+      */
+    def startProbe(): Unit = synchronized { startAll(srvComps ++ probeComps) }
+    
+    /**
+      * Runs server-side enrichment pipeline (as `NCNlpEnricherManager.enrich` without the cache).
+      *
+      * @param txt Text to enrich.
+      */
+    def enrich(txt: String): NCNlpSentence =
+        NCNlpEnricherManager.enrichPipeline(NCPreProcessManager.normalize(txt))
+    
+    /**
+      * Makes new not enriched sentence (as `NCNlpEnricherManager.enrich` does).
+      *
+      * @param txt Sentence text.
+      */
+    def newSentence(txt: String): NCNlpSentence = {
+        val normTxt = NCPreProcessManager.normalize(txt)
+        
+        new NCNlpSentence(normTxt, NCLanguageManager.isLatinCharset(normTxt), NCLanguageManager.isEnglish(normTxt))
+    }
+    
+    /**
+      * Makes decorator of the example model.
+      *
+      * @param name Model short name.
+      */
+    @throws[NCE]
+    def model(name: String): NCModelDecorator =
+        NCModelManager.decorate(
+            NCModelBuilder.newJsonModel(MODELS.getOrElse(name, throw new NCE(s"Unknown model: $name"))).
+                setQueryFunction(new Function[NCQueryContext, NCQueryResult] {
+                    // Models are never queried by benchmarks.
+                    override def apply(ctx: NCQueryContext): NCQueryResult = throw new UnsupportedOperationException
+                }).
+                build()
+        )
+    
+    /**
+      * Runs probe-side enrichment pipeline on the server-side enriched sentence (as `NCProbeNlpManager` does),
+      * including the final collapsing.
+      *
+      * @param mdl Model decorator.
+      * @param ns Server-side enriched sentence (not modified).
+      * @return Sentence variants.
+      */
+    def enrichProbe(mdl: NCModelDecorator, ns: NCNlpSentence): Seq[NCNlpSentence] =
+        NCProbeNlpManager.enrichPipeline(mdl, ns.clone())
+}
@@ -0,0 +1,145 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.bench
+
+import java.net.{InetAddress, ServerSocket, Socket}
+import java.security.Key
+import java.util.concurrent.TimeUnit
+
+import org.nlpcraft.common._
+import org.nlpcraft.common.crypto.NCCipher
+import org.nlpcraft.common.nlp.NCNlpSentence
+import org.nlpcraft.common.socket.NCSocket
+import org.nlpcraft.probe.mgrs.NCProbeMessage
+import org.openjdk.jmh.annotations._
+
+/**
+  * Server-probe transport benchmarks: Java serialization of `S2P_ASK` messages carrying
+  * enriched sentences and their round trip over a loopback `NCSocket`, plain or encrypted.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+class NCProbeMessageBenchmark {
+    @Param(Array("false", "true"))
+    var encrypt: Boolean = _
+    
+    private var msgs: Array[NCProbeMessage] = _
+    private var bytes: Array[Array[Byte]] = _
+    private var key: Key = _
+    
+    private var srv: ServerSocket = _
+    private var echo: Thread = _
+    private var sock: NCSocket = _
+    
+    private var idx = 0
+    
+    @Setup
+    def setup(): Unit = {
+        NCBenchEnv.startServer()
+        
+        msgs = NCBenchEnv.corpus.zipWithIndex.map { case (txt, i) ⇒
+            NCProbeMessage("S2P_ASK",
+                "srvReqId" → s"bench-$i",
+                "txt" → txt,
+                "nlpSen" → NCBenchEnv.enrich(txt).asInstanceOf[java.io.Serializable],
+                "userId" → 1L,
+                "dsModelId" → "nlpcraft.bench.ex"
+            )
+        }.toArray
+        
+        bytes = msgs.map(U.serialize)
+        key = if (encrypt) NCCipher.makeTokenKey("bench-token") else null
+        
+        srv = new ServerSocket(0, 1, InetAddress.getLoopbackAddress)
+        
+        echo = U.mkThread("bench-echo") { t ⇒
+            val s = NCSocket(srv.accept(), "localhost", 0)
+            
+            try
+                while (!t.isInterrupted)
+                    s.write(s.read[NCProbeMessage](key), key)
+            catch {
+                case _: Exception ⇒ // Socket closed on tear down.
+            }
+            finally
+                s.close()
+        }
+        
+        echo.start()
+        
+        sock = NCSocket(new Socket(InetAddress.getLoopbackAddress, srv.getLocalPort), "localhost", 0)
+    }
+    
+    @TearDown
+    def tearDown(): Unit = {
+        if (sock != null)
+            sock.close()
+        
+        U.stopThread(echo)
+        U.close(srv)
+    }
+    
+    private def next(): Int = {
+        val i = idx
+        
+        idx = if (i + 1 == msgs.length) 0 else i + 1
+        
+        i
+    }
+    
+    /**
+      * Message serialization.
+      */
+    @Benchmark
+    def serialize(): Array[Byte] = U.serialize(msgs(next()))
+    
+    /**
+      * Message deserialization.
+      */
+    @Benchmark
+    def deserialize(): NCProbeMessage = U.deserialize[NCProbeMessage](bytes(next()))
+    
+    /**
+      * Message write and read back through the echo peer (two serializations and, optionally,
+      * two encryptions in each direction).
+      */
+    @Benchmark
+    def roundTrip(): NCNlpSentence = {
+        sock.write(msgs(next()), key)
+        
+        sock.read[NCProbeMessage](key).data[NCNlpSentence]("nlpSen")
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.bench
+
+import java.util.concurrent.TimeUnit
+import java.util.{Collections, ArrayList ⇒ JArrayList, HashSet ⇒ JHashSet}
+
+import org.apache.commons.lang3.tuple.Pair
+import org.nlpcraft.common.nlp.NCNlpSentence
+import org.nlpcraft.model.{NCQueryResult, NCSentence, NCToken}
+import org.nlpcraft.model.impl.NCMetadataImpl
+import org.nlpcraft.model.intent.NCIntentSolver._
+import org.nlpcraft.model.intent.NCIntentSolverContext
+import org.nlpcraft.model.intent.impl.{NCIntentSolverEngine, NCIntentSolverIndex}
+import org.nlpcraft.probe.mgrs.NCModelDecorator
+import org.nlpcraft.probe.mgrs.nlp.enrichers.coordinates.NCCoordinatesEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.function.NCFunctionEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.model.NCModelEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.stopword.NCStopWordEnricher
+import org.nlpcraft.probe.mgrs.nlp.enrichers.suspicious.NCSuspiciousNounsEnricher
+import org.nlpcraft.probe.mgrs.nlp.impl.NCSentenceImpl
+import org.nlpcraft.probe.mgrs.nlp.post.NCPostEnrichCollapser
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+import scala.collection.JavaConverters._
+
+/**
+  * Probe-side NLP benchmarks over the example models. Each operation processes the whole
+  * utterances corpus, which is first enriched by the server-side pipeline.
+  *
+  * Enrichers modify sentences in place, so the prepared input is cloned first - see `cloneOnly`
+  * for the cost of that.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+class NCProbeNlpBenchmark {
+    // Intents of the example models (same as in their model providers).
+    private final val INTENTS: Map[String, Seq[INTENT]] = {
+        def weather(id: String, tokId: String): INTENT =
+            new CONV_INTENT(
+                id,
+                new TERM(s"id == $tokId", 1, 1),
+                new TERM("id == nlp:date", 0, 1),
+                new TERM(new AND("id == nlp:geo", "~GEO_KIND == CITY"), 0, 1)
+            )
+        
+        Map(
+            "time" → Seq(
+                new NON_CONV_INTENT("time", "id == x:time", 1, 1),
+                new CONV_INTENT(
+                    "c^time|city",
+                    new TERM("id == x:time", 1, 1),
+                    new TERM(new AND("id == nlp:geo", "~GEO_KIND == CITY"), 1, 1)
+                )
+            ),
+            "weather" → Seq(
+                weather("hist|date?|city?", "wt:hist"),
+                weather("fcast|date?|city?", "wt:fcast"),
+                weather("curr|date?|city?", "wt:curr")
+            ),
+            "alarm" → Seq(
+                new NON_CONV_INTENT(
+                    "timer|num{1+}",
+                    new TERM("id == x:timer", 1, 1),
+                    new TERM(new AND("id == nlp:num", "~NUM_UNITTYPE == datetime", "~NUM_ISEQUALCONDITION == true"), 0, 7)
+                )
+            )
+        )
+    }
+    
+    @Param(Array("time", "weather", "alarm"))
+    var model: String = _
+    
+    private var mdl: NCModelDecorator = _
+    
+    // Server-side enriched corpus.
+    private var srvInput: Array[NCNlpSentence] = _
+    // Input of the model enricher.
+    private var mdlInput: Array[NCNlpSentence] = _
+    // Input of the collapser.
+    private var collapseInput: Array[NCNlpSentence] = _
+    // Input of the intent solver.
+    private var sens: Array[NCSentence] = _
+    
+    private val intents = new JArrayList[Pair[INTENT, IntentCallback]]()
+    private val index = new NCIntentSolverIndex
+    private val conv = Collections.unmodifiableSet(new JHashSet[NCToken]())
+    
+    @Setup
+    def setup(): Unit = {
+        NCBenchEnv.startProbe()
+        
+        mdl = NCBenchEnv.model(model)
+        
+        srvInput = NCBenchEnv.corpus.map(NCBenchEnv.enrich).toArray
+        
+        mdlInput = srvInput.map(s ⇒ {
+            val c = s.clone()
+            
+            NCStopWordEnricher.enrich(mdl, c)
+            
+            c
+        })
+        
+        collapseInput = mdlInput.map(s ⇒ {
+            val c = s.clone()
+            
+            NCModelEnricher.enrich(mdl, c)
+            NCFunctionEnricher.enrich(mdl, c)
+            NCCoordinatesEnricher.enrich(mdl, c)
+            NCSuspiciousNounsEnricher.enrich(mdl, c)
+            
+            c
+        })
+        
+        sens = srvInput.zipWithIndex.map { case (s, i) ⇒
+            val seq = NCBenchEnv.enrichProbe(mdl, s)
+            
+            new NCSentenceImpl(
+                mdl,
+                new NCMetadataImpl(Map[String, java.io.Serializable]("NORMTEXT" → s.text).asJava),
+                s"bench-$i",
+                seq
+            ).asInstanceOf[NCSentence]
+        }
+        
+        for (intent ← INTENTS(model)) {
+            intents.add(Pair.of(intent, new IntentCallback {
+                // Callbacks are never invoked by the solver itself.
+                override def apply(ctx: NCIntentSolverContext): NCQueryResult = throw new UnsupportedOperationException
+            }))
+            
+            index.add(intent)
+        }
+    }
+    
+    /**
+      * All probe-side enrichers and collapsing (as `NCProbeNlpManager` does before the model query).
+      */
+    @Benchmark
+    def pipeline(bh: Blackhole): Unit =
+        for (s ← srvInput)
+            bh.consume(NCBenchEnv.enrichProbe(mdl, s))
+    
+    /**
+      * Model elements (synonyms) enricher.
+      */
+    @Benchmark
+    def modelEnrich(bh: Blackhole): Unit =
+        for (s ← mdlInput) {
+            val c = s.clone()
+            
+            NCModelEnricher.enrich(mdl, c)
+            
+            bh.consume(c)
+        }
+    
+    /**
+      * Collapsing of the enriched sentence into the variants.
+      */
+    @Benchmark
+    def collapse(bh: Blackhole): Unit =
+        for (s ← collapseInput)
+            bh.consume(NCPostEnrichCollapser.collapse(mdl, s.clone()))
+    
+    /**
+      * Intent solving over all variants of the sentence.
+      */
+    @Benchmark
+    def solve(bh: Blackhole): Unit =
+        for (sen ← sens)
+            bh.consume(NCIntentSolverEngine.solve(sen, conv, intents, index, false))
+    
+    /**
+      * Baseline for `modelEnrich` and `collapse` benchmarks.
+      */
+    @Benchmark
+    def cloneOnly(bh: Blackhole): Unit =
+        for (s ← mdlInput)
+            bh.consume(s.clone())
+}
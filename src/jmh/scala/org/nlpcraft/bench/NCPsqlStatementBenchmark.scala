@@ -0,0 +1,155 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.bench
+
+import java.sql.{Connection, PreparedStatement, Timestamp}
+import java.util.concurrent.TimeUnit
+
+import com.mchange.v2.c3p0.ComboPooledDataSource
+import org.nlpcraft.common._
+import org.nlpcraft.server.NCConfigurable
+import org.openjdk.jmh.annotations._
+
+/**
+  * Prepared statements cache benchmark: typical `NCPsql` call (pooled connection, statement preparation,
+  * execution) with and without c3p0 per-connection statements cache. With the cache the same statement
+  * object is reused, so the PostgreSQL driver switches it to the server-side prepared statement and
+  * parse and plan round trips are saved.
+  *
+  * NOTE: unlike other benchmarks it requires running PostgreSQL with NLPCraft schema, configured
+  * in `server.postgres.jdbc` section of `nlpcraft.conf`. Run it explicitly by its name.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+class NCPsqlStatementBenchmark {
+    private object Config extends NCConfigurable {
+        final val prefix = "server.postgres.jdbc"
+        
+        val url: String = hocon.getString(s"$prefix.url")
+        val driver: String = hocon.getString(s"$prefix.driver")
+        val username: String = hocon.getString(s"$prefix.username")
+        val passwd: String = hocon.getString(s"$prefix.password")
+    }
+    
+    // Same statements as used by 'NCDbManager'.
+    private final val SQL_SELECT_USER = "SELECT * FROM nc_user WHERE id = ? AND deleted = FALSE"
+    private final val SQL_SELECT_PROC_LOG = "SELECT status FROM proc_log WHERE srv_req_id = ? AND recv_tstamp = ?"
+    
+    // Per-connection statements cache size, '0' disables the cache.
+    @Param(Array("0", "64"))
+    var stmtCache: Int = _
+    
+    private var ds: ComboPooledDataSource = _
+    private var rcvTstamp: Timestamp = _
+    
+    @Setup
+    def setup(): Unit = {
+        ds = new ComboPooledDataSource
+        
+        ds.setDriverClass(Config.driver)
+        ds.setJdbcUrl(Config.url)
+        ds.setUser(Config.username)
+        ds.setPassword(Config.passwd)
+        
+        // Single connection, so that all calls go through the same statements cache.
+        ds.setMaxStatements(0)
+        ds.setMaxStatementsPerConnection(stmtCache)
+        ds.setInitialPoolSize(1)
+        ds.setMinPoolSize(1)
+        ds.setMaxPoolSize(1)
+        
+        try
+            ds.getConnection.close()
+        catch {
+            case e: Exception ⇒
+                ds.close()
+                
+                throw new IllegalStateException(s"PostgreSQL is not available: ${Config.url}", e)
+        }
+        
+        rcvTstamp = new Timestamp(U.nowUtcMs())
+    }
+    
+    @TearDown
+    def tearDown(): Unit =
+        if (ds != null)
+            ds.close()
+    
+    /**
+      * Prepares and executes the statement on the pooled connection (as `NCPsql` does).
+      *
+      * @param sql SQL statement.
+      * @param params Statement parameters.
+      */
+    private def query(sql: String, params: Any*): Int = {
+        val conn: Connection = ds.getConnection
+        
+        try {
+            val ps: PreparedStatement = conn.prepareStatement(sql)
+            
+            try {
+                params.zipWithIndex.foreach { case (p, i) ⇒ ps.setObject(i + 1, p) }
+                
+                val rs = ps.executeQuery()
+                
+                var n = 0
+                
+                while (rs.next())
+                    n += 1
+                
+                rs.close()
+                
+                n
+            }
+            finally
+                ps.close()
+        }
+        finally
+            conn.close()
+    }
+    
+    /**
+      * Primary key lookup in the plain table.
+      */
+    @Benchmark
+    def selectUser(): Int = query(SQL_SELECT_USER, 1L)
+    
+    /**
+      * Primary key lookup in the partitioned processing log (planning includes partitions pruning).
+      */
+    @Benchmark
+    def selectProcLog(): Int = query(SQL_SELECT_PROC_LOG, "bench", rcvTstamp)
+}
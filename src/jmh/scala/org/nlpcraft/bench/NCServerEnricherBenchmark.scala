@@ -0,0 +1,118 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.bench
+
+import java.util.concurrent.TimeUnit
+
+import org.nlpcraft.common.nlp.NCNlpSentence
+import org.nlpcraft.server.nlp.enrichers.NCNlpEnricher
+import org.nlpcraft.server.nlp.enrichers.basenlp.NCBaseNlpEnricher
+import org.nlpcraft.server.nlp.enrichers.date.NCDateEnricher
+import org.nlpcraft.server.nlp.enrichers.geo.NCGeoEnricher
+import org.nlpcraft.server.nlp.enrichers.numeric.NCNumericEnricher
+import org.nlpcraft.server.nlp.enrichers.quote.NCQuoteEnricher
+import org.nlpcraft.server.nlp.enrichers.stopword.NCStopWordEnricher
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+  * Server-side enrichers benchmarks (each enricher in isolation). Each operation processes
+  * the whole utterances corpus.
+  *
+  * Enrichers modify sentences in place, so the prepared input is cloned first - see `cloneOnly`
+  * for the cost of that.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+class NCServerEnricherBenchmark {
+    // Enrichers in the pipeline order.
+    private final val ENRICHERS = Seq[(String, NCNlpEnricher)](
+        "base" → NCBaseNlpEnricher,
+        "quote" → NCQuoteEnricher,
+        "stopword" → NCStopWordEnricher,
+        "date" → NCDateEnricher,
+        "numeric" → NCNumericEnricher,
+        "geo" → NCGeoEnricher
+    )
+    
+    @Param(Array("base", "quote", "stopword", "date", "numeric", "geo"))
+    var enricher: String = _
+    
+    private var enr: NCNlpEnricher = _
+    
+    // Corpus sentences enriched by all enrichers preceding the benchmarked one.
+    private var input: Array[NCNlpSentence] = _
+    
+    @Setup
+    def setup(): Unit = {
+        NCBenchEnv.startServer()
+        
+        val idx = ENRICHERS.indexWhere(_._1 == enricher)
+        
+        require(idx >= 0, s"Unknown enricher: $enricher")
+        
+        enr = ENRICHERS(idx)._2
+        
+        input = NCBenchEnv.corpus.map(txt ⇒ {
+            val s = NCBenchEnv.newSentence(txt)
+            
+            ENRICHERS.take(idx).foreach(_._2.enrich(s))
+            
+            s
+        }).toArray
+    }
+    
+    /**
+      * Enricher selected by 'enricher' parameter.
+      */
+    @Benchmark
+    def isolated(bh: Blackhole): Unit =
+        for (s ← input) {
+            val c = s.clone()
+            
+            enr.enrich(c)
+            
+            bh.consume(c)
+        }
+    
+    /**
+      * Baseline for `isolated` benchmark.
+      */
+    @Benchmark
+    def cloneOnly(bh: Blackhole): Unit =
+        for (s ← input)
+            bh.consume(s.clone())
+}
@@ -95,13 +95,41 @@ CREATE TABLE ds_instance (
     is_temporary BOOLEAN NOT NULL
 );
 
+--
+-- Probe session (one row per probe registration).
+--
+DROP TABLE IF EXISTS probe_session CASCADE;
+CREATE TABLE probe_session (
+    id SERIAL PRIMARY KEY,
+    probe_token VARCHAR(256) NOT NULL,
+    probe_id VARCHAR(512) NOT NULL,
+    probe_guid VARCHAR(512) NOT NULL,
+    probe_api_version VARCHAR(512) NULL,
+    probe_api_date DATE NULL,
+    probe_os_version VARCHAR(512) NULL,
+    probe_os_name VARCHAR(512) NULL,
+    probe_os_arch VARCHAR(512) NULL,
+    probe_start_tstamp TIMESTAMP NULL,
+    probe_tmz_id VARCHAR(64) NULL,
+    probe_tmz_abbr VARCHAR(64) NULL,
+    probe_tmz_name VARCHAR(64) NULL,
+    probe_user_name VARCHAR(512) NULL,
+    probe_java_version VARCHAR(512) NULL,
+    probe_java_vendor VARCHAR(512) NULL,
+    probe_host_name VARCHAR(1024) NULL,
+    probe_host_addr VARCHAR(512) NULL,
+    probe_mac_addr VARCHAR(512) NULL,
+    register_tstamp TIMESTAMP NOT NULL DEFAULT current_timestamp
+);
+
 --
 -- Processing log.
+-- Range partitioned by receive timestamp, partitions are maintained by 'NCProcessLogPartitionManager'.
 --
 DROP TABLE IF EXISTS proc_log CASCADE;
 CREATE TABLE proc_log (
     -- Common part.
-    srv_req_id VARCHAR(64) PRIMARY KEY,
+    srv_req_id VARCHAR(64) NOT NULL,
     txt VARCHAR(1024),
     user_id BIGINT,
     ds_id BIGINT,
@@ -117,25 +145,15 @@ CREATE TABLE proc_log (
     res_type VARCHAR(32) NULL,
     res_body_gzip TEXT NULL, -- GZIP-ed result body.
     error TEXT NULL,
-    -- Probe information for this request.
-    probe_token VARCHAR(256) NULL,
-    probe_id VARCHAR(512) NULL,
-    probe_guid VARCHAR(512) NULL,
-    probe_api_version VARCHAR(512) NULL,
-    probe_api_date DATE NULL,
-    probe_os_version VARCHAR(512) NULL,
-    probe_os_name VARCHAR(512) NULL,
-    probe_os_arch VARCHAR(512) NULL,
-    probe_start_tstamp TIMESTAMP NULL,
-    probe_tmz_id VARCHAR(64) NULL,
-    probe_tmz_abbr VARCHAR(64) NULL,
-    probe_tmz_name VARCHAR(64) NULL,
-    probe_user_name VARCHAR(512) NULL,
-    probe_java_version VARCHAR(512) NULL,
-    probe_java_vendor VARCHAR(512) NULL,
-    probe_host_name VARCHAR(1024) NULL,
-    probe_host_addr VARCHAR(512) NULL,
-    probe_mac_addr VARCHAR(512) NULL,
+    -- Probe session this request was processed by.
+    probe_session_id BIGINT NULL REFERENCES probe_session(id),
+    -- Latency trace: array of {"hop": ..., "tstamp": ...} objects in the order hops were reached.
+    timings JSONB NULL,
     -- Whether or not this is a test run.
-    is_test BOOL NOT NULL DEFAULT FALSE
-);
+    is_test BOOL NOT NULL DEFAULT FALSE,
+    -- Partition key must be part of the primary key.
+    PRIMARY KEY (srv_req_id, recv_tstamp)
+) PARTITION BY RANGE (recv_tstamp);
+
+-- Catches rows outside of the created partitions, they are moved into partitions created later.
+CREATE TABLE proc_log_default PARTITION OF proc_log DEFAULT;
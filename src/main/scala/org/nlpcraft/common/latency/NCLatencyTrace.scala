@@ -0,0 +1,97 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.latency
+
+import org.nlpcraft.common._
+
+import scala.collection.mutable
+
+/**
+  * Latency trace of the single request: ordered hops with the time they were reached.
+  * The trace travels from the server to the probe and back with the request messages.
+  * Note that timestamps of the server and probe hops come from different clocks.
+  *
+  * @param init Initial hops.
+  */
+class NCLatencyTrace(init: Seq[(String, Long)] = Nil) {
+    private val hops = mutable.ArrayBuffer.empty[(String, Long)] ++= init
+    
+    /**
+      * Records given hop with the current time.
+      *
+      * @param hop Hop name.
+      */
+    def mark(hop: String): Unit = mark(hop, U.nowUtcMs())
+    
+    /**
+      * Records given hop with given time.
+      *
+      * @param hop Hop name.
+      * @param tstamp Hop timestamp.
+      */
+    def mark(hop: String, tstamp: Long): Unit = hops.synchronized { hops += hop → tstamp }
+    
+    /**
+      * Gets recorded hops (serializable, to be sent in the messages).
+      */
+    def toList: List[(String, Long)] = hops.synchronized { hops.toList }
+}
+
+object NCLatencyTrace {
+    // Server hops.
+    final val SRV_REST_RECV = "srv_rest_recv"
+    final val SRV_ENRICH_START = "srv_enrich_start"
+    final val SRV_ENRICH_END = "srv_enrich_end"
+    final val SRV_PROBE_DISPATCH = "srv_probe_dispatch"
+    final val SRV_RESULT_RECV = "srv_result_recv"
+    
+    // Probe hops.
+    final val PROBE_RECV = "probe_recv"
+    final val PROBE_QUERY_START = "probe_query_start"
+    final val PROBE_QUERY_END = "probe_query_end"
+    final val PROBE_RESULT_SEND = "probe_result_send"
+    
+    /**
+      * Gets name of the hop reached when given probe processing step has finished.
+      *
+      * @param step Step name (enricher, collapser or checker).
+      */
+    def probeStep(step: String): String = s"probe_$step"
+    
+    /**
+      * Converts hops into JSON array of `{"hop": ..., "tstamp": ...}` objects.
+      *
+      * @param hops Hops to convert.
+      */
+    def toJson(hops: Seq[(String, Long)]): String =
+        hops.map { case (hop, tstamp) ⇒ s"""{"hop":"${U.escapeJson(hop)}","tstamp":$tstamp}""" }.mkString("[", ",", "]")
+}
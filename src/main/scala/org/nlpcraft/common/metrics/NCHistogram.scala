@@ -0,0 +1,192 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.metrics
+
+import java.util.concurrent.atomic.{AtomicLongArray, LongAccumulator, LongAdder}
+import java.util.function.LongBinaryOperator
+
+import org.nlpcraft.common.metrics.NCHistogram.Buckets
+
+/**
+  * Histogram metric with fixed buckets. Recording is a binary search over the bucket
+  * bounds plus few atomic updates, i.e. it is lock- and allocation-free. Histograms are
+  * normally obtained from `NCMetrics`, not registered ones can be used for local measurements.
+  *
+  * @param name Metric name.
+  * @param help Metric description.
+  * @param labels Metric labels.
+  * @param buckets Buckets specification.
+  */
+class NCHistogram private[nlpcraft](
+    val name: String,
+    val help: String,
+    val labels: Seq[(String, String)],
+    val buckets: Buckets
+) extends NCMetric {
+    private val bounds = buckets.bounds
+    
+    // Last slot is '+Inf' bucket.
+    private val counts = new AtomicLongArray(bounds.length + 1)
+    private val total = new LongAdder
+    private val maxVal = new LongAccumulator(
+        new LongBinaryOperator {
+            override def applyAsLong(a: Long, b: Long): Long = Math.max(a, b)
+        },
+        0
+    )
+    
+    /**
+      * Records given value (nanoseconds for time histograms).
+      *
+      * @param v Value to record.
+      */
+    def record(v: Long): Unit = {
+        var lo = 0
+        var hi = bounds.length
+        
+        while (lo < hi) {
+            val mid = (lo + hi) >>> 1
+            
+            if (bounds(mid) < v) lo = mid + 1 else hi = mid
+        }
+        
+        counts.incrementAndGet(lo)
+        total.add(v)
+        maxVal.accumulate(v)
+    }
+    
+    /**
+      * Records duration since given start time.
+      *
+      * @param startNs Start time obtained from `System.nanoTime()`.
+      */
+    def recordSince(startNs: Long): Unit = record(System.nanoTime() - startNs)
+    
+    /**
+      * Gets total number of recorded values.
+      */
+    def count: Long = {
+        var n = 0L
+        
+        for (i ← 0 until counts.length())
+            n += counts.get(i)
+        
+        n
+    }
+    
+    /**
+      * Gets maximum recorded value in exposed units.
+      */
+    def max: Double = maxVal.get() / buckets.divisor
+    
+    /**
+      * Gets approximate percentile in exposed units, i.e. the upper bound of the bucket containing
+      * this percentile (or the maximum recorded value if it is smaller or out of buckets range).
+      *
+      * @param q Percentile, from 0 to 100.
+      */
+    def percentile(q: Double): Double = {
+        require(q >= 0 && q <= 100)
+        
+        val n = count
+        
+        if (n == 0)
+            0
+        else {
+            val rank = math.max(1L, math.ceil(q / 100 * n).toLong)
+            
+            var i = 0
+            var acc = counts.get(0)
+            
+            while (acc < rank && i < bounds.length) {
+                i += 1
+                acc += counts.get(i)
+            }
+            
+            if (i < bounds.length) math.min(bounds(i) / buckets.divisor, max) else max
+        }
+    }
+    
+    override def kind: String = "histogram"
+    
+    override def snapshot: NCMetricSnapshot = {
+        val vals = new Array[Double](counts.length() + 1)
+        
+        for (i ← 0 until counts.length())
+            vals(i) = counts.get(i)
+        
+        vals(counts.length()) = total.sum() / buckets.divisor
+        
+        NCMetricSnapshot(name, help, kind, labels, bounds.map(_ / buckets.divisor), vals)
+    }
+}
+
+object NCHistogram {
+    /**
+      * Buckets specification.
+      *
+      * @param bounds Bucket upper bounds in recorded units.
+      * @param divisor Divisor converting recorded units into exposed ones.
+      */
+    case class Buckets(bounds: Array[Long], divisor: Double)
+    
+    /**
+      * 1-2-5 series within given decimal exponents.
+      *
+      * @param from Exponent of the first bound.
+      * @param to Exponent of the last bound.
+      */
+    private def series(from: Int, to: Int): Array[Long] =
+        (for (exp ← from to to; m ← Seq(1L, 2L, 5L)) yield m * math.pow(10, exp).toLong).
+            filter(_ <= math.pow(10, to).toLong).toArray
+    
+    /**
+      * Durations recorded in nanoseconds and exposed in seconds: 10us, 20us, 50us, ..., 50s, 100s.
+      */
+    final val TIME = Buckets(series(4, 11), 1E9)
+    
+    /**
+      * Durations with two significant digits (as HDR histograms with the same precision): 10us,
+      * 11us, ..., 99us, 100us, 110us, ..., 99s, 100s. Suitable for percentiles, too detailed for
+      * the exposition.
+      */
+    final val LATENCY = Buckets(
+        (for (exp ← 4 until 11; m ← 10L until 100L) yield m * math.pow(10, exp - 1).toLong).toArray :+
+            math.pow(10, 11).toLong,
+        1E9
+    )
+    
+    /**
+      * Sizes and counts: 1, 2, 5, ..., 5M, 10M.
+      */
+    final val SIZE = Buckets(series(0, 7), 1)
+}
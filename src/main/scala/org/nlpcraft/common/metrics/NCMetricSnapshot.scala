@@ -0,0 +1,126 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.metrics
+
+/**
+  * Point-in-time, serializable copy of the metric. Snapshots are used to render metrics and
+  * to transfer them between JVMs (e.g. from the probe to the server).
+  *
+  * @param name Metric name.
+  * @param help Metric description.
+  * @param kind Prometheus metric type.
+  * @param labels Metric labels.
+  * @param bounds Histogram bucket upper bounds (empty for other metric types).
+  * @param values Single value for counter and gauge. For histogram - per-bucket counts
+  *      (including the last '+Inf' bucket) followed by the sum of all recorded values.
+  */
+case class NCMetricSnapshot(
+    name: String,
+    help: String,
+    kind: String,
+    labels: Seq[(String, String)],
+    bounds: Array[Double],
+    values: Array[Double]
+) {
+    /**
+      * Gets copy of this snapshot with given labels added.
+      *
+      * @param extra Labels to add.
+      */
+    def withLabels(extra: (String, String)*): NCMetricSnapshot = copy(labels = labels ++ extra)
+    
+    /**
+      * Gets metric value: counter or gauge value, or the number of recorded values for histogram.
+      */
+    def value: Double = if (kind == "histogram") values.init.sum else values.head
+    
+    /**
+      * Gets sum of the recorded values for histogram, or metric value otherwise.
+      */
+    def sum: Double = values.last
+    
+    /**
+      * Writes this snapshot in Prometheus text format.
+      *
+      * @param sb Output buffer.
+      */
+    private[metrics] def write(sb: StringBuilder): Unit =
+        if (kind == "histogram") {
+            var acc = 0.0
+            
+            for (i ← bounds.indices) {
+                acc += values(i)
+                
+                writeSample(sb, s"${name}_bucket", labels :+ ("le" → NCMetricSnapshot.fmt(bounds(i))), acc)
+            }
+            
+            acc += values(bounds.length)
+            
+            writeSample(sb, s"${name}_bucket", labels :+ ("le" → "+Inf"), acc)
+            writeSample(sb, s"${name}_sum", labels, sum)
+            writeSample(sb, s"${name}_count", labels, acc)
+        }
+        else
+            writeSample(sb, name, labels, values.head)
+    
+    /**
+      *
+      * @param sb Output buffer.
+      * @param name Sample name.
+      * @param labels Sample labels.
+      * @param v Sample value.
+      */
+    private def writeSample(sb: StringBuilder, name: String, labels: Seq[(String, String)], v: Double): Unit = {
+        sb ++= name
+        
+        if (labels.nonEmpty)
+            sb ++= labels.map { case (k, lv) ⇒ s"""$k="${NCMetricSnapshot.escape(lv)}"""" }.mkString("{", ",", "}")
+        
+        sb += ' ' ++= NCMetricSnapshot.fmt(v) += '\n'
+    }
+}
+
+object NCMetricSnapshot {
+    /**
+      *
+      * @param v Value to format.
+      */
+    private[metrics] def fmt(v: Double): String =
+        if (v == v.toLong) v.toLong.toString else BigDecimal(v).bigDecimal.stripTrailingZeros().toPlainString
+    
+    /**
+      *
+      * @param s Label value to escape.
+      */
+    private[metrics] def escape(s: String): String =
+        s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")
+}
@@ -0,0 +1,157 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+
+import org.nlpcraft.common._
+
+import scala.collection.JavaConverters._
+
+/**
+  * Process-wide metrics registry. Metrics are registered once (typically on component start)
+  * and referenced directly afterwards so that recording never goes through the registry.
+  * Registering the metric with the same name and labels returns the existing instance.
+  */
+object NCMetrics {
+    private val metrics = new ConcurrentHashMap[String, NCMetric]()
+    
+    /**
+      *
+      * @param name Metric name.
+      * @param labels Metric labels.
+      */
+    private def key(name: String, labels: Seq[(String, String)]): String =
+        labels.map { case (k, v) ⇒ s"$k=$v" }.mkString(s"$name{", ",", "}")
+    
+    /**
+      *
+      * @param name Metric name.
+      * @param labels Metric labels.
+      * @param mk Metric factory.
+      */
+    @throws[NCE]
+    private def register[T <: NCMetric](name: String, labels: Seq[(String, String)], mk: ⇒ T): T = {
+        val m = mk
+        
+        metrics.putIfAbsent(key(name, labels), m) match {
+            case null ⇒ m
+            case x if x.kind == m.kind ⇒ x.asInstanceOf[T]
+            case x ⇒ throw new NCE(s"Metric already registered with different type [name=$name, type=${x.kind}]")
+        }
+    }
+    
+    /**
+      * Registers (or gets existing) counter.
+      *
+      * @param name Metric name.
+      * @param help Metric description.
+      * @param labels Metric labels.
+      */
+    @throws[NCE]
+    def counter(name: String, help: String, labels: (String, String)*): NCCounter =
+        register(name, labels, new NCCounter(name, help, labels))
+    
+    /**
+      * Registers (or replaces existing) gauge.
+      *
+      * @param name Metric name.
+      * @param help Metric description.
+      * @param labels Metric labels.
+      * @param f Value function.
+      */
+    def gauge(name: String, help: String, labels: (String, String)*)(f: ⇒ Double): NCGauge = {
+        val g = new NCGauge(name, help, labels, () ⇒ f)
+        
+        metrics.put(key(name, labels), g)
+        
+        g
+    }
+    
+    /**
+      * Registers (or gets existing) histogram.
+      *
+      * @param name Metric name.
+      * @param help Metric description.
+      * @param labels Metric labels.
+      */
+    @throws[NCE]
+    def histogram(name: String, help: String, labels: (String, String)*): NCHistogram =
+        histogram(name, help, NCHistogram.TIME, labels: _*)
+    
+    /**
+      * Registers (or gets existing) histogram with given buckets.
+      *
+      * @param name Metric name.
+      * @param help Metric description.
+      * @param buckets Buckets specification.
+      * @param labels Metric labels.
+      */
+    @throws[NCE]
+    def histogram(name: String, help: String, buckets: NCHistogram.Buckets, labels: (String, String)*): NCHistogram =
+        register(name, labels, new NCHistogram(name, help, labels, buckets))
+    
+    /**
+      * Unregisters given metric.
+      *
+      * @param m Metric to remove.
+      */
+    def remove(m: NCMetric): Unit = metrics.remove(key(m.name, m.labels), m)
+    
+    /**
+      * Takes snapshots of all registered metrics.
+      *
+      * @param prefix Optional name prefix to filter metrics by.
+      */
+    def snapshot(prefix: String = ""): Seq[NCMetricSnapshot] =
+        metrics.values().asScala.toSeq.filter(_.name.startsWith(prefix)).map(_.snapshot)
+    
+    /**
+      * Gets all metrics in Prometheus text exposition format (version 0.0.4).
+      *
+      * @param extra Additional snapshots (e.g. received from other JVMs) to expose along with local metrics.
+      */
+    def prometheus(extra: Seq[NCMetricSnapshot] = Nil): String = {
+        val sb = new StringBuilder
+        
+        for ((name, ms) ← (snapshot() ++ extra).groupBy(_.name).toSeq.sortBy(_._1)) {
+            val m = ms.head
+            
+            sb ++= s"# HELP $name ${m.help.replace("\\", "\\\\").replace("\n", "\\n")}\n"
+            sb ++= s"# TYPE $name ${m.kind}\n"
+            
+            ms.sortBy(p ⇒ key(p.name, p.labels)).foreach(_.write(sb))
+        }
+        
+        sb.toString
+    }
+}
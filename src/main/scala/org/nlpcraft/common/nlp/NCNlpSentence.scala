@@ -36,10 +36,18 @@ import scala.collection._
 /**
   * Parsed NLP sentence is a collection of tokens. Each token is a collection of notes and
   * each note is a collection of KV pairs.
+  *
+  * @param text Normalized text.
+  * @param isLatinCharset Whether text contains only latin charset characters (detected on the server).
+  * @param isEnglish Whether text language is detected as English (detected on the server).
   */
-class NCNlpSentence(val text: String) extends NCNlpSentenceTokenBuffer with Serializable {
+class NCNlpSentence(
+    val text: String,
+    val isLatinCharset: Boolean,
+    val isEnglish: Boolean
+) extends NCNlpSentenceTokenBuffer with Serializable {
     override def clone(): NCNlpSentence = {
-        val t = new NCNlpSentence(text)
+        val t = new NCNlpSentence(text, isLatinCharset, isEnglish)
         
         t ++= this.map(t ⇒ t.clone(t.index))
         
@@ -34,6 +34,7 @@ package org.nlpcraft.common.nlp.dict
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
 import org.nlpcraft.common.nlp.dict.NCDictionaryType._
+import org.nlpcraft.common.snapshot.NCResourceSnapshot
 
 /**
  * English dictionary.
@@ -57,23 +58,36 @@ object NCDictionaryManager extends NCLifecycle("Dictionary manager") {
         val wordType = p._1
         val path = p._2
 
+        val res = s"moby/$path"
+
         // Reads single words only.
-        def read = U.readResource(s"moby/$path", "iso-8859-1", logger).
+        def read = U.readResource(res, "iso-8859-1", logger).
             filter(!_.contains(" ")).toSet
 
-        val words =
-            wordType match {
-                // Skips proper nouns for this dictionary type.
-                case WORD_COMMON ⇒ read.filter(_.head.isLower)
-                case _ ⇒ read
-            }
+        val words = NCResourceSnapshot.get(s"dict-$path", Seq(res)) {
+            val words =
+                wordType match {
+                    // Skips proper nouns for this dictionary type.
+                    case WORD_COMMON ⇒ read.filter(_.head.isLower)
+                    case _ ⇒ read
+                }
+
+            words.map(_.toLowerCase)
+        }
 
-        wordType → words.map(_.toLowerCase)
+        wordType → words
     })
 
     // Summary dictionary for all types.
     private val full: Set[String] = dicts.flatMap(_._2).toSet
 
+    /**
+     * Gets classpath resource of the given dictionary type.
+     *
+     * @param dictType Dictionary type.
+     */
+    def getResource(dictType: NCDictionaryType): String = s"moby/${dictFiles(dictType)}"
+
     /**
      * Checks if given lemma found in any dictionary.
      *
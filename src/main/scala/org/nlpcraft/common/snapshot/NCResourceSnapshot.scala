@@ -0,0 +1,264 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.snapshot
+
+import java.io._
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.{Files, StandardCopyOption, StandardOpenOption}
+import java.util.zip.CRC32
+
+import com.typesafe.scalalogging.LazyLogging
+import org.apache.commons.codec.binary.Hex
+import org.apache.commons.codec.digest.DigestUtils
+import org.nlpcraft.common._
+import org.nlpcraft.common.version.NCVersion
+import resource._
+
+import scala.compat.Platform._
+import scala.reflect.ClassTag
+
+/**
+  * Versioned binary snapshots of the structures built from the bundled NLP resources.
+  *
+  * Building some of these structures (GEO model, dictionaries, etc.) requires parsing
+  * megabytes of JSON and text on each start. The first run stores the built structure
+  * in the snapshot folder and the subsequent runs memory-map that image instead of
+  * parsing the resources again. Each image is validated by the SHA-256 digest of its source
+  * resources, the NLPCraft version and the CRC32 of its payload - any mismatch causes
+  * the image to be rebuilt.
+  *
+  * Snapshot folder is defined by `NLPCRAFT_SNAPSHOT_DIR` system property or environment
+  * variable (`~/.nlpcraft/snapshots` by default). Snapshots can be switched off by
+  * setting `NLPCRAFT_SNAPSHOT_DISABLED` to `true`.
+  */
+object NCResourceSnapshot extends LazyLogging {
+    // Image header constants.
+    private final val MAGIC = 0x4E43534E // 'NCSN'
+    private final val FORMAT_VER = 1
+    
+    private final val SFX = ".snapshot"
+    
+    private lazy val disabled = U.isSysEnvTrue("NLPCRAFT_SNAPSHOT_DISABLED")
+    private lazy val dir = new File(
+        U.sysEnv("NLPCRAFT_SNAPSHOT_DIR").getOrElse(U.homeFileName(".nlpcraft/snapshots"))
+    )
+    
+    /**
+      * Input stream view of the byte buffer.
+      *
+      * @param buf Buffer to read.
+      */
+    private class ByteBufferInputStream(buf: ByteBuffer) extends InputStream {
+        override def read(): Int = if (buf.hasRemaining) buf.get() & 0xFF else -1
+        
+        override def read(arr: Array[Byte], off: Int, len: Int): Int =
+            if (!buf.hasRemaining)
+                -1
+            else {
+                val n = Math.min(len, buf.remaining())
+                
+                buf.get(arr, off, n)
+                
+                n
+            }
+        
+        override def available(): Int = buf.remaining()
+    }
+    
+    /**
+      * Gets digest of the given classpath resources content.
+      *
+      * @param name Snapshot name.
+      * @param resources Classpath resources.
+      */
+    @throws[NCE]
+    private def mkDigest(name: String, resources: Seq[String]): String = {
+        val md = DigestUtils.getSha256Digest
+        
+        def add(s: String): Unit = md.update(s.getBytes("UTF-8"))
+        
+        add(name)
+        add(NCVersion.getCurrent.version)
+        add(FORMAT_VER.toString)
+        
+        for (res ← resources.sorted) {
+            add(res)
+            
+            managed(U.getStream(res)) acquireAndGet { in ⇒ DigestUtils.updateDigest(md, in) }
+        }
+        
+        Hex.encodeHexString(md.digest())
+    }
+    
+    /**
+      * Gets payload CRC32 checksum.
+      *
+      * @param buf Payload buffer.
+      */
+    private def mkCrc(buf: ByteBuffer): Long = {
+        val crc = new CRC32()
+        
+        crc.update(buf)
+        
+        crc.getValue
+    }
+    
+    /**
+      * Tries to read snapshot image, returns `None` if image doesn't exist or invalid
+      * (including the image of another type).
+      *
+      * @param f Image file.
+      * @param digest Expected sources digest.
+      */
+    private def read[T: ClassTag](f: File, digest: String): Option[T] =
+        if (!f.exists())
+            None
+        else
+            try
+                managed(FileChannel.open(f.toPath, StandardOpenOption.READ)) acquireAndGet { ch ⇒
+                    val buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size())
+                    val in = new DataInputStream(new ByteBufferInputStream(buf))
+                    
+                    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VER || in.readUTF() != digest)
+                        None
+                    else {
+                        val crc = in.readLong()
+                        val len = in.readInt()
+                        
+                        if (buf.remaining() != len)
+                            None
+                        else {
+                            val payload = buf.slice()
+                            
+                            if (mkCrc(payload.duplicate()) != crc)
+                                None
+                            else
+                                managed(new ObjectInputStream(new ByteBufferInputStream(payload))) acquireAndGet { in ⇒
+                                    val cls = implicitly[ClassTag[T]].runtimeClass
+                                    
+                                    in.readObject() match {
+                                        case obj if cls.isInstance(obj) ⇒ Some(obj.asInstanceOf[T])
+                                        case obj ⇒
+                                            logger.warn(
+                                                s"Resource snapshot of unexpected type (ignoring) [" +
+                                                    s"file=${f.getAbsolutePath}, " +
+                                                    s"expected=${cls.getName}, " +
+                                                    s"actual=${if (obj == null) "null" else obj.getClass.getName}" +
+                                                s"]"
+                                            )
+                                            
+                                            None
+                                    }
+                                }
+                        }
+                    }
+                }
+            catch {
+                case e: Exception ⇒
+                    logger.warn(s"Failed to read resource snapshot (ignoring): ${f.getAbsolutePath}", e)
+                    
+                    None
+            }
+    
+    /**
+      * Writes snapshot image. Image is written to the temporary file first and then atomically moved
+      * into its place so that concurrently starting nodes never see partially written image.
+      *
+      * @param f Image file.
+      * @param digest Sources digest.
+      * @param obj Object to store.
+      */
+    private def write(f: File, digest: String, obj: Any): Unit =
+        try {
+            if (!dir.exists() && !dir.mkdirs())
+                throw new IOException(s"Failed to create folder: ${dir.getAbsolutePath}")
+            
+            val payload = U.serialize(obj)
+            val tmp = File.createTempFile(f.getName, ".tmp", dir)
+            
+            try {
+                managed(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) acquireAndGet { out ⇒
+                    out.writeInt(MAGIC)
+                    out.writeInt(FORMAT_VER)
+                    out.writeUTF(digest)
+                    out.writeLong(mkCrc(ByteBuffer.wrap(payload)))
+                    out.writeInt(payload.length)
+                    out.write(payload)
+                }
+                
+                Files.move(tmp.toPath, f.toPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            }
+            finally
+                tmp.delete()
+            
+            logger.trace(s"Resource snapshot written: ${f.getAbsolutePath}")
+        }
+        catch {
+            case e: Exception ⇒ logger.warn(s"Failed to write resource snapshot (ignoring): ${f.getAbsolutePath}", e)
+        }
+    
+    /**
+      * Gets the object built from the given classpath resources. The object is read from its snapshot image,
+      * if a valid one exists, or built by the given function and stored as a new snapshot image otherwise.
+      *
+      * @param name Unique snapshot name.
+      * @param resources Classpath resources the object is built from.
+      * @param mk Function that builds the object from the resources.
+      */
+    @throws[NCE]
+    def get[T: ClassTag](name: String, resources: Seq[String])(mk: ⇒ T): T =
+        if (disabled)
+            mk
+        else {
+            val start = currentTime
+            
+            val digest = mkDigest(name, resources)
+            val f = new File(dir, s"$name$SFX")
+            
+            read[T](f, digest) match {
+                case Some(obj) ⇒
+                    logger.trace(s"Resource snapshot loaded [name=$name, duration=${currentTime - start}ms]")
+                    
+                    obj
+                
+                case None ⇒
+                    val obj = mk
+                    
+                    write(f, digest, obj)
+                    
+                    logger.trace(s"Resource snapshot built [name=$name, duration=${currentTime - start}ms]")
+                    
+                    obj
+            }
+        }
+}
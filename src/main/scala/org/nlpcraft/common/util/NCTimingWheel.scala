@@ -0,0 +1,227 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.util
+
+import java.util.concurrent.locks.LockSupport
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentLinkedQueue, TimeUnit}
+import java.util.{ArrayList ⇒ JArrayList}
+
+import com.typesafe.scalalogging.LazyLogging
+
+import scala.collection.mutable
+
+/**
+  * Hashed timing wheel. Values are placed into slots by their deadline ticks and the worker thread
+  * expires one slot per tick, so scheduling and cancellation are O(1) regardless of the number of
+  * pending values. Values are expired no earlier than their deadlines and at most one tick later,
+  * values which are already due are expired right away.
+  *
+  * Scheduling is lock-free: new values are handed over to the worker via queue and only the worker
+  * touches the slots.
+  *
+  * @param name Worker thread name.
+  * @param tickMs Tick duration in ms, i.e. the timer resolution.
+  * @param slotsNum Number of slots.
+  * @param onExpire Callback for values expired at the same time, called on the worker thread.
+  * @tparam K Key type.
+  * @tparam V Value type.
+  */
+class NCTimingWheel[K, V](name: String, tickMs: Long, slotsNum: Int)(onExpire: Seq[(K, V)] ⇒ Unit)
+    extends LazyLogging {
+    require(tickMs > 0)
+    require(slotsNum > 0)
+    
+    private class Entry(val key: K, val value: V, val deadline: Long) {
+        // Number of full wheel turns left.
+        var rounds = 0L
+    }
+    
+    // Latest entry for each key, used for cancellation and rescheduling.
+    private val pending = new ConcurrentHashMap[K, Entry]()
+    private val incoming = new ConcurrentLinkedQueue[Entry]()
+    
+    // Worker-only state.
+    private val slots = Array.fill(slotsNum)(new JArrayList[Entry]())
+    private var tick = -1L // Next tick to expire, initialized on first advance.
+    
+    @volatile private var worker: Thread = _
+    
+    /**
+      * Schedules value, replacing previously scheduled value with the same key.
+      *
+      * @param key Key.
+      * @param value Value.
+      * @param deadline Time in ms (as `System.currentTimeMillis()`) to expire value at.
+      */
+    def schedule(key: K, value: V, deadline: Long): Unit = {
+        val e = new Entry(key, value, deadline)
+        
+        pending.put(key, e)
+        incoming.add(e)
+        
+        val w = worker
+        
+        if (w != null && deadline <= System.currentTimeMillis())
+            LockSupport.unpark(w)
+    }
+    
+    /**
+      * Cancels scheduled value.
+      *
+      * @param key Key.
+      * @return Whether value was scheduled.
+      */
+    def cancel(key: K): Boolean = pending.remove(key) != null
+    
+    /**
+      * Gets number of scheduled values.
+      */
+    def size(): Int = pending.size()
+    
+    /**
+      *
+      * @param e Entry.
+      * @param expired Expired values collector.
+      */
+    private def expire(e: Entry, expired: mutable.Buffer[(K, V)]): Unit =
+        if (pending.remove(e.key, e))
+            expired += e.key → e.value
+    
+    /**
+      * Moves incoming entries into slots.
+      *
+      * @param now Current time.
+      * @param expired Expired values collector.
+      */
+    private def transfer(now: Long, expired: mutable.Buffer[(K, V)]): Unit = {
+        var e = incoming.poll()
+        
+        while (e != null) {
+            if (pending.get(e.key) eq e) {
+                if (e.deadline <= now)
+                    expire(e, expired)
+                else {
+                    // Not less than 'tick' since all previous ticks have already passed.
+                    val t = e.deadline / tickMs
+                    
+                    e.rounds = (t - tick) / slotsNum
+                    
+                    slots((t % slotsNum).toInt).add(e)
+                }
+            }
+            
+            e = incoming.poll()
+        }
+    }
+    
+    /**
+      * Expires entries of the current tick.
+      *
+      * @param expired Expired values collector.
+      */
+    private def expireTick(expired: mutable.Buffer[(K, V)]): Unit = {
+        val slot = slots((tick % slotsNum).toInt)
+        
+        val it = slot.iterator()
+        
+        while (it.hasNext) {
+            val e = it.next()
+            
+            if (pending.get(e.key) ne e)
+                it.remove() // Cancelled or rescheduled.
+            else if (e.rounds > 0)
+                e.rounds -= 1
+            else {
+                it.remove()
+                
+                expire(e, expired)
+            }
+        }
+        
+        tick += 1
+    }
+    
+    /**
+      * Takes incoming values and expires all values due by given time. Called by the worker thread,
+      * tests can call it directly with controlled time instead of starting the worker.
+      *
+      * @param now Current time in ms.
+      */
+    private[util] def advance(now: Long): Unit = {
+        if (tick < 0)
+            tick = now / tickMs
+        
+        val expired = mutable.ArrayBuffer.empty[(K, V)]
+        
+        transfer(now, expired)
+        
+        // Tick is expired when it is over, so values never expire early.
+        while ((tick + 1) * tickMs <= now)
+            expireTick(expired)
+        
+        if (expired.nonEmpty)
+            try
+                onExpire(expired)
+            catch {
+                case e: Throwable ⇒ logger.error(s"Timing wheel callback error: $name", e)
+            }
+    }
+    
+    /**
+      * Starts worker thread.
+      */
+    def start(): Unit = {
+        require(worker == null)
+        
+        worker = NCUtils.mkThread(name) { t ⇒
+            while (!t.isInterrupted) {
+                advance(System.currentTimeMillis())
+                
+                val waitMs = (tick + 1) * tickMs - System.currentTimeMillis()
+                
+                if (waitMs > 0 && incoming.isEmpty)
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(waitMs))
+            }
+        }
+        
+        worker.start()
+    }
+    
+    /**
+      * Stops worker thread. Scheduled values are kept.
+      */
+    def stop(): Unit = {
+        NCUtils.stopThread(worker)
+        
+        worker = null
+    }
+}
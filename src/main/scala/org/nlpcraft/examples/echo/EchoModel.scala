@@ -46,6 +46,9 @@ import scala.collection.Seq
   * This example for any user input returns JSON representation of the query context
   * corresponding to that input. This is a simple demonstration of the JSON output
   * and of most of the NLPCraft-provided data that a user defined model can operate on.
+  * <p>
+  * Since the model accepts any input it is also handy for load testing of the server and probe
+  * with `NCLoadTest` - its examples are used as questions then.
   */
 class EchoModel extends NCModelProviderAdapter {
     // Any immutable user defined ID.
@@ -207,7 +210,14 @@ class EchoModel extends NCModelProviderAdapter {
               |    "vendorContact": "Support",
               |    "vendorEmail": "info@nlpcraft.org",
               |    "docsUrl": "https://www.nlpcraft.org",
-              |    "allowNoUserTokens": true
+              |    "allowNoUserTokens": true,
+              |    "examples": [
+              |        "LA weather last Friday",
+              |        "What time is it in Paris, France?",
+              |        "Set the timer for 5 minutes",
+              |        "Show me sales between 10 and 20 million dollars in 'North America' last year",
+              |        "How many flights from Chicago to New York tomorrow morning?"
+              |    ]
               | }
             """.stripMargin)
             .setQueryFunction((ctx: NCQueryContext) ⇒ {
@@ -40,6 +40,7 @@ import org.nlpcraft.model.impl.NCMetadataImpl;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 /**
  * <b>Main interface</b> for user-defined semantic data model.
@@ -55,6 +56,8 @@ import java.util.Set;
  *     <li>{@link #getDescriptor()} - model identification.</li>
  *     <li>{@link #query(NCQueryContext)} - the main method that user implements to provide result.</li>
  * </ul>
+ * Models that spend most of the query time waiting for external services can also implement
+ * {@link #queryAsync(NCQueryContext)} method to avoid blocking probe threads.
  * All other methods have reasonable defaults. In most cases, however, method {@link #getElements()}
  * should provide at least one user-defined element.
  * <br><br>
@@ -116,6 +119,21 @@ import java.util.Set;
  * @see NCModelProvider
  */
 public interface NCModel {
+    /**
+     * Default value returned from {@link #getQueryThreads()} method.
+     */
+    int DFLT_QUERY_THREADS = 0;
+
+    /**
+     * Default value returned from {@link #getQueryQueueSize()} method.
+     */
+    int DFLT_QUERY_QUEUE_SIZE = 0;
+
+    /**
+     * Default value returned from {@link #getQueryTimeout()} method.
+     */
+    long DFLT_QUERY_TIMEOUT = 0;
+
     /**
      * Default value returned from {@link #getJiggleFactor()} method.
      */
@@ -798,6 +816,79 @@ public interface NCModel {
         return DFLT_JIGGLE_FACTOR;
     }
 
+    /**
+     * Gets number of threads in the dedicated pool that executes {@link #query(NCQueryContext)} and
+     * {@link #queryAsync(NCQueryContext)} methods of this model. Dedicated pool isolates the model so that
+     * its slow or stuck queries can't take the threads of other models deployed in the same probe.
+     * Zero means that the model uses the pool shared by all models without dedicated pools.
+     * <br><br>
+     * <b>Default</b>
+     * <br>
+     * If not provided by the model the default value {@link #DFLT_QUERY_THREADS} will be used.
+     * <br><br>
+     * <b>JSON</b>
+     * <br>
+     * If using JSON model presentation this is set by <code>queryThreads</code> JSON properties:
+     * <pre class="brush: js">
+     * {
+     *      "queryThreads": 16
+     * }
+     * </pre>
+     *
+     * @return Number of threads in the dedicated query pool or zero to use shared pool.
+     */
+    default int getQueryThreads() {
+        return DFLT_QUERY_THREADS;
+    }
+
+    /**
+     * Gets maximum number of queries waiting for the thread in the dedicated query pool
+     * (see {@link #getQueryThreads()}). Queries above this limit are rejected right away.
+     * Zero means unbounded queue. This value is ignored if the model doesn't use dedicated pool.
+     * <br><br>
+     * <b>Default</b>
+     * <br>
+     * If not provided by the model the default value {@link #DFLT_QUERY_QUEUE_SIZE} will be used.
+     * <br><br>
+     * <b>JSON</b>
+     * <br>
+     * If using JSON model presentation this is set by <code>queryQueueSize</code> JSON properties:
+     * <pre class="brush: js">
+     * {
+     *      "queryQueueSize": 1000
+     * }
+     * </pre>
+     *
+     * @return Maximum number of waiting queries or zero for unbounded queue.
+     */
+    default int getQueryQueueSize() {
+        return DFLT_QUERY_QUEUE_SIZE;
+    }
+
+    /**
+     * Gets query timeout in milliseconds. If the query result is not ready within this time (including
+     * the time query waits for the thread) the user input is rejected and the thread executing the query
+     * is interrupted. Zero means no timeout.
+     * <br><br>
+     * <b>Default</b>
+     * <br>
+     * If not provided by the model the default value {@link #DFLT_QUERY_TIMEOUT} will be used.
+     * <br><br>
+     * <b>JSON</b>
+     * <br>
+     * If using JSON model presentation this is set by <code>queryTimeout</code> JSON properties:
+     * <pre class="brush: js">
+     * {
+     *      "queryTimeout": 30000
+     * }
+     * </pre>
+     *
+     * @return Query timeout in milliseconds or zero for no timeout.
+     */
+    default long getQueryTimeout() {
+        return DFLT_QUERY_TIMEOUT;
+    }
+
     /**
      * Gets minimum number of {@code nlp:date} tokens below which user input will be automatically rejected.
      * <br><br>
@@ -1214,4 +1305,28 @@ public interface NCModel {
      * @see NCIntentSolver
      */
     NCQueryResult query(NCQueryContext ctx) throws NCRejection;
+
+    /**
+     * Asynchronous counterpart of {@link #query(NCQueryContext)} method. If this method returns
+     * non-{@code null} completion stage the probe doesn't call {@link #query(NCQueryContext)} method
+     * and sends the result to the user once returned stage completes. Rejection should be signaled by completing
+     * the stage exceptionally with {@link NCRejection} exception.
+     * <br><br>
+     * This method is called on the probe's thread pool and it should return as soon as possible, i.e. all blocking
+     * I/O calls should be done asynchronously. This way a small number of probe threads can serve many concurrent
+     * I/O-bound queries.
+     * <br><br>
+     * <b>Default</b>
+     * <br>
+     * Default implementation returns {@code null}, i.e. {@link #query(NCQueryContext)} method is used.
+     *
+     * @param ctx Query context containing parsed user input and all associated data.
+     * @return Completion stage for the query result or {@code null} if this model processes queries
+     *      synchronously. The stage cannot be completed with {@code null} result.
+     * @throws NCRejection Thrown when user input cannot be processed as is and should be rejected.
+     * @see #query(NCQueryContext)
+     */
+    default CompletionStage<NCQueryResult> queryAsync(NCQueryContext ctx) throws NCRejection {
+        return null;
+    }
 }
@@ -53,6 +53,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -70,8 +71,9 @@ import java.util.stream.Collectors;
  * </ul>
  * Once you have the builder instance you can set all necessary properties and finally call {@link #build()}
  * method to get properly constructed {@link NCModel} instance. Note that at the minimum the
- * {@link #setDescriptor(NCModelDescriptor) descriptor} and
- * the {@link #setQueryFunction(Function) query function}
+ * {@link #setDescriptor(NCModelDescriptor) descriptor} and either
+ * the {@link #setQueryFunction(Function) query function} or
+ * the {@link #setAsyncQueryFunction(Function) asynchronous query function}
  * must be set.
  */
 public class NCModelBuilder extends NCJsonBuilder {
@@ -178,16 +180,17 @@ public class NCModelBuilder extends NCJsonBuilder {
 
     /**
      * Returns newly built model. Note that at the minimum the
-     * {@link #setDescriptor(NCModelDescriptor) descriptor} and
-     * the {@link #setQueryFunction(Function) query function}
+     * {@link #setDescriptor(NCModelDescriptor) descriptor} and either
+     * the {@link #setQueryFunction(Function) query function} or
+     * the {@link #setAsyncQueryFunction(Function) asynchronous query function}
      * must be set.
      *
      * @return New built model.
      * @throws NCBuilderException Thrown in case of any errors building the model.
      */
     public NCModel build() throws NCBuilderException {
-        if (impl.getQueryFunction() == null)
-            throw new NCBuilderException("Query function is not.");
+        if (impl.getQueryFunction() == null && impl.getAsyncQueryFunction() == null)
+            throw new NCBuilderException("Query function is not set.");
 
         if (impl.getDescriptor() == null)
             throw new NCBuilderException("Model descriptor is not set.");
@@ -293,6 +296,9 @@ public class NCModelBuilder extends NCJsonBuilder {
         impl.setNoNounsAllowed(js.isNoNounsAllowed());
         impl.setNoUserTokensAllowed(js.isNoUserTokensAllowed());
         impl.setJiggleFactor(js.getJiggleFactor());
+        impl.setQueryThreads(js.getQueryThreads());
+        impl.setQueryQueueSize(js.getQueryQueueSize());
+        impl.setQueryTimeout(js.getQueryTimeout());
         impl.setMinDateTokens(js.getMinDateTokens());
         impl.setMaxDateTokens(js.getMaxDateTokens());
         impl.setMinNumTokens(js.getMinNumTokens());
@@ -325,6 +331,9 @@ public class NCModelBuilder extends NCJsonBuilder {
             for (Map.Entry<String, Object> entry : js.getUserMetadata().entrySet())
                 addUserMetadata(entry.getKey(), (Serializable)entry.getValue());
 
+        if (js.getElements() == null)
+            return;
+
         for (NCElementJson e : js.getElements()) {
             NCMetadata elmMeta = new NCMetadataImpl();
 
@@ -502,6 +511,19 @@ public class NCModelBuilder extends NCJsonBuilder {
         return this;
     }
 
+    /**
+     * Sets asynchronous query function. See {@link NCModel#queryAsync(NCQueryContext)} for more information.
+     * If both synchronous and asynchronous query functions are set the probe uses the asynchronous one.
+     *
+     * @param asyncQryFun Asynchronous query function to set.
+     * @return This builder for chaining operations.
+     */
+    public NCModelBuilder setAsyncQueryFunction(Function<NCQueryContext, CompletionStage<NCQueryResult>> asyncQryFun) {
+        impl.setAsyncQueryFunction(asyncQryFun);
+
+        return this;
+    }
+
     /**
      * Sets model's discard function. See {@link NCModel#discard()} for more information.
      * 
@@ -598,6 +620,42 @@ public class NCModelBuilder extends NCJsonBuilder {
         return this;
     }
 
+    /**
+     * Sets {@link NCModel#getQueryThreads()} configuration value.
+     *
+     * @param queryThreads {@link NCModel#getQueryThreads()} configuration value.
+     * @return This builder for chaining operations.
+     */
+    public NCModelBuilder setQueryThreads(int queryThreads) {
+        impl.setQueryThreads(queryThreads);
+
+        return this;
+    }
+
+    /**
+     * Sets {@link NCModel#getQueryQueueSize()} configuration value.
+     *
+     * @param queryQueueSize {@link NCModel#getQueryQueueSize()} configuration value.
+     * @return This builder for chaining operations.
+     */
+    public NCModelBuilder setQueryQueueSize(int queryQueueSize) {
+        impl.setQueryQueueSize(queryQueueSize);
+
+        return this;
+    }
+
+    /**
+     * Sets {@link NCModel#getQueryTimeout()} configuration value.
+     *
+     * @param queryTimeout {@link NCModel#getQueryTimeout()} configuration value.
+     * @return This builder for chaining operations.
+     */
+    public NCModelBuilder setQueryTimeout(long queryTimeout) {
+        impl.setQueryTimeout(queryTimeout);
+
+        return this;
+    }
+
     /**
      * Sets {@link NCModel#getMinDateTokens()} configuration value.
      *
@@ -45,6 +45,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -62,6 +64,7 @@ public class NCModelImpl implements NCModel {
     private final Set<String> addStopWords = new HashSet<>();
 
     private Function<NCQueryContext, NCQueryResult> qryFun;
+    private Function<NCQueryContext, CompletionStage<NCQueryResult>> asyncQryFun;
     private Consumer<NCProbeContext> initFun;
     private Runnable discardFun;
 
@@ -73,6 +76,9 @@ public class NCModelImpl implements NCModel {
     private String vendorName;
 
     private int jiggleFactor = DFLT_JIGGLE_FACTOR;
+    private int queryThreads = DFLT_QUERY_THREADS;
+    private int queryQueueSize = DFLT_QUERY_QUEUE_SIZE;
+    private long queryTimeout = DFLT_QUERY_TIMEOUT;
     private int minDateTokens = DFLT_MIN_DATE_TOKENS;
     private int maxDateTokens = DFLT_MAX_DATE_TOKENS;
     private int minNumTokens = DFLT_MIN_NUM_TOKENS;
@@ -230,7 +236,23 @@ public class NCModelImpl implements NCModel {
 
     @Override
     public NCQueryResult query(NCQueryContext ctx) {
-        return qryFun.apply(ctx);
+        if (qryFun != null)
+            return qryFun.apply(ctx);
+
+        try {
+            return asyncQryFun.apply(ctx).toCompletableFuture().join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletionStage<NCQueryResult> queryAsync(NCQueryContext ctx) {
+        return asyncQryFun != null ? asyncQryFun.apply(ctx) : null;
     }
 
     @Override
@@ -257,6 +279,24 @@ public class NCModelImpl implements NCModel {
         this.qryFun = qryFun;
     }
 
+    /**
+     *
+     * @return
+     */
+    public Function<NCQueryContext, CompletionStage<NCQueryResult>> getAsyncQueryFunction() {
+        return asyncQryFun;
+    }
+
+    /**
+     *
+     * @param asyncQryFun
+     */
+    public void setAsyncQueryFunction(Function<NCQueryContext, CompletionStage<NCQueryResult>> asyncQryFun) {
+        assert asyncQryFun != null;
+
+        this.asyncQryFun = asyncQryFun;
+    }
+
     /**
      *
      * @return
@@ -322,6 +362,33 @@ public class NCModelImpl implements NCModel {
         this.jiggleFactor = jiggleFactor;
     }
 
+    @Override
+    public int getQueryThreads() {
+        return queryThreads;
+    }
+
+    public void setQueryThreads(int queryThreads) {
+        this.queryThreads = queryThreads;
+    }
+
+    @Override
+    public int getQueryQueueSize() {
+        return queryQueueSize;
+    }
+
+    public void setQueryQueueSize(int queryQueueSize) {
+        this.queryQueueSize = queryQueueSize;
+    }
+
+    @Override
+    public long getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(long queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
     @Override
     public int getMinDateTokens() {
         return minDateTokens;
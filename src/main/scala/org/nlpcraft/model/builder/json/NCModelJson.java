@@ -62,6 +62,9 @@ public class NCModelJson {
     private boolean isNoNounsAllowed = DFLT_IS_NO_NOUNS_ALLOWED;
     private boolean isNoUserTokensAllowed = DFLT_IS_NO_USER_TOKENS_ALLOWED;
     private int jiggleFactor = DFLT_JIGGLE_FACTOR;
+    private int queryThreads = DFLT_QUERY_THREADS;
+    private int queryQueueSize = DFLT_QUERY_QUEUE_SIZE;
+    private long queryTimeout = DFLT_QUERY_TIMEOUT;
     private int minDateTokens = DFLT_MIN_DATE_TOKENS;
     private int maxDateTokens = DFLT_MAX_DATE_TOKENS;
     private int minNumTokens = DFLT_MIN_NUM_TOKENS;
@@ -561,6 +564,54 @@ public class NCModelJson {
         this.jiggleFactor = jiggleFactor;
     }
 
+    /**
+     *
+     * @return
+     */
+    public int getQueryThreads() {
+        return queryThreads;
+    }
+
+    /**
+     *
+     * @param queryThreads
+     */
+    public void setQueryThreads(int queryThreads) {
+        this.queryThreads = queryThreads;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getQueryQueueSize() {
+        return queryQueueSize;
+    }
+
+    /**
+     *
+     * @param queryQueueSize
+     */
+    public void setQueryQueueSize(int queryQueueSize) {
+        this.queryQueueSize = queryQueueSize;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     *
+     * @param queryTimeout
+     */
+    public void setQueryTimeout(long queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
     /**
      *
      * @return
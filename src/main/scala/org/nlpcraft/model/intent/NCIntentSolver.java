@@ -43,6 +43,8 @@ import org.nlpcraft.model.NCSentence;
 import org.nlpcraft.model.NCToken;
 import org.nlpcraft.model.NCVariant;
 import org.nlpcraft.model.intent.impl.NCIntentSolverEngine;
+import org.nlpcraft.model.intent.impl.NCIntentSolverIndex;
+import org.nlpcraft.model.intent.impl.NCIntentSolverPredicate;
 import org.nlpcraft.model.intent.impl.NCIntentSolverResult;
 import org.nlpcraft.model.builder.NCModelBuilder;
 import org.slf4j.Logger;
@@ -55,9 +57,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 /**
@@ -147,6 +151,8 @@ import java.util.stream.Collectors;
  *     </li>
  *     <li>
  *         If multiple intents match - the system will pick the one with the most specific match.
+ *         Equally specific matches are tried in the order of their sentence variants and then in the order
+ *         the intents were added.
  *     </li>
  * </ul>
  * Here's an example of using token solver taken from Time Example:
@@ -226,6 +232,27 @@ public class NCIntentSolver {
      */
     public interface IntentCallback extends Function<NCIntentSolverContext, NCQueryResult> {}
 
+    /**
+     * Primitive numbers comparator for compiled rules.
+     */
+    private interface DoubleComparator {
+        boolean test(double d1, double d2);
+    }
+
+    /**
+     * Restores weight accumulator to the given values.
+     *
+     * @param w Weight accumulator.
+     * @param w0 Weight part #0.
+     * @param w1 Weight part #1.
+     * @param w2 Weight part #2.
+     */
+    private static void restore(int[] w, int w0, int w1, int w2) {
+        w[0] = w0;
+        w[1] = w1;
+        w[2] = w2;
+    }
+
     /**
      * Checks that combinator is one of the built-in implementations.
      * 
@@ -254,7 +281,7 @@ public class NCIntentSolver {
      * @see NOR NOR
      * @see RULE RULE
      */
-    public static final class OR extends ArrayList<Predicate> implements Predicate {
+    public static final class OR extends ArrayList<Predicate> implements Predicate, NCIntentSolverPredicate {
         /**
          * Creates new OR-combinator with given items.
          * Note that only built-in {@link OR OR}, {@link AND AND}, {@link NAND NAND},
@@ -290,17 +317,18 @@ public class NCIntentSolver {
 
         @Override
         public Pair<Boolean, int[]> apply(NCToken tok) {
-            for (Predicate tp : this) {
-                Pair<Boolean, int[]> pair = tp.apply(tok);
+            int[] w = {0, 0, 0};
 
-                boolean pass = pair.getLeft();
-                int[] weight = pair.getRight();
+            return test(tok, w) ? Pair.of(true, w) : EMPTY_PAIR;
+        }
 
-                if (pass)
-                    return Pair.of(true, weight);
-            }
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            for (Predicate tp : this)
+                if (NCIntentSolverPredicate.test(tp, tok, w))
+                    return true;
 
-            return EMPTY_PAIR;
+            return false;
         }
 
         @Override
@@ -321,7 +349,7 @@ public class NCIntentSolver {
      * @see NOR NOR
      * @see RULE RULE
      */
-    public static final class XOR extends ArrayList<Predicate> implements Predicate {
+    public static final class XOR extends ArrayList<Predicate> implements Predicate, NCIntentSolverPredicate {
         /**
          * Creates new XOR-combinator with given items.
          * Note that only built-in {@link OR OR}, {@link AND AND}, {@link NAND NAND},
@@ -357,22 +385,28 @@ public class NCIntentSolver {
 
         @Override
         public Pair<Boolean, int[]> apply(NCToken tok) {
-            Pair<Boolean, int[]> xorPair = null;
+            int[] w = {0, 0, 0};
+
+            return test(tok, w) ? Pair.of(true, w) : EMPTY_PAIR;
+        }
 
-            for (Predicate tp : this) {
-                Pair<Boolean, int[]> pair = tp.apply(tok);
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            int w0 = w[0], w1 = w[1], w2 = w[2];
+            boolean found = false;
 
-                boolean pass = pair.getLeft();
+            for (Predicate tp : this)
+                if (NCIntentSolverPredicate.test(tp, tok, w)) {
+                    if (!found)
+                        found = true;
+                    else {
+                        restore(w, w0, w1, w2);
 
-                if (pass) {
-                    if (xorPair == null)
-                        xorPair = pair;
-                    else
-                        return EMPTY_PAIR;
+                        return false;
+                    }
                 }
-            }
 
-            return xorPair == null ? EMPTY_PAIR : xorPair;
+            return found;
         }
 
         @Override
@@ -393,7 +427,7 @@ public class NCIntentSolver {
      * @see NOR NOR
      * @see RULE RULE
      */
-    public static final class NAND extends ArrayList<Predicate> implements Predicate {
+    public static final class NAND extends ArrayList<Predicate> implements Predicate, NCIntentSolverPredicate {
         /**
          * Creates new NAND-combinator with given items.
          * Note that only built-in {@link OR OR}, {@link AND AND}, {@link NAND NAND},
@@ -431,23 +465,22 @@ public class NCIntentSolver {
         public Pair<Boolean, int[]> apply(NCToken tok) {
             int[] w = {0, 0, 0};
 
-            boolean foundFalse = false;
-
-            for (Predicate tp : this) {
-                Pair<Boolean, int[]> pair = tp.apply(tok);
+            return test(tok, w) ? Pair.of(true, w) : EMPTY_PAIR;
+        }
 
-                boolean pass = pair.getLeft();
-                int[] weight = pair.getRight();
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            int w0 = w[0], w1 = w[1], w2 = w[2];
+            boolean foundFalse = false;
 
-                if (!pass)
+            for (Predicate tp : this)
+                if (!NCIntentSolverPredicate.test(tp, tok, w))
                     foundFalse = true;
 
-                w[0] += weight[0];
-                w[1] += weight[1];
-                w[2] += weight[2];
-            }
+            if (!foundFalse)
+                restore(w, w0, w1, w2);
 
-            return foundFalse ? Pair.of(true, w) : EMPTY_PAIR;
+            return foundFalse;
         }
 
         @Override
@@ -468,7 +501,7 @@ public class NCIntentSolver {
      * @see NOR NOR
      * @see RULE RULE
      */
-    public static final class XNOR extends ArrayList<Predicate> implements Predicate {
+    public static final class XNOR extends ArrayList<Predicate> implements Predicate, NCIntentSolverPredicate {
         /**
          * Creates new XNOR-combinator with given items.
          * Note that only built-in {@link OR OR}, {@link AND AND}, {@link NAND NAND},
@@ -504,26 +537,28 @@ public class NCIntentSolver {
 
         @Override
         public Pair<Boolean, int[]> apply(NCToken tok) {
-            boolean first = get(0).apply(tok).getLeft();
-
             int[] w = {0, 0, 0};
 
-            for (Predicate tp : this) {
-                Pair<Boolean, int[]> pair = tp.apply(tok);
+            return test(tok, w) ? Pair.of(true, w) : EMPTY_PAIR;
+        }
+
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            int w0 = w[0], w1 = w[1], w2 = w[2];
 
-                boolean pass = pair.getLeft();
-                int[] weight = pair.getRight();
+            boolean first = NCIntentSolverPredicate.test(get(0), tok, w);
 
-                if (pass != first)
-                    return EMPTY_PAIR;
-                else {
-                    w[0] += weight[0];
-                    w[1] += weight[1];
-                    w[2] += weight[2];
+            // Weight of the first predicate is added in the loop below.
+            restore(w, w0, w1, w2);
+
+            for (Predicate tp : this)
+                if (NCIntentSolverPredicate.test(tp, tok, w) != first) {
+                    restore(w, w0, w1, w2);
+
+                    return false;
                 }
-            }
 
-            return Pair.of(true, w);
+            return true;
         }
 
         @Override
@@ -544,7 +579,7 @@ public class NCIntentSolver {
      * @see NOR NOR
      * @see RULE RULE
      */
-    public static final class NOR extends ArrayList<Predicate> implements Predicate {
+    public static final class NOR extends ArrayList<Predicate> implements Predicate, NCIntentSolverPredicate {
         /**
          * Creates new NOR-combinator with given items.
          * Note that only built-in {@link OR OR}, {@link AND AND}, {@link NAND NAND},
@@ -582,22 +617,21 @@ public class NCIntentSolver {
         public Pair<Boolean, int[]> apply(NCToken tok) {
             int[] w = {0, 0, 0};
 
-            for (Predicate tp : this) {
-                Pair<Boolean, int[]> pair = tp.apply(tok);
+            return test(tok, w) ? Pair.of(true, w) : EMPTY_PAIR;
+        }
+
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            int w0 = w[0], w1 = w[1], w2 = w[2];
 
-                boolean pass = pair.getLeft();
-                int[] weight = pair.getRight();
+            for (Predicate tp : this)
+                if (NCIntentSolverPredicate.test(tp, tok, w)) {
+                    restore(w, w0, w1, w2);
 
-                if (pass)
-                    return EMPTY_PAIR;
-                else {
-                    w[0] += weight[0];
-                    w[1] += weight[1];
-                    w[2] += weight[2];
+                    return false;
                 }
-            }
 
-            return Pair.of(true, w);
+            return true;
         }
 
         @Override
@@ -618,7 +652,7 @@ public class NCIntentSolver {
      * @see NOR NOR
      * @see RULE RULE
      */
-    public static final class AND extends ArrayList<Predicate> implements Predicate {
+    public static final class AND extends ArrayList<Predicate> implements Predicate, NCIntentSolverPredicate {
         /**
          * Creates new AND-combinator with given items.
          * Note that only built-in {@link OR OR}, {@link AND AND}, {@link NAND NAND},
@@ -656,22 +690,21 @@ public class NCIntentSolver {
         public Pair<Boolean, int[]> apply(NCToken tok) {
             int[] w = {0, 0, 0};
 
-            for (Predicate tp : this) {
-                Pair<Boolean, int[]> pair = tp.apply(tok);
+            return test(tok, w) ? Pair.of(true, w) : EMPTY_PAIR;
+        }
+
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            int w0 = w[0], w1 = w[1], w2 = w[2];
 
-                boolean pass = pair.getLeft();
-                int[] weight = pair.getRight();
+            for (Predicate tp : this)
+                if (!NCIntentSolverPredicate.test(tp, tok, w)) {
+                    restore(w, w0, w1, w2);
 
-                if (!pass)
-                    return EMPTY_PAIR;
-                else {
-                    w[0] += weight[0];
-                    w[1] += weight[1];
-                    w[2] += weight[2];
+                    return false;
                 }
-            }
 
-            return Pair.of(true, w);
+            return true;
         }
 
         @Override
@@ -690,7 +723,7 @@ public class NCIntentSolver {
      * @see XNOR XNOR
      * @see NOR NOR
      */
-    public static final class RULE implements Predicate {
+    public static final class RULE implements Predicate, NCIntentSolverPredicate {
         private static final List<String> OPS = Arrays.asList(
             // Order is important!
             "==",
@@ -715,6 +748,10 @@ public class NCIntentSolver {
         private Object value;
         private int[] weight;
 
+        // Compiled rule: pre-resolved parameter accessor and operation test.
+        private Function<NCToken, Object> getter;
+        private java.util.function.Predicate<Object> test;
+
         /**
          * Creates new binary operator with given parameters. Here's few examples of the rules:
          * <pre class="brush: java">
@@ -893,6 +930,151 @@ public class NCIntentSolver {
             this.value = value;
 
             weight = calcWeight();
+            getter = mkGetter();
+            test = mkTest();
+        }
+
+        /**
+         * @return Parameter accessor.
+         */
+        private Function<NCToken, Object> mkGetter() {
+            if (param.charAt(0) == '~') {
+                String name = param.substring(1);
+
+                if (name.isEmpty())
+                    return tok -> { throw new NCException("Empty meta parameter name."); };
+
+                return tok -> {
+                    NCMetadata tokMeta = tok.getMetadata();
+
+                    Object v = tokMeta.get(name);
+
+                    // Token metadata has priority even for 'null' values.
+                    return v != null || tokMeta.containsKey(name) ? v : tok.getElementMetadata().get(name);
+                };
+            }
+            else
+                switch (param) {
+                    case "id": return tok -> tok.getId().trim();
+                    case "group": return tok -> tok.getGroup().trim();
+                    case "value": return tok -> tok.getValue().trim();
+                    case "parent": return tok -> tok.getParentId().trim();
+
+                    // Parameter is accepted but can't be evaluated ('type' one).
+                    default: return tok -> { throw new NCException("Unexpected parameter: " + param); };
+                }
+        }
+
+        /**
+         * @return Operation test for the left-side value.
+         */
+        private java.util.function.Predicate<Object> mkTest() {
+            Object v2 = value;
+
+            switch (op) {
+                case "==": return v1 -> Objects.equals(v1, v2);
+                case "!=": return v1 -> !Objects.equals(v1, v2);
+
+                case "%%":
+                case "!%": {
+                    boolean neg = op.equals("!%");
+
+                    if (v2 == null)
+                        return v1 -> neg;
+
+                    java.util.function.Predicate<String> m;
+
+                    if (v2 instanceof String) {
+                        Pattern ptrn;
+
+                        try {
+                            ptrn = Pattern.compile((String)v2);
+                        }
+                        catch (PatternSyntaxException e) {
+                            throw new IllegalArgumentException("Invalid rule's regular expression: " + v2, e);
+                        }
+
+                        m = s -> ptrn.matcher(s).matches();
+                    }
+                    else if (v2 instanceof Pattern)
+                        m = s -> ((Pattern)v2).matcher(s).find();
+                    else
+                        m = null;
+
+                    return v1 -> {
+                        if (!(v1 instanceof String))
+                            return neg;
+                        else if (m == null)
+                            throw mkOperatorError(v1, v2);
+                        else
+                            return m.test((String)v1) != neg;
+                    };
+                }
+
+                case ">": return mkCompare(false, (d1, d2) -> d1 > d2, ZonedDateTime::isBefore);
+                case ">=": return mkCompare(true, (d1, d2) -> d1 >= d2, (z1, z2) -> z1.equals(z2) || z1.isBefore(z2));
+                case "<": return mkCompare(false, (d1, d2) -> d1 < d2, ZonedDateTime::isAfter);
+                case "<=": return mkCompare(true, (d1, d2) -> d1 <= d2, (z1, z2) -> z1.equals(z2) || z1.isAfter(z2));
+
+                default:
+                    throw new AssertionError("Unexpected operation: " + op);
+            }
+        }
+
+        /**
+         * Makes typed comparison test for the right-side value.
+         *
+         * @param same Result for the same left-side and right-side values.
+         * @param numCmp Numbers comparator.
+         * @param dateCmp Dates comparator.
+         * @return Comparison test for the left-side value.
+         */
+        private java.util.function.Predicate<Object> mkCompare(
+            boolean same,
+            DoubleComparator numCmp,
+            java.util.function.BiPredicate<ZonedDateTime, ZonedDateTime> dateCmp
+        ) {
+            Object v2 = value;
+
+            if (v2 == null)
+                return v1 -> v1 == null && same;
+            else if (v2 instanceof Number) {
+                double d2 = ((Number)v2).doubleValue();
+
+                return v1 -> {
+                    if (v1 == v2)
+                        return same;
+                    else if (v1 == null)
+                        return false;
+                    else if (v1 instanceof Number)
+                        return numCmp.test(((Number)v1).doubleValue(), d2);
+                    else
+                        throw mkOperatorError(v1, v2);
+                };
+            }
+            else if (v2 instanceof ZonedDateTime) {
+                ZonedDateTime z2 = (ZonedDateTime)v2;
+
+                return v1 -> {
+                    if (v1 == v2)
+                        return same;
+                    else if (v1 == null)
+                        return false;
+                    else if (v1 instanceof ZonedDateTime)
+                        return dateCmp.test((ZonedDateTime)v1, z2);
+                    else
+                        throw mkOperatorError(v1, v2);
+                };
+            }
+            else
+                return v1 -> {
+                    if (v1 == v2)
+                        return same;
+                    else if (v1 == null)
+                        return false;
+                    else
+                        throw mkOperatorError(v1, v2);
+                };
         }
 
         /**
@@ -914,7 +1096,7 @@ public class NCIntentSolver {
                     if (param.charAt(0) == '~')
                         w[0] = 3;
                     else
-                        throw new AssertionError("Unexpected parameter: " + param);
+                        throw new NCException("Unexpected parameter: " + param);
             }
 
             switch (op) {
@@ -982,117 +1164,20 @@ public class NCIntentSolver {
 
         @Override
         public Pair<Boolean, int[]> apply(NCToken tok) {
-            return apply0(tok) ? Pair.of(true, weight) : EMPTY_PAIR;
+            return test.test(getter.apply(tok)) ? Pair.of(true, weight) : EMPTY_PAIR;
         }
 
-        private boolean apply0(NCToken tok) {
-            Object v1 = null;
-
-            if (param.charAt(0) == '~') {
-                String name = param.substring(1);
-
-                if (name.isEmpty())
-                    throw new NCException("Empty meta parameter name.");
-
-                NCMetadata tokMeta = tok.getMetadata();
-                NCMetadata elmMeta = tok.getElementMetadata();
-
-                if (tokMeta.containsKey(name))
-                    v1 = tokMeta.get(name);
-                else if (elmMeta.containsKey(name))
-                    v1 = elmMeta.get(name);
-            }
-            else
-                switch (param) {
-                    case "id": v1 = tok.getId().trim(); break;
-                    case "group": v1 = tok.getGroup().trim(); break;
-                    case "value":  v1 = tok.getValue().trim(); break;
-                    case "parent": v1 = tok.getParentId().trim(); break;
+        @Override
+        public boolean test(NCToken tok, int[] w) {
+            if (test.test(getter.apply(tok))) {
+                w[0] += weight[0];
+                w[1] += weight[1];
+                w[2] += weight[2];
 
-                    default: throw new NCException("Unexpected parameter: " + param);
+                return true;
             }
 
-            Object v2 = value;
-
-            switch (op) {
-                case "==": return Objects.equals(v1, v2);
-
-                case "!=": return !(Objects.equals(v1, v2));
-
-                case "!%":
-                    if (v2 == null || !(v1 instanceof String))
-                        return true;
-                    else if (v2 instanceof String)
-                        return !Pattern.matches((String)v2, (String)v1);
-                    else if (v2 instanceof Pattern)
-                        return !((Pattern)v2).matcher((String)v1).find();
-                    else
-                        throw mkOperatorError(v1, v2);
-
-                case "%%":
-                    if (v2 == null || !(v1 instanceof String))
-                        return false;
-                    else if (v2 instanceof String)
-                        return Pattern.matches((String)v2, (String)v1);
-                    else if (v2 instanceof Pattern)
-                        return ((Pattern)v2).matcher((String)v1).find();
-                    else
-                        throw mkOperatorError(v1, v2);
-
-                case ">":
-                    if (v1 == v2 || v1 == null || v2 == null)
-                        return false;
-                    else if (v1 instanceof Number && v2 instanceof Number)
-                        return ((Number)v1).doubleValue() > ((Number)v2).doubleValue();
-                    else if (v1 instanceof ZonedDateTime && v2 instanceof ZonedDateTime)
-                        return ((ZonedDateTime)v1).isBefore((ZonedDateTime)v2);
-                    else
-                        throw mkOperatorError(v1, v2);
-
-                case ">=":
-                    if (v1 == v2)
-                        return true;
-                    else if (v1 == null || v2 == null)
-                        return false;
-                    else if (v1 instanceof Number && v2 instanceof Number)
-                        return ((Number)v1).doubleValue() >= ((Number)v2).doubleValue();
-                    else if (v1 instanceof ZonedDateTime && v2 instanceof ZonedDateTime) {
-                        ZonedDateTime z1 = (ZonedDateTime)v1;
-                        ZonedDateTime z2 = (ZonedDateTime)v2;
-
-                        return z1.equals(z2) || z1.isBefore(z2);
-                    }
-                    else
-                        throw mkOperatorError(v1, v2);
-                case "<":
-                    if (v1 == v2 || v1 == null || v2 == null)
-                        return false;
-                    else if (v1 instanceof Number && v2 instanceof Number)
-                        return ((Number)v1).doubleValue() < ((Number)v2).doubleValue();
-                    else if (v1 instanceof ZonedDateTime && v2 instanceof ZonedDateTime)
-                        return ((ZonedDateTime)v1).isAfter((ZonedDateTime)v2);
-                    else
-                        throw mkOperatorError(v1, v2);
-
-                case "<=":
-                    if (v1 == v2)
-                        return true;
-                    else if (v1 == null || v2 == null)
-                        return false;
-                    else if (v1 instanceof Number && v2 instanceof Number)
-                        return ((Number)v1).doubleValue() <= ((Number)v2).doubleValue();
-                    else if (v1 instanceof ZonedDateTime && v2 instanceof ZonedDateTime) {
-                        ZonedDateTime z1 = (ZonedDateTime)v1;
-                        ZonedDateTime z2 = (ZonedDateTime)v2;
-
-                        return z1.equals(z2) || z1.isAfter(z2);
-                    }
-                    else
-                        throw mkOperatorError(v1, v2);
-
-                default:
-                    throw new AssertionError("Unexpected operation: " + op);
-            }
+            return false;
         }
 
         @Override
@@ -1250,7 +1335,7 @@ public class NCIntentSolver {
          *      is not included than only the tokens present in the user input will be considered. 
          * @param ordered Whether or not the specified order of {@link TERM TERMs} is important for matching
          *      this intent. If intent is unordered its {@link TERM TERMs} can be found anywhere in the string
-         *      and in any order.
+         *      and in any order. Optional {@link TERM TERMs} matched without tokens don't affect the order.
          * @param terms List of {@link TERM TERMs} defining this intent.
          */
         public INTENT(String id, boolean inclConv, boolean ordered, TERM... terms) {
@@ -1429,6 +1514,15 @@ public class NCIntentSolver {
     // Added intents.
     private final List<Pair<INTENT, IntentCallback>> intents = new ArrayList<>();
 
+    // Intents pre-filtering index.
+    private final NCIntentSolverIndex index = new NCIntentSolverIndex();
+
+    // Parallel solving flag.
+    private volatile boolean parallel = false;
+
+    // Top match only solving flag.
+    private volatile boolean topMatchOnly = false;
+
     /**
      * Creates new default token solver. Default solver has default {@code null} name, no multi-match and
      * default not-found function that throws {@link NCRejection} exception. This is equivalent to:
@@ -1462,6 +1556,62 @@ public class NCIntentSolver {
         this.notFound = notFound;
     }
 
+    /**
+     * Sets parallel solving mode. In parallel mode all (sentence variant, intent) pairs are matched
+     * concurrently in the fork-join pool and the results are merged in the same deterministic order as in
+     * sequential mode. It can significantly reduce latency for models with many intents and parsing variants.
+     * Note that custom (non built-in) token predicates should be thread-safe in this mode.
+     * By default, solver works in sequential mode.
+     *
+     * @param parallel Whether or not to use parallel solving mode.
+     * @return Returns this solver for call chaining.
+     */
+    public NCIntentSolver setParallel(boolean parallel) {
+        this.parallel = parallel;
+
+        return this;
+    }
+
+    /**
+     * Gets parallel solving mode flag.
+     *
+     * @return Whether or not this solver uses parallel solving mode.
+     * @see #setParallel(boolean)
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets top match only solving mode. In this mode the solver computes only the best matching intent
+     * instead of building and sorting all matches: sentence variants are processed from the best to the worst
+     * one and solving stops as soon as an exact match is found. Intents that can't beat already found match
+     * (based on the maximum number of tokens their terms can match) are skipped without matching.
+     * <br><br>
+     * Note that in this mode there are no other matches to fall back to: if the callback of the best matching
+     * intent throws {@link NCIntentSkip} exception the {@link #solve(NCQueryContext) solve} method returns
+     * the "not found" result. Callbacks can check {@link NCIntentSolverContext#isTopMatchOnly()} to detect it.
+     * Parallel mode is ignored when this mode is on. By default, solver computes all matches.
+     *
+     * @param topMatchOnly Whether or not to compute only the best matching intent.
+     * @return Returns this solver for call chaining.
+     */
+    public NCIntentSolver setTopMatchOnly(boolean topMatchOnly) {
+        this.topMatchOnly = topMatchOnly;
+
+        return this;
+    }
+
+    /**
+     * Gets top match only solving mode flag.
+     *
+     * @return Whether or not this solver computes only the best matching intent.
+     * @see #setTopMatchOnly(boolean)
+     */
+    public boolean isTopMatchOnly() {
+        return topMatchOnly;
+    }
+
     /**
      * Adds given intent, its ID and its callback function to this solver.
      *
@@ -1479,6 +1629,7 @@ public class NCIntentSolver {
             throw new IllegalArgumentException("Intent with given ID has already been added.");
 
         intents.add(Pair.of(intent, fun));
+        index.add(intent);
 
         NCIntentSolverEngine.ackNewIntent(DFLT_NAME, intent);
 
@@ -1536,9 +1687,13 @@ public class NCIntentSolver {
 
         List<NCIntentSolverResult> results;
         NCSentence sen = ctx.getSentence();
+        Set<NCToken> conv = ctx.getConversationContext().getTokens();
+        boolean top = topMatchOnly;
 
         try {
-            results = NCIntentSolverEngine.solve(sen, ctx.getConversationContext().getTokens(), intents);
+            results = top ?
+                NCIntentSolverEngine.solveTop(sen, conv, intents, index) :
+                NCIntentSolverEngine.solve(sen, conv, intents, index, parallel);
         }
         catch (Exception e) {
             // It should be shown to the model developer.
@@ -1561,6 +1716,7 @@ public class NCIntentSolver {
                         @Override public NCVariant getVariant() { return res.variant(); }
                         @Override public boolean isExactMatch() { return res.isExactMatch(); }
                         @Override public String getIntentId() { return res.intentId(); }
+                        @Override public boolean isTopMatchOnly() { return top; }
                     });
     
                 // Don't override if user already set it.
@@ -94,4 +94,17 @@ public interface NCIntentSolverContext extends Serializable {
      * @return {@code True} if the intent match was exact, {@code false} otherwise.
      */
     boolean isExactMatch();
+
+    /**
+     * Indicates whether or not only the best matching intent was computed by the solver.
+     * In this case there are no other matches to try if this callback throws {@link NCIntentSkip} exception.
+     *
+     * Default implementation returns {@code false}.
+     *
+     * @return {@code True} if only the best matching intent was computed, {@code false} otherwise.
+     * @see NCIntentSolver#setTopMatchOnly(boolean)
+     */
+    default boolean isTopMatchOnly() {
+        return false;
+    }
 }
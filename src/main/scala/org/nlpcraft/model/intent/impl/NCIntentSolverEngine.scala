@@ -31,7 +31,7 @@
 
 package org.nlpcraft.model.intent.impl
 
-import java.util.{ArrayList ⇒ JArrayList, List ⇒ JList, Set ⇒ JSet}
+import java.util.{ArrayList ⇒ JArrayList, BitSet ⇒ JBitSet, List ⇒ JList, Set ⇒ JSet}
 
 import com.typesafe.scalalogging.LazyLogging
 import org.apache.commons.lang3.tuple.Pair
@@ -49,184 +49,298 @@ import scala.collection.mutable
   * Intent solver that finds the best matching intent given user sentence.
   */
 object NCIntentSolverEngine extends NCDebug with LazyLogging {
-    private class Weight extends Ordered[Weight] {
-        private val weights: Array[Int] = new Array(5)
-    
-        /**
-          *
-          * @param w0
-          * @param w1
-          * @param w2
-          * @param w3
-          * @param w4
-          */
-        def this(w0: Int, w1: Int, w2: Int, w3: Int, w4: Int) = {
-            this()
-
-            weights(0) = w0
-            weights(1) = w1
-            weights(2) = w2
-            weights(3) = w3
-            weights(4) = w4
-        }
-    
-        /**
-          * Sets specific weight at a given index.
-          *
-          * @param idx
-          * @param w
-          */
-        def setWeight(idx: Int, w: Int): Unit =
-            weights(idx) = w
-    
-        /**
-          *
-          * @param that
-          * @return
-          */
-        def ++=(that: Weight): Weight = {
-            val newW = new Weight()
-    
-            for (i ← 0 until 5)
-                newW.setWeight(i, this.weights(i) + that.weights(i))
-            
-            newW
-        }
-    
-        /**
-          *
-          * @param that
-          * @return
-          */
-        override def compare(that: Weight): Int = {
-            var res = 0
+    /**
+      * Per-thread reusable buffers of the matching core. Tokens are addressed by their indexes:
+      * sentence tokens first, followed by conversation tokens.
+      */
+    private class Scratch {
+        // Used tokens flags.
+        val used = new JBitSet()
+        
+        // Indexes of the tokens matched by all terms, in matching order.
+        var toks: Array[Int] = new Array(64)
+        
+        // End offsets (exclusive) in 'toks' for each matched term.
+        var termEnds: Array[Int] = new Array(16)
+        
+        // Predicates weight accumulator, reset for each intent match.
+        // NOTE: compiled predicates require it, but items weights don't affect the intents order (see 'IntentMatch').
+        val weight: Array[Int] = new Array(3)
+        
+        def ensureToks(size: Int): Unit =
+            if (toks.length < size)
+                toks = java.util.Arrays.copyOf(toks, Math.max(size, toks.length * 2))
+        
+        def ensureTerms(size: Int): Unit =
+            if (termEnds.length < size)
+                termEnds = java.util.Arrays.copyOf(termEnds, Math.max(size, termEnds.length * 2))
+    }
     
-            for ((i1, i2) ← this.weights.zip(that.weights) if res == 0)
-                res = Integer.compare(i1, i2)
+    private final val NO_TOKS = Array.empty[NCToken]
     
-            res
-        }
+    private val scratch = new ThreadLocal[Scratch] {
+        override def initialValue(): Scratch = new Scratch
     }
     
     /**
-      * 
-      * @param used
-      * @param tok
+      * Matched token.
+      *
+      * @param tok Token.
+      * @param conv Whether or not token came from conversation.
       */
-    private case class UseToken(
-        var used: Boolean,
-        var conv: Boolean,
-        tok: NCToken
+    private case class MatchToken(
+        tok: NCToken,
+        conv: Boolean
     )
     
     /**
-      *
-      * @param toks
-      * @param weight
-      */
-    private case class TermMatch(
-        toks: List[UseToken],
-        weight: Weight
-    ) {
-        lazy val minIndex: Int = getTokenIndex(toks.map(_.tok).minBy(getTokenIndex))
-        lazy val maxIndex: Int = getTokenIndex(toks.map(_.tok).maxBy(getTokenIndex))
-    }
-
-    /**
+      * Intent match. Intents are ordered by their exact match flag only: terms and items weights
+      * have never been accumulated into the intent weight.
       *
       * @param tokGrps
-      * @param weight
       * @param intent
       * @param exactMatch
       */
     private case class IntentMatch(
-        tokGrps: List[List[UseToken]],
-        weight: Weight,
+        tokGrps: List[List[MatchToken]],
         intent: INTENT,
         exactMatch: Boolean
     )
     
+    /**
+      *
+      * @param intentMatch Match.
+      * @param callback Callback function.
+      * @param variant Variant used for the match.
+      * @param variantIdx Variant index.
+      */
+    private case class MatchHolder(
+        intentMatch: IntentMatch,
+        callback: IntentCallback,
+        variant: NCVariant,
+        variantIdx: Int
+    )
+    
+    /**
+      * Matches order: exact matches first, then matches with minimum variant.
+      * Ties are broken by the variant index, remaining ones keep their original order (sort is stable).
+      */
+    private object MatchOrdering extends Ordering[MatchHolder] {
+        override def compare(m1: MatchHolder, m2: MatchHolder): Int =
+            if (m1.intentMatch.exactMatch != m2.intentMatch.exactMatch)
+                if (m1.intentMatch.exactMatch) -1 else 1
+            else {
+                val res = m1.variant.compareTo(m2.variant)
+                
+                if (res != 0) res else Integer.compare(m1.variantIdx, m2.variantIdx)
+            }
+    }
+    
+    /**
+      * Intent to be solved against the sentence variant.
+      *
+      * @param pair Intent and its callback.
+      * @param vrn Variant.
+      * @param vrnIdx Variant index.
+      * @param availToks Variant tokens available for matching (without stopwords).
+      * @param userCnt Number of user defined tokens among available ones.
+      * @param nonFreeCnt Number of non-free word tokens among available ones.
+      */
+    private case class Candidate(
+        pair: Pair[INTENT, IntentCallback],
+        vrn: NCVariant,
+        vrnIdx: Int,
+        availToks: Array[NCToken],
+        userCnt: Int,
+        nonFreeCnt: Int
+    )
+    
     /**
       * Main entry point for intent engine.
       * 
       * @param sen Sentence to solve against.
       * @param conv Conversation STM.
       * @param intents Set of intents to match for.
+      * @param index Intents pre-filtering index.
+      * @param parallel Whether or not (variant, intent) pairs should be solved in parallel.
       * @return
       */
     @throws[NCE]
     def solve(
         sen: NCSentence,
         conv: JSet[NCToken],
-        intents: JList[Pair[INTENT, IntentCallback]]): JList[NCIntentSolverResult] = {
-        case class MatchHolder(
-            intentMatch: IntentMatch, // Match.
-            callback: IntentCallback, // Callback function.
-            variant: NCVariant, // Variant used for the match.
-            variantIdx: Int // Variant index.
-        )
+        intents: JList[Pair[INTENT, IntentCallback]],
+        index: NCIntentSolverIndex,
+        parallel: Boolean): JList[NCIntentSolverResult] = {
+        val convToks = mkConversationTokens(conv)
+        val candidates = mkCandidates(sen, conv, intents, index)
         
-        val matches = mutable.ArrayBuffer.empty[MatchHolder]
+        // Parallel collections keep the order of the candidates, so matches are
+        // merged in the same order as for the sequential processing.
+        val matches =
+            if (parallel && candidates.size > 1)
+                candidates.par.flatMap(solveCandidate(_, convToks)).seq
+            else
+                candidates.flatMap(solveCandidate(_, convToks))
+
+        val sorted = matches.sorted(MatchOrdering)
 
-        // Find all matches across all intents and sentence variants.
+        trace(sorted)
+
+        sorted.map(mkResult)
+    }
+    
+    /**
+      * Finds only the best matching intent, i.e. the first result of the full 'solve' method up to the order
+      * of equally ranked matches (these are resolved in variants and intents registration order).
+      *
+      * Variants are processed from the best to the worst one and solving stops as soon as an exact match
+      * is found, since no other match can beat it. Once a non-exact match is found, the remaining
+      * candidates are solved only if they can still produce an exact match. The upper bound for that is
+      * the intent's tokens capacity (sum of its items maximums): an exact match has to use all
+      * non-free word tokens, and any match has to use all user defined tokens.
+      *
+      * @param sen Sentence to solve against.
+      * @param conv Conversation STM.
+      * @param intents Set of intents to match for.
+      * @param index Intents pre-filtering index.
+      * @return Either empty or single element list.
+      */
+    @throws[NCE]
+    def solveTop(
+        sen: NCSentence,
+        conv: JSet[NCToken],
+        intents: JList[Pair[INTENT, IntentCallback]],
+        index: NCIntentSolverIndex): JList[NCIntentSolverResult] = {
+        val convToks = mkConversationTokens(conv)
+        val vrns = sen.getVariants.toIndexedSeq
+        
+        // Variants ranks: the best variant first, equal variants keep their order (stable sort).
+        val ranks = new Array[Int](vrns.size)
+        
+        vrns.indices.sortWith((i1, i2) ⇒ vrns(i1).compareTo(vrns(i2)) < 0).zipWithIndex.foreach {
+            case (vrnIdx, rank) ⇒ ranks(vrnIdx) = rank
+        }
+        
+        val candidates = mkCandidates(sen, conv, intents, index).sortBy(c ⇒ ranks(c.vrnIdx))
+        val caps = mutable.HashMap.empty[INTENT, Long]
+        
+        var best: Option[MatchHolder] = None
+        var i = 0
+        
+        while (i < candidates.size && !best.exists(_.intentMatch.exactMatch)) {
+            val c = candidates(i)
+            val cap = caps.getOrElseUpdate(c.pair.getLeft, capacity(c.pair.getLeft))
+            
+            if (c.userCnt <= cap && (best.isEmpty || c.nonFreeCnt <= cap))
+                solveCandidate(c, convToks) match {
+                    case Some(m) if best.isEmpty || m.intentMatch.exactMatch ⇒ best = Some(m)
+                    case _ ⇒ // No-op.
+                }
+            
+            i += 1
+        }
+        
+        trace(best.toSeq)
+        
+        best.toSeq.map(mkResult)
+    }
+    
+    /**
+      * Gets conversation tokens.
+      * NOTE: conversation tokens are iterated in the order of the hash set of (used, conv, token)
+      * entries. It defines which tokens are picked when more tokens than item's maximum are found.
+      *
+      * @param conv Conversation STM.
+      */
+    private def mkConversationTokens(conv: JSet[NCToken]): Array[NCToken] =
+        (Set.empty[(Boolean, Boolean, NCToken)] ++ conv.map(t ⇒ (false, true, t))).toArray.map(_._3)
+    
+    /**
+      * Gets candidate intents for all sentence variants, in variants and intents registration order.
+      * Intents which mandatory items can't be satisfied are skipped before terms matching.
+      *
+      * @param sen Sentence.
+      * @param conv Conversation STM.
+      * @param intents Intents.
+      * @param index Intents pre-filtering index.
+      */
+    private def mkCandidates(
+        sen: NCSentence,
+        conv: JSet[NCToken],
+        intents: JList[Pair[INTENT, IntentCallback]],
+        index: NCIntentSolverIndex): mutable.ArrayBuffer[Candidate] = {
+        val candidates = mutable.ArrayBuffer.empty[Candidate]
+        val convPresent = index.mkPresent(conv)
+        
         for ((vrn, vrnIdx) ← sen.getVariants.zipWithIndex) {
-            val availToks = vrn.getTokens.filter(!isStopWord(_))
+            val availToks = vrn.getTokens.filter(!isStopWord(_)).toArray
+            val userCnt = availToks.count(_.isUserDefined)
+            val nonFreeCnt = availToks.count(!isFreeWord(_))
             
-            matches.appendAll(
-                intents.flatMap(pair ⇒ {
-                    val intent = pair.getLeft
-                    val callback = pair.getRight
-                    
-                    // Isolated sentence tokens.
-                    val senToks = Seq.empty[UseToken] ++ availToks.map(UseToken(false, false, _))
-                    // Isolated conversation tokens.
-                    val convToks =
-                        if (intent.isIncludeConversation)
-                            Set.empty[UseToken] ++ conv.map(UseToken(false, true, _))
-                        else
-                            Set.empty[UseToken]
+            // Keys of the tokens available for non-conversational and conversational intents.
+            val senPresent = index.mkPresent(availToks)
+            val allPresent = senPresent.clone().asInstanceOf[JBitSet]
+            
+            allPresent.or(convPresent)
+            
+            for (pair ← intents) {
+                val intent = pair.getLeft
+                
+                if (index.isCandidate(intent, if (intent.isIncludeConversation) allPresent else senPresent))
+                    candidates += Candidate(pair, vrn, vrnIdx, availToks, userCnt, nonFreeCnt)
+            }
+        }
+        
+        candidates
+    }
     
-                    // Solve intent in isolation.
-                    solveIntent(intent, senToks, convToks, vrnIdx) match {
-                        case Some(intentMatch) ⇒ Some(MatchHolder(intentMatch, callback, vrn, vrnIdx + 1))
-                        case None ⇒ None
-                    }
-                })
-            )
+    /**
+      * Gets maximum number of tokens which can be matched by given intent.
+      *
+      * @param intent Intent.
+      */
+    private def capacity(intent: INTENT): Long = {
+        var cap = 0L
+        
+        for (term ← intent.getTerms; item ← term.getItems)
+            cap += item.getMax
+        
+        cap
+    }
+    
+    /**
+      * Solves candidate intent in isolation.
+      *
+      * @param c Candidate.
+      * @param convToks Conversation tokens.
+      */
+    private def solveCandidate(c: Candidate, convToks: Array[NCToken]): Option[MatchHolder] = {
+        val intent = c.pair.getLeft
+        val toks = if (intent.isIncludeConversation) convToks else NO_TOKS
+        
+        // Scratch buffers are taken for the current thread.
+        solveIntent(intent, c.availToks, toks, c.vrnIdx, scratch.get()) match {
+            case Some(intentMatch) ⇒ Some(MatchHolder(intentMatch, c.pair.getRight, c.vrn, c.vrnIdx + 1))
+            case None ⇒ None
         }
-
-        val sorted =
-            matches.sortWith((m1: MatchHolder, m2: MatchHolder) ⇒
-                // 1. First with maximum weight.
-                m1.intentMatch.weight.compare(m2.intentMatch.weight) match {
-                    case x1 if x1 < 0 ⇒ false
-                    case x1 if x1 > 0 ⇒ true
-                    case x1 ⇒
-                        require(x1 == 0)
-
-                        // 2. First with minimum variant.
-                        m1.variant.compareTo(m2.variant) match {
-                            case x2 if x2 < 0 ⇒ true
-                            case x2 if x2 > 0 ⇒ false
-                            // Default, no matter, any value.
-                            case x2 ⇒
-                                require(x2 == 0)
-
-                                true
-                        }
-                }
-            )
-
+    }
+    
+    /**
+      *
+      * @param sorted Sorted matches.
+      */
+    private def trace(sorted: Seq[MatchHolder]): Unit =
         if (!IS_PROBE_SILENT) {
             if (sorted.nonEmpty) {
-                val tbl = NCAsciiTable("Variant", "Intent", "Tokens", "Order (Weight / Variant)")
+                val tbl = NCAsciiTable("Variant", "Intent", "Tokens", "Order (Exact / Variant)")
 
                 sorted.foreach(m ⇒
                     tbl += (
                         s"#${m.variantIdx}",
                         m.intentMatch.intent.getId,
                         mkPickTokens(m.intentMatch),
-                        Seq(m.intentMatch.weight, m.variant)
+                        Seq(m.intentMatch.exactMatch, m.variant)
                     )
                 )
 
@@ -235,17 +349,19 @@ object NCIntentSolverEngine extends NCDebug with LazyLogging {
             else
                 logger.trace("No matching intent found.")
         }
-
-        sorted.map(m ⇒
-            NCIntentSolverResult(
-                m.intentMatch.intent.getId,
-                m.callback,
-                new JArrayList(m.intentMatch.tokGrps.map(lst ⇒ new JArrayList(lst.map(_.tok)))),
-                m.intentMatch.exactMatch,
-                m.variant
-            )
+    
+    /**
+      *
+      * @param m Match.
+      */
+    private def mkResult(m: MatchHolder): NCIntentSolverResult =
+        NCIntentSolverResult(
+            m.intentMatch.intent.getId,
+            m.callback,
+            new JArrayList(m.intentMatch.tokGrps.map(lst ⇒ new JArrayList(lst.map(_.tok)))),
+            m.intentMatch.exactMatch,
+            m.variant
         )
-    }
     
     /**
       *
@@ -283,47 +399,164 @@ object NCIntentSolverEngine extends NCDebug with LazyLogging {
     }
     
     /**
+      * Gets maximum token index of the term tokens.
       *
-      * @param intent
-      * @param senToks
-      * @param convToks
+      * @param s Scratch buffers.
+      * @param senToks Sentence tokens.
+      * @param convToks Conversation tokens.
+      * @param from Term tokens start offset.
+      * @param to Term tokens end offset (exclusive).
+      * @return Maximum token index or `-1` if term has no tokens.
+      */
+    private def termMaxIndex(s: Scratch, senToks: Array[NCToken], convToks: Array[NCToken], from: Int, to: Int): Int = {
+        var max = -1
+        var i = from
+        
+        while (i < to) {
+            max = Math.max(max, getTokenIndex(getToken(senToks, convToks, s.toks(i))))
+            
+            i += 1
+        }
+        
+        max
+    }
+    
+    /**
+      * Checks whether there are unused sentence tokens which are either user defined
+      * or (if 'userDefined' is false) not free words.
+      *
+      * @param s Scratch buffers.
+      * @param senToks Sentence tokens.
+      * @param userDefined Flag.
+      */
+    private def existsUnused(s: Scratch, senToks: Array[NCToken], userDefined: Boolean): Boolean = {
+        var found = false
+        var i = 0
+        
+        while (!found && i < senToks.length) {
+            val tok = senToks(i)
+            
+            if (!s.used.get(i) && (if (userDefined) tok.isUserDefined else !isFreeWord(tok)))
+                found = true
+            
+            i += 1
+        }
+        
+        found
+    }
+    
+    /**
+      * Gets token by its index.
+      *
+      * @param senToks Sentence tokens.
+      * @param convToks Conversation tokens.
+      * @param idx Token index: sentence tokens first, followed by conversation tokens.
+      */
+    private def getToken(senToks: Array[NCToken], convToks: Array[NCToken], idx: Int): NCToken =
+        if (idx < senToks.length) senToks(idx) else convToks(idx - senToks.length)
+    
+    /**
+      * Solves intent. Algorithm is "hungry", i.e. each item fetches all tokens satisfying item's predicate
+      * in entire sentence even if these tokens are separated by other already used tokens and conversation
+      * is used only to get to the 'max' number of the item.
+      *
+      * @param intent Intent.
+      * @param senToks Sentence tokens.
+      * @param convToks Conversation tokens.
+      * @param varIdx Variant index.
+      * @param s Scratch buffers.
       * @return
       */
+    @throws[NCE]
     private def solveIntent(
         intent: INTENT,
-        senToks: Seq[UseToken],
-        convToks: Set[UseToken],
-        varIdx: Int): Option[IntentMatch] = {
-        val intentW = new Weight()
-        val intentGrps = mutable.ListBuffer.empty[List[UseToken]]
+        senToks: Array[NCToken],
+        convToks: Array[NCToken],
+        varIdx: Int,
+        s: Scratch): Option[IntentMatch] = {
+        val senCnt = senToks.length
+        val allCnt = senCnt + convToks.length
+        val terms = intent.getTerms
+        val ordered = intent.isOrdered
+        
+        s.used.clear()
+        java.util.Arrays.fill(s.weight, 0)
+        s.ensureTerms(terms.length)
+        
+        var toksLen = 0
+        var termsLen = 0
         var abort = false
         
-        val ordered = intent.isOrdered
-        var lastTermMatch: TermMatch = null
+        var ti = 0
         
-        for (term ← intent.getTerms if !abort) {
-            solveTerm(
-                term,
-                senToks,
-                convToks
-            ) match {
-                case Some(termMatch) ⇒
-                    if (ordered && lastTermMatch != null && lastTermMatch.maxIndex > termMatch.maxIndex)
-                        abort = true
-                    else {
-                        // Term is found.
-                        // Add its weight and grab its tokens.
-                        intentW ++= termMatch.weight
-                        intentGrps += termMatch.toks
+        while (!abort && ti < terms.length) {
+            val termStart = toksLen
+            val items = terms(ti).getItems
+            
+            var ii = 0
+            
+            while (!abort && ii < items.length) {
+                val item = items(ii)
+                val pred = item.getPattern
+                val max = item.getMax
+                
+                s.ensureToks(toksLen + max)
+                
+                var cnt = 0
+                var i = 0
+                
+                // Collect to the 'max', if possible (sentence tokens first).
+                while (i < allCnt && cnt < max) {
+                    if (!s.used.get(i) && test(pred, getToken(senToks, convToks, i), s.weight)) {
+                        s.toks(toksLen + cnt) = i
                         
-                        lastTermMatch = termMatch
+                        cnt += 1
                     }
                     
-                case None ⇒
-                    // Term is missing. Stop further terms processing for this intent.
-                    // This intent cannot be matched.
+                    i += 1
+                }
+                
+                if (cnt < item.getMin)
+                    // We couldn't collect even 'min' tokens: term is missing and this intent cannot be matched.
                     abort = true
+                else {
+                    // Mark tokens as used.
+                    var k = toksLen
+                    
+                    toksLen += cnt
+                    
+                    while (k < toksLen) {
+                        s.used.set(s.toks(k))
+                        
+                        k += 1
+                    }
+                }
+                
+                ii += 1
+            }
+            
+            if (!abort) {
+                if (
+                    ordered &&
+                    termsLen > 0 && {
+                        val lastStart = if (termsLen == 1) 0 else s.termEnds(termsLen - 2)
+                        val lastMax = termMaxIndex(s, senToks, convToks, lastStart, termStart)
+                        val curMax = termMaxIndex(s, senToks, convToks, termStart, toksLen)
+                        
+                        // Terms without tokens (optional ones) don't constrain the order.
+                        lastMax != -1 && curMax != -1 && lastMax > curMax
+                    }
+                )
+                    abort = true
+                else {
+                    // Term is found.
+                    s.termEnds(termsLen) = toksLen
+                    
+                    termsLen += 1
+                }
             }
+            
+            ti += 1
         }
         
         if (abort) {
@@ -333,14 +566,14 @@ object NCIntentSolverEngine extends NCDebug with LazyLogging {
             // 1. Match was aborted.
             None
         }
-        else if (senToks.exists(tok ⇒ !tok.used && tok.tok.isUserDefined)) {
+        else if (existsUnused(s, senToks, userDefined = true)) {
             if (!IS_PROBE_SILENT)
                 logger.trace(s"Intent didn't match because of not exact match (variant #$varIdx): $intent")
 
             // 2. Not an exact match with user tokens.
             None
         }
-        else if (!senToks.exists(tok ⇒ tok.used && !tok.conv)) {
+        else if (s.used.nextSetBit(0) match { case -1 ⇒ true; case i ⇒ i >= senCnt }) {
             if (!IS_PROBE_SILENT)
                 logger.trace(s"Intent didn't match because all tokens came from conversation (variant #$varIdx): $intent")
 
@@ -348,14 +581,22 @@ object NCIntentSolverEngine extends NCDebug with LazyLogging {
             None
         }
         else {
-            val exactMatch = !senToks.exists(tok ⇒ !tok.used && !isFreeWord(tok.tok))
+            val exactMatch = !existsUnused(s, senToks, userDefined = false)
             
-            intentW.setWeight(0, if (exactMatch) 1 else 0)
+            val grps =
+                (0 until termsLen).map(t ⇒ {
+                    val from = if (t == 0) 0 else s.termEnds(t - 1)
+                    
+                    (from until s.termEnds(t)).map(k ⇒ {
+                        val idx = s.toks(k)
+                        
+                        MatchToken(getToken(senToks, convToks, idx), idx >= senCnt)
+                    }).toList
+                }).toList
 
             Some(
                 IntentMatch(
-                    tokGrps = intentGrps.toList,
-                    weight = intentW,
+                    tokGrps = grps,
                     intent = intent,
                     exactMatch = exactMatch
                 )
@@ -364,104 +605,30 @@ object NCIntentSolverEngine extends NCDebug with LazyLogging {
     }
     
     /**
-      * 
-      * @param term
-      * @param convToks
-      * @param senToks
-      * @return
-      */
-    @throws[NCE]
-    private def solveTerm(
-        term: TERM,
-        senToks: Seq[UseToken],
-        convToks: Set[UseToken]): Option[TermMatch] = {
-        var termToks = List.empty[UseToken]
-        var termWeight = new Weight()
-        var abort = false
-
-        for (item ← term.getItems if !abort)
-            solveItem(item, senToks, convToks) match {
-                case Some(t) ⇒
-                    termToks = termToks ::: t._1
-                    termWeight ++= t._2
-                    
-                case None ⇒
-                    abort = true
-            }
-        
-        if (abort)
-            None
-        else
-            Some(TermMatch(termToks, termWeight))
-    }
-    
-    /**
+      * Tests given token with either compiled or generic predicate. If token satisfies the predicate
+      * its weight is added to the given weight accumulator.
       *
-      * @param item
-      * @param senToks
-      * @param convToks
-      * @return
+      * @param pred Predicate.
+      * @param tok Token to test.
+      * @param w 3-part weight accumulator.
       */
-    @throws[NCE]
-    private def solveItem(
-        item: ITEM,
-        senToks: Seq[UseToken],
-        convToks: Set[UseToken]): Option[(List[UseToken], Weight)] = {
-        // Algorithm is "hungry", i.e. it will fetch all tokens satisfying item's predicate
-        // in entire sentence even if these tokens are separated by other already used tokens
-        // and conversation will be used only to get to the 'max' number of the item.
-    
-        var itemToks = List.empty[UseToken]
-        val min = item.getMin
-        val max = item.getMax
-        val itemW = Array(0, 0, 0) // Total 3-part items weight.
-    
-        /**
-          *
-          * @param from Collection to collect tokens from.
-          * @param maxLen Maximum number of tokens to collect.
-          */
-        def collect(from: Iterable[UseToken], maxLen: Int): Boolean = {
-            var found = false
-            
-            for (tok ← from.filter(!_.used) if itemToks.lengthCompare(maxLen) < 0)
-                item.getPattern.apply(tok.tok) match {
-                    case p if p.getLeft ⇒ // Item satisfying given token found.
-                        itemToks :+= tok
-                        
-                        val w = p.getRight // Item's weight for this token.
-    
-                        itemW(0) += w(0)
-                        itemW(1) += w(1)
-                        itemW(2) += w(2)
-                        
-                        found = true
-                        
-                    case _ ⇒
+    private def test(pred: Predicate, tok: NCToken, w: Array[Int]): Boolean =
+        pred match {
+            case p: NCIntentSolverPredicate ⇒ p.test(tok, w)
+            case p ⇒
+                val pair = p.apply(tok)
+                val pass: Boolean = pair.getLeft
+                
+                if (pass) {
+                    val weight = pair.getRight
+                    
+                    w(0) += weight(0)
+                    w(1) += weight(1)
+                    w(2) += weight(2)
                 }
-            
-            found
-        }
-    
-        // Collect to the 'max', if possible.
-        collect(senToks, max)
-        
-        // Specificity weight ('0' if conversation was used, '1' if not).
-        val specW = if (collect(convToks, max)) 0 else 1
-        
-        if (itemToks.lengthCompare(min) < 0) // We couldn't collect even 'min' tokens.
-            None
-        else if (itemToks.isEmpty) { // Item is optional and no tokens collected (valid result).
-            require(min == 0)
-            
-            Some(itemToks → new Weight())
-        }
-        else { // We've collected some tokens.
-            itemToks.foreach(_.used = true) // Mark tokens as used.
-    
-            Some(itemToks → new Weight(0/* set later */, specW, itemW(0), itemW(1), itemW(2)))
+                
+                pass
         }
-    }
     
     /**
       * Special method to use Scala side logging from Java call.
@@ -0,0 +1,152 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.model.intent.impl
+
+import java.util.{BitSet ⇒ JBitSet}
+
+import org.nlpcraft.model.NCToken
+import org.nlpcraft.model.intent.NCIntentSolver._
+
+import scala.collection.JavaConversions._
+
+/**
+  * Intents pre-filtering index. Each intent is analyzed when it is added to the solver to extract
+  * token IDs and groups required by its mandatory items. Intent can be matched only if each of its
+  * mandatory items can be satisfied by at least one available token, so intents which required IDs or
+  * groups are absent in the variant are rejected before any term matching.
+  */
+class NCIntentSolverIndex {
+    // Token keys (IDs and groups) interned into bit indexes.
+    @volatile private var keys = Map.empty[String, Int]
+    
+    // Intent ID → required keys for each mandatory item (at least one of the keys must be present).
+    @volatile private var reqs = Map.empty[String, Seq[JBitSet]]
+    
+    private def mkIdKey(id: String): String = s"id:$id"
+    private def mkGroupKey(grp: String): String = s"group:$grp"
+    
+    /**
+      * Gets keys which satisfying token must have at least one of, or `None` if predicate doesn't
+      * restrict token's ID or group.
+      *
+      * @param pred Predicate.
+      */
+    private def analyze(pred: Predicate): Option[Set[String]] = {
+        def union(preds: Seq[Predicate]): Option[Set[String]] = {
+            val all = preds.map(analyze)
+            
+            if (all.forall(_.isDefined)) Some(all.flatten.flatten.toSet) else None
+        }
+        
+        pred match {
+            case r: RULE if r.getOp == "==" ⇒
+                (r.getParameter, r.getValue) match {
+                    case ("id", v: String) ⇒ Some(Set(mkIdKey(v)))
+                    case ("group", v: String) ⇒ Some(Set(mkGroupKey(v)))
+                    case _ ⇒ None
+                }
+            
+            // Token should satisfy all predicates, the most selective one is used.
+            case p: AND ⇒
+                val all = p.map(analyze).flatten
+                
+                if (all.isEmpty) None else Some(all.minBy(_.size))
+            
+            // Token should satisfy at least one of predicates.
+            case p: OR ⇒ union(p)
+            case p: XOR ⇒ union(p)
+            
+            // NAND, NOR and XNOR can be satisfied by the tokens which don't satisfy any predicates.
+            case _ ⇒ None
+        }
+    }
+    
+    /**
+      * Adds intent to the index.
+      *
+      * @param intent Intent to add.
+      */
+    def add(intent: INTENT): Unit = synchronized {
+        val itemReqs =
+            intent.getTerms.flatMap(_.getItems).filter(_.getMin > 0).flatMap(item ⇒ analyze(item.getPattern))
+        
+        for (key ← itemReqs.flatten if !keys.contains(key))
+            keys += key → keys.size
+        
+        reqs += intent.getId → itemReqs.map(set ⇒ {
+            val bs = new JBitSet()
+            
+            set.foreach(key ⇒ bs.set(keys(key)))
+            
+            bs
+        }).toSeq
+    }
+    
+    /**
+      * Makes bit set of the indexed keys present in given tokens.
+      *
+      * @param toks Tokens.
+      */
+    def mkPresent(toks: Iterable[NCToken]): JBitSet = {
+        val keys = this.keys
+        val bs = new JBitSet()
+        
+        def set(key: String): Unit =
+            keys.get(key) match {
+                case Some(idx) ⇒ bs.set(idx)
+                case None ⇒ // No-op.
+            }
+        
+        for (tok ← toks) {
+            if (tok.getId != null)
+                set(mkIdKey(tok.getId.trim))
+            
+            if (tok.getGroup != null)
+                set(mkGroupKey(tok.getGroup.trim))
+        }
+        
+        bs
+    }
+    
+    /**
+      * Checks whether given intent can be matched with the tokens having given keys.
+      *
+      * @param intent Intent.
+      * @param present Bit set of the keys present in the available tokens.
+      */
+    def isCandidate(intent: INTENT, present: JBitSet): Boolean =
+        reqs.get(intent.getId) match {
+            case Some(itemReqs) ⇒ itemReqs.forall(_.intersects(present))
+            // Not indexed intents are always processed.
+            case None ⇒ true
+        }
+}
@@ -0,0 +1,81 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+
+package org.nlpcraft.model.intent.impl;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.nlpcraft.model.NCToken;
+
+import java.util.function.Function;
+
+/**
+ * Compiled token predicate. Implemented by built-in intent solver predicates to evaluate
+ * predicates trees without boxing of intermediate results. Used internally only.
+ */
+public interface NCIntentSolverPredicate {
+    /**
+     * Tests given token. If token satisfies this predicate its weight is added to the given
+     * weight accumulator, otherwise the accumulator is left unchanged.
+     *
+     * @param tok Token to test.
+     * @param w 3-part weight accumulator.
+     * @return Whether or not token satisfies this predicate.
+     */
+    boolean test(NCToken tok, int[] w);
+
+    /**
+     * Tests given token with either compiled or generic predicate.
+     *
+     * @param pred Predicate.
+     * @param tok Token to test.
+     * @param w 3-part weight accumulator.
+     * @return Whether or not token satisfies given predicate.
+     */
+    static boolean test(Function<NCToken, Pair<Boolean, int[]>> pred, NCToken tok, int[] w) {
+        if (pred instanceof NCIntentSolverPredicate)
+            return ((NCIntentSolverPredicate)pred).test(tok, w);
+
+        Pair<Boolean, int[]> pair = pred.apply(tok);
+
+        boolean pass = pair.getLeft();
+
+        if (pass) {
+            int[] weight = pair.getRight();
+
+            w[0] += weight[0];
+            w[1] += weight[1];
+            w[2] += weight[2];
+        }
+
+        return pass;
+    }
+}
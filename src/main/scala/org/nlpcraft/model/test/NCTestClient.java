@@ -38,6 +38,10 @@ import java.io.IOException;
  * with any popular unit testing framework such as <a href="http://www.testng.org">TestNG</a> or
  * <a href="https://junit.org">JUnit</a>. The instance of test client should be obtained
  * via {@link NCTestClientBuilder}.
+ * <p>
+ * Once opened, the client is thread-safe and {@link #ask(String)} can be called concurrently, e.g.
+ * for load testing. Note that default HTTP client allows only two concurrent connections to the server,
+ * use {@link NCTestClientBuilder#setHttpClientSupplier(java.util.function.Supplier)} to change that.
  *
  * @see NCTestClientBuilder
  */
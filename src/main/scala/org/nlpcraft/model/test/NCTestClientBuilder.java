@@ -68,7 +68,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -348,8 +352,13 @@ public class NCTestClientBuilder {
 
         private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
         private final JsonParser jp = new JsonParser();
-        private final Object mux = new Object();
-        private final ConcurrentHashMap<String, NCRequestStateJson> res = new ConcurrentHashMap<>();
+        // Results are keyed by server request ID and can arrive before 'ask' REST call returns.
+        private final ConcurrentHashMap<String, CompletableFuture<NCRequestStateJson>> res =
+            new ConcurrentHashMap<>();
+        // Server request IDs which are not waited for anymore (completed, timed out or interrupted) with
+        // the time they were finished. They are kept for max wait time to ignore late results.
+        private final ConcurrentHashMap<String, Long> finished = new ConcurrentHashMap<>();
+        private volatile long lastPrune = 0;
         
         private String baseUrl = DFLT_BASEURL;
         private String email = DFLT_EMAIL;
@@ -445,44 +454,99 @@ public class NCTestClientBuilder {
                 );
             }
 
-            long maxTime = System.currentTimeMillis() + MAX_WAIT_TIME;
+            NCRequestStateJson js = waitResult(srvReqId);
 
-            while (true) {
-                NCRequestStateJson js = this.res.remove(srvReqId);
+            assert js.status.equals("QRY_READY");
 
-                if (js != null) {
-                    assert js.status.equals("QRY_READY");
-    
-                    NCTestResult res =
-                        mkResult(
-                            txt,
-                            dsId,
-                            mdlId,
-                            js.getResultType(),
-                            js.getResultBody(),
-                            js.getError(),
-                            js.getUpdateTstamp() - js.getCreateTstamp()
-                        );
+            NCTestResult res =
+                mkResult(
+                    txt,
+                    dsId,
+                    mdlId,
+                    js.getResultType(),
+                    js.getResultBody(),
+                    js.getError(),
+                    js.getUpdateTstamp() - js.getCreateTstamp()
+                );
+
+            if (log.isInfoEnabled()) {
+                if (res.isSuccessful())
+                    log.info(
+                        "Question `{}` answered successfully with '{}' result:\n{}",
+                        txt,
+                        res.getResultType().get(),
+                        mkPrettyString(res.getResultType().get(), res.getResult().get())
+                    );
+                else
+                    log.info(
+                        "Question `{}` answered unsuccessfully with result:\n{}",
+                        txt,
+                        res.getResultError().get()
+                    );
+            }
 
-                    if (res.isSuccessful())
-                        log.info(
-                            "Question `{}` answered successfully with '{}' result:\n{}",
-                            txt,
-                            res.getResultType().get(),
-                            mkPrettyString(res.getResultType().get(), res.getResult().get())
-                        );
-                    else
-                        log.info(
-                            "Question `{}` answered unsuccessfully with result:\n{}",
-                            txt,
-                            res.getResultError().get()
-                        );
+            return res;
+        }
+    
+        /**
+         *
+         * @param srvReqId Server request ID.
+         * @return Request result.
+         * @throws NCTestClientException Thrown if result wasn't received in time or wait was interrupted.
+         */
+        private NCRequestStateJson waitResult(String srvReqId) throws NCTestClientException {
+            try {
+                return resultOf(srvReqId).get(MAX_WAIT_TIME, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                throw new NCTestClientException("Max wait time elapsed.");
+            }
+            catch (InterruptedException e) {
+                throw new NCTestClientException("Result wait thread interrupted.", e);
+            }
+            catch (ExecutionException e) {
+                throw new NCTestClientException("Result wait failed.", e.getCause());
+            }
+            finally {
+                long now = System.currentTimeMillis();
+                
+                // Late (or repeated) results of this request shouldn't recreate its future.
+                finished.put(srvReqId, now);
+                res.remove(srvReqId);
+    
+                // Pruned at most once per second.
+                if (now - lastPrune >= 1000) {
+                    lastPrune = now;
                     
-                    return res;
+                    finished.values().removeIf(t -> t < now - MAX_WAIT_TIME);
                 }
-
-                waitUntil(maxTime);
-            } 
+            }
+        }
+    
+        /**
+         *
+         * @param srvReqId Server request ID.
+         * @return Future of request result.
+         */
+        private CompletableFuture<NCRequestStateJson> resultOf(String srvReqId) {
+            return res.computeIfAbsent(srvReqId, id -> new CompletableFuture<>());
+        }
+    
+        /**
+         * Completes the future of given request result unless this request is not waited for anymore.
+         *
+         * @param state Request result.
+         */
+        private void onResult(NCRequestStateJson state) {
+            // Checked within the mapping function so that it can't race with the removal in 'waitResult'.
+            CompletableFuture<NCRequestStateJson> fut =
+                res.computeIfAbsent(
+                    state.getServerRequestId(),
+                    id -> finished.containsKey(id) ? null : new CompletableFuture<>()
+                );
+            
+            if (fut != null)
+                fut.complete(state);
         }
     
         /**
@@ -600,11 +664,7 @@ public class NCTestClientBuilder {
                         gson.fromJson(new String(arr, StandardCharsets.UTF_8), TYPE_STATES);
 
                     for (NCRequestStateJson p : list)
-                        res.put(p.getServerRequestId(), p);
-
-                    synchronized (mux) {
-                        mux.notifyAll();
-                    }
+                        onResult(p);
 
                     String resp = "OK";
 
@@ -644,6 +704,7 @@ public class NCTestClientBuilder {
             if (srv != null) srv.stop(0);
             
             res.clear();
+            finished.clear();
             
             if (isTestDs) restDeleteTestDs();
 
@@ -668,27 +729,6 @@ public class NCTestClientBuilder {
             
             restClearConversation();
         }
-
-        /**
-         * 
-         * @param wakeupTime
-         * @throws NCTestClientException
-         */
-        private void waitUntil(long wakeupTime) throws NCTestClientException {
-            long sleepTime = wakeupTime - System.currentTimeMillis();
-        
-            if (sleepTime <= 0)
-                throw new NCTestClientException("Max wait time elapsed.");
-        
-            synchronized (mux) {
-                try {
-                    mux.wait(sleepTime);
-                }
-                catch (InterruptedException e) {
-                    throw new NCTestClientException("Result wait thread interrupted.", e);
-                }
-            }
-        }
     
         @SuppressWarnings("unchecked")
         private <T> T getField(Map<String, Object> m, String fn) throws NCTestClientException {
@@ -0,0 +1,388 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.model.test.load
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+import java.util.concurrent.{Executors, TimeUnit}
+
+import com.typesafe.scalalogging.LazyLogging
+import org.apache.http.impl.client.HttpClients
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.logging.log4j.Level
+import org.apache.logging.log4j.core.config.Configurator
+import org.nlpcraft.common._
+import org.nlpcraft.common.ascii.NCAsciiTable
+import org.nlpcraft.common.metrics.NCHistogram
+import org.nlpcraft.model.NCModelProvider
+import org.nlpcraft.model.test.{NCTestClient, NCTestClientBuilder}
+
+import scala.collection.JavaConverters._
+import scala.util.control.Exception.catching
+
+/**
+  * Load generator for running server and probe. It drives given number of concurrent virtual users
+  * through a single shared test client (server allows only one result endpoint per user):
+  * <ul>
+  *     <li>
+  *         Closed loop (default): each user sends next question after the previous one is answered
+  *         and think time has passed. Note that latencies are subject to coordinated omission here
+  *         (slow responses delay next questions instead of being waited for) - use open loop to
+  *         measure latency under the given load.
+  *     </li>
+  *     <li>
+  *         Open loop (`-rate` is set): questions are scheduled at the target rate regardless of
+  *         responses and latency is measured from the scheduled, not the actual, send time. Users
+  *         only limit the number of questions in flight.
+  *     </li>
+  * </ul>
+  * Questions are taken in turn from the utterances files and/or examples of the models created by
+  * the given model provider. Only results received after the warm-up are recorded.
+  * <p>
+  * Parameters (all in `-name=value` format):
+  * <ul>
+  *     <li>`-mdlId` or `-dsId` - model ID (temporary data source is created) or data source ID to test.</li>
+  *     <li>`-files` - comma separated utterances files, one per line, '#' for comments.</li>
+  *     <li>`-provider` - class name of the model provider whose models' examples are used.</li>
+  *     <li>`-users` - number of virtual users, 10 by default.</li>
+  *     <li>`-rate` - target rate in questions per second for open loop.</li>
+  *     <li>`-think` - think time in ms for closed loop, 0 by default.</li>
+  *     <li>`-warmup` - warm-up in seconds, 10 by default.</li>
+  *     <li>`-duration` - measurement duration in seconds, 60 by default.</li>
+  *     <li>`-report` - progress report period in seconds, 10 by default.</li>
+  *     <li>`-baseUrl`, `-email`, `-passwd`, `-endpoint` - test client settings, see `NCTestClientBuilder`.</li>
+  * </ul>
+  * For example, to load test the local server with the bundled echo model (started with
+  * `examples/echo/probe.conf`):
+  * {{{
+  * java -cp nlpcraft-all-dependencies.jar org.nlpcraft.model.test.load.NCLoadTest \
+  *     -provider=org.nlpcraft.examples.echo.EchoModel -users=50 -rate=100 -duration=120
+  * }}}
+  */
+object NCLoadTest extends App with LazyLogging {
+    private final val PARAMS = Set(
+        "mdlId", "dsId", "files", "provider", "users", "rate", "think", "warmup", "duration", "report",
+        "baseUrl", "email", "passwd", "endpoint"
+    )
+    
+    /**
+      *
+      * @param msg Error message.
+      */
+    private def error(msg: String): Nothing = {
+        System.err.println(s"ERROR: $msg")
+        
+        System.exit(1)
+        
+        throw new AssertionError()
+    }
+    
+    private val params: Map[String, String] =
+        args.map(arg ⇒ {
+            val idx = arg.indexOf('=')
+            
+            if (!arg.startsWith("-") || idx == -1)
+                error(s"Invalid parameter (must be in '-name=value' format): $arg")
+            
+            val name = arg.substring(1, idx)
+            
+            if (!PARAMS.contains(name))
+                error(s"Unknown parameter: $arg")
+            
+            name → arg.substring(idx + 1).trim
+        }).toMap
+    
+    /**
+      *
+      * @param name Parameter name.
+      * @param dflt Default value.
+      */
+    private def num(name: String, dflt: Long): Long =
+        params.get(name) match {
+            case Some(s) ⇒
+                catching(classOf[NumberFormatException]).opt(s.toLong) match {
+                    case Some(v) if v >= 0 ⇒ v
+                    case _ ⇒ error(s"Parameter must be a non-negative number: -$name=$s")
+                }
+            case None ⇒ dflt
+        }
+    
+    private val users = num("users", 10).toInt
+    private val rate = num("rate", 0)
+    private val thinkNs = TimeUnit.MILLISECONDS.toNanos(num("think", 0))
+    private val warmupNs = TimeUnit.SECONDS.toNanos(num("warmup", 10))
+    private val durationNs = TimeUnit.SECONDS.toNanos(num("duration", 60))
+    private val reportSecs = num("report", 10)
+    
+    if (users == 0 || durationNs == 0 || reportSecs == 0)
+        error("Users number, duration and report period must be positive.")
+    
+    private val provider: Option[NCModelProvider] =
+        params.get("provider").map(cls ⇒
+            try
+                Class.forName(cls).newInstance().asInstanceOf[NCModelProvider]
+            catch {
+                case e: Exception ⇒ error(s"Failed to create model provider [class=$cls, error=${e.getMessage}]")
+            }
+        )
+    
+    private val dsId = params.get("dsId").map(_ ⇒ num("dsId", 0))
+    private val mdlId =
+        params.get("mdlId").orElse(
+            if (dsId.isEmpty)
+                provider.flatMap(_.getDescriptors.asScala.headOption.map(_.getId))
+            else
+                None
+        )
+    
+    if (dsId.isDefined == mdlId.isDefined)
+        error("Either '-dsId' or '-mdlId' (or '-provider') must be set.")
+    
+    private val questions: IndexedSeq[String] = {
+        val fromFiles =
+            params.get("files").toSeq.flatMap(_.split(",")).map(_.trim).filter(_.nonEmpty).flatMap(path ⇒
+                try
+                    U.readPath(path, "UTF-8").map(_.trim).filter(p ⇒ p.nonEmpty && !p.startsWith("#")).toList
+                catch {
+                    case e: NCE ⇒ error(e.getMessage)
+                }
+            )
+        
+        val fromExamples =
+            provider.toSeq.flatMap(p ⇒
+                p.getDescriptors.asScala.
+                    filter(d ⇒ mdlId.isEmpty || mdlId.get == d.getId).
+                    flatMap(d ⇒ p.makeModel(d.getId).getExamples.asScala.toSeq.sorted)
+            )
+        
+        (fromFiles ++ fromExamples).toIndexedSeq
+    }
+    
+    if (questions.isEmpty)
+        error("No questions found, use '-files' and/or '-provider' to set them.")
+    
+    // Per-question results are logged by the test client with INFO level.
+    Configurator.setLevel(classOf[NCTestClientBuilder].getName, Level.WARN)
+    
+    private val conns = new PoolingHttpClientConnectionManager()
+    
+    conns.setMaxTotal(users + 2)
+    conns.setDefaultMaxPerRoute(users + 2)
+    
+    private val cli: NCTestClient = {
+        val b = new NCTestClientBuilder().newBuilder()
+        
+        params.get("baseUrl").foreach(b.setBaseUrl)
+        params.get("endpoint").foreach(b.setEndpoint)
+        
+        if (params.contains("email") || params.contains("passwd"))
+            b.setUser(
+                params.getOrElse("email", NCTestClientBuilder.DFLT_EMAIL),
+                params.getOrElse("passwd", NCTestClientBuilder.DFLT_PASSWORD)
+            )
+        
+        b.setHttpClientSupplier(() ⇒ HttpClients.custom().setConnectionManager(conns).build())
+        
+        b.build()
+    }
+    
+    // Latency as seen by users: from the scheduled send time for open loop (same as service time for closed one).
+    private val latency = new NCHistogram("latency", "Latency.", Seq.empty, NCHistogram.LATENCY)
+    // Service time: from the actual send time.
+    private val service = new NCHistogram("service", "Service time.", Seq.empty, NCHistogram.LATENCY)
+    
+    private val ok = new AtomicLong()
+    private val failed = new AtomicLong()
+    private val errors = new AtomicLong()
+    
+    private val seq = new AtomicLong()
+    
+    /**
+      *
+      * @param until Time to park until (`System.nanoTime()` based).
+      */
+    private def parkUntil(until: Long): Unit = {
+        var left = until - System.nanoTime()
+        
+        while (left > 0 && !Thread.currentThread().isInterrupted) {
+            LockSupport.parkNanos(left)
+            
+            left = until - System.nanoTime()
+        }
+    }
+    
+    /**
+      * Sends question and records results.
+      *
+      * @param startNs Start time latency is measured from.
+      * @param measure Whether results should be recorded.
+      */
+    private def ask(startNs: Long, measure: Boolean): Unit = {
+        val txt = questions((seq.getAndIncrement() % questions.size).toInt)
+        val sentNs = System.nanoTime()
+        
+        val succeeded =
+            try
+                Some(cli.ask(txt).isSuccessful)
+            catch {
+                case e: Exception ⇒
+                    logger.warn(s"Question failed [text=$txt, error=${e.getMessage}]")
+                    
+                    None
+            }
+        
+        if (measure) {
+            val doneNs = System.nanoTime()
+            
+            succeeded match {
+                case Some(true) ⇒ ok.incrementAndGet()
+                case Some(false) ⇒ failed.incrementAndGet()
+                case None ⇒ errors.incrementAndGet()
+            }
+            
+            service.record(doneNs - sentNs)
+            latency.record(doneNs - startNs)
+        }
+    }
+    
+    /**
+      *
+      * @param h Histogram.
+      * @param q Percentile.
+      */
+    private def ms(h: NCHistogram, q: Double): String = U.format(h.percentile(q) * 1000, 2)
+    
+    private def completed: Long = ok.get() + failed.get() + errors.get()
+    
+    private def report(t0: Long): Unit = {
+        val now = System.nanoTime()
+        
+        if (now < t0 + warmupNs)
+            logger.info(s"Warming up [sent=${seq.get()}]")
+        else
+            logger.info(
+                s"Progress [" +
+                    s"completed=$completed, " +
+                    s"errors=${errors.get()}, " +
+                    s"rps=${U.format(completed * 1E9 / (now - t0 - warmupNs), 1)}, " +
+                    s"p50=${ms(latency, 50)}ms, " +
+                    s"p99=${ms(latency, 99)}ms" +
+                s"]"
+            )
+    }
+    
+    try
+        dsId match {
+            case Some(id) ⇒ cli.openForDataSourceId(id)
+            case None ⇒ cli.openForModelId(mdlId.get)
+        }
+    catch {
+        case e: Exception ⇒ error(s"Failed to open test client: ${e.getMessage}")
+    }
+    
+    logger.info(
+        s"Load test started [" +
+            s"mode=${if (rate > 0) s"open loop, $rate rps" else s"closed loop, ${TimeUnit.NANOSECONDS.toMillis(thinkNs)}ms think time"}, " +
+            s"users=$users, " +
+            s"questions=${questions.size}" +
+        s"]"
+    )
+    
+    private val t0 = System.nanoTime()
+    private val measureStart = t0 + warmupNs
+    private val end = measureStart + durationNs
+    
+    private val sched = new AtomicLong()
+    private val intervalNs = if (rate > 0) 1000000000L / rate else 0L
+    
+    private val workers = (0 until users).map(i ⇒
+        U.mkThread(s"load-user-$i") { t ⇒
+            if (rate > 0) {
+                // Open loop: users take scheduled slots in turn.
+                var slot = t0 + sched.getAndIncrement() * intervalNs
+                
+                while (slot < end && !t.isInterrupted) {
+                    parkUntil(slot)
+                    
+                    ask(slot, slot >= measureStart)
+                    
+                    slot = t0 + sched.getAndIncrement() * intervalNs
+                }
+            }
+            else
+                // Closed loop.
+                while (System.nanoTime() < end && !t.isInterrupted) {
+                    val start = System.nanoTime()
+                    
+                    ask(start, start >= measureStart)
+                    
+                    if (thinkNs > 0)
+                        parkUntil(System.nanoTime() + thinkNs)
+                }
+        }
+    )
+    
+    private val reporter = Executors.newSingleThreadScheduledExecutor()
+    
+    reporter.scheduleWithFixedDelay(() ⇒ report(t0), reportSecs, reportSecs, TimeUnit.SECONDS)
+    
+    workers.foreach(_.start())
+    workers.foreach(_.join())
+    
+    private val elapsedNs = System.nanoTime() - measureStart
+    
+    U.shutdownPool(reporter)
+    
+    catching(classOf[Exception]).either(cli.close()) match {
+        case Left(e) ⇒ logger.warn(s"Failed to close test client: ${e.getMessage}")
+        case Right(_) ⇒ // No-op.
+    }
+    
+    conns.close()
+    
+    private val tbl = NCAsciiTable()
+    
+    tbl.margin(top = 1, bottom = 1)
+    
+    tbl += ("Completed", completed)
+    tbl += ("Successful", ok.get())
+    tbl += ("Failed (rejected by model)", failed.get())
+    tbl += ("Errors", errors.get())
+    tbl += ("Throughput, rps", U.format(completed * 1E9 / elapsedNs, 1))
+    
+    for (q ← Seq(50.0, 90.0, 99.0, 99.9))
+        tbl += (s"Latency p$q, ms", s"${ms(latency, q)} (service time ${ms(service, q)})")
+    
+    tbl += ("Latency max, ms", s"${U.format(latency.max * 1000, 2)} (service time ${U.format(service.max * 1000, 2)})")
+    
+    tbl.info(logger, Some("Load test finished:"))
+}
@@ -59,10 +59,13 @@ object NCCommandManager extends NCProbeLifecycle("Commands manager") with NCDebu
                 case "S2P_PING" ⇒ ()
 
                 case "S2P_CLEAR_CONV" ⇒
-                    NCConversationManager.get(
-                        msg.data[Long]("usrId"),
-                        msg.data[Long]("dsId")
-                    ).clear((_: NCToken) ⇒ true)
+                    val usrId = msg.data[Long]("usrId")
+                    val dsId = msg.data[Long]("dsId")
+                    
+                    try
+                        NCConversationManager.get(usrId, dsId).clear((_: NCToken) ⇒ true)
+                    finally
+                        NCConversationManager.release(usrId, dsId)
                 
                 case "S2P_ASK" ⇒
                     NCProbeNlpManager.ask(
@@ -76,7 +79,9 @@ object NCCommandManager extends NCProbeLifecycle("Commands manager") with NCDebu
                         dsName = msg.data[String]("dsName"),
                         dsDesc = msg.data[String]("dsDesc"),
                         dsModelCfg = msg.dataOpt[String]("dsModelCfg").orNull,
-                        test = msg.data[Boolean]("test")
+                        test = msg.data[Boolean]("test"),
+                        // Older servers don't send latency trace.
+                        timings = msg.dataOpt[List[(String, Long)]]("timings").getOrElse(Nil)
                     )
 
                 case _ ⇒
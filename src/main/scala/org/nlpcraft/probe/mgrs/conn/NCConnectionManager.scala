@@ -38,6 +38,7 @@ import java.util.concurrent.atomic.AtomicInteger
 import java.util.{Properties, TimeZone}
 
 import org.nlpcraft.common.crypto._
+import org.nlpcraft.common.metrics.NCMetrics
 import org.nlpcraft.probe._
 import org.nlpcraft.probe.mgrs.{NCProbeLifecycle, NCProbeMessage}
 import org.nlpcraft.probe.mgrs.cmd.NCCommandManager
@@ -61,6 +62,9 @@ object NCConnectionManager extends NCProbeLifecycle("Connection manager") {
     // Ping timeout.
     private final val PING_TIMEOUT = 5 * 1000
     
+    // Only metrics with this prefix are reported to the server.
+    private final val PROBE_METRICS_PREFIX = "nlpcraft_probe_"
+    
     // Internal probe GUID.
     final val PROBE_GUID = U.genGuid()
     
@@ -324,23 +328,29 @@ object NCConnectionManager extends NCProbeLifecycle("Connection manager") {
                     }
                     
                     dnThread = U.mkThread("probe-downlink") { t ⇒
+                        var lastPing = U.nowUtcMs()
+                        
                         while (!t.isInterrupted)
                             try {
                                 dnLinkQueue.synchronized {
-                                    if (dnLinkQueue.isEmpty) {
+                                    if (dnLinkQueue.isEmpty)
                                         dnLinkQueue.wait(PING_TIMEOUT)
+                                    
+                                    // Ping is sent even if the queue is never empty, since it carries metrics.
+                                    if (!dnThread.isInterrupted && U.nowUtcMs() - lastPing >= PING_TIMEOUT) {
+                                        val pingMsg = NCProbeMessage("P2S_PING")
+                                        
+                                        pingMsg.setProbeToken(config.token)
+                                        pingMsg.setProbeId(config.id)
+                                        pingMsg.setProbeGuid(PROBE_GUID)
+                                        
+                                        pingMsg += "metrics" → NCMetrics.snapshot(PROBE_METRICS_PREFIX).toList
+                                        
+                                        dnSock.write(pingMsg, cryptoKey)
                                         
-                                        if (!dnThread.isInterrupted && dnLinkQueue.isEmpty) {
-                                            val pingMsg = NCProbeMessage("P2S_PING")
-                                            
-                                            pingMsg.setProbeToken(config.token)
-                                            pingMsg.setProbeId(config.id)
-                                            pingMsg.setProbeGuid(PROBE_GUID)
-                                            
-                                            dnSock.write(pingMsg, cryptoKey)
-                                        }
+                                        lastPing = U.nowUtcMs()
                                     }
-                                    else {
+                                    else if (dnLinkQueue.nonEmpty) {
                                         val msg = dnLinkQueue.head
 
                                         // Write head first (without actually removing from queue).
@@ -44,6 +44,7 @@ import org.nlpcraft.common.nlp.pos._
 import org.nlpcraft.probe.mgrs.NCSynonymChunkKind._
 import org.nlpcraft.probe.mgrs.deploy._
 import org.nlpcraft.probe.mgrs.{NCModelDecorator, NCProbeLifecycle, NCSynonym, NCSynonymChunk}
+import org.nlpcraft.probe.mgrs.nlp.NCProbeNlpManager
 
 import scala.collection.JavaConversions._
 import scala.collection.convert.DecorateAsScala
@@ -84,16 +85,7 @@ object NCModelManager extends NCProbeLifecycle("Model manager") with NCDebug wit
 
             if (mdl != null) {
                 try {
-                    checkModelConfig(mdl)
-
-                    val parser = new MacroParser
-                    val macros = mdl.getMacros
-
-                    // Initialize macro parser.
-                    if (macros != null)
-                        macros.asScala.foreach(t ⇒ parser.addMacro(t._1, t._2))
-
-                    val dec = verifyAndDecorate(mdl, parser)
+                    val dec = decorate(mdl)
 
                     mdl.initialize(new NCProbeContext {
                         override def reloadModel(modelId: String): Unit = new Thread() {
@@ -121,6 +113,25 @@ object NCModelManager extends NCProbeLifecycle("Model manager") with NCDebug wit
         }
     }
 
+    /**
+      * Validates given model and makes its decorator without deploying the model.
+      *
+      * @param mdl Model to decorate.
+      */
+    @throws[NCE]
+    private[nlpcraft] def decorate(mdl: NCModel): NCModelDecorator = {
+        checkModelConfig(mdl)
+        
+        val parser = new MacroParser
+        val macros = mdl.getMacros
+        
+        // Initialize macro parser.
+        if (macros != null)
+            macros.asScala.foreach(t ⇒ parser.addMacro(t._1, t._2))
+        
+        verifyAndDecorate(mdl, parser)
+    }
+
     /**
       * Starts this component.
       */
@@ -160,6 +171,9 @@ object NCModelManager extends NCProbeLifecycle("Model manager") with NCDebug wit
             // Ack.
             logger.info(s"Model discarded: ${mdl.getDescriptor.getId}")
 
+            // Dedicated query pool is recreated with the settings of the reloaded model.
+            NCProbeNlpManager.discardPool(mdl.getDescriptor.getId)
+
             mdl.discard()
         }
     }
@@ -666,6 +680,11 @@ object NCModelManager extends NCProbeLifecycle("Model manager") with NCDebug wit
         checkInt(mdl.getMaxFunctionTokens, "maxFunctionTokens")
         checkInt(mdl.getMinFunctionTokens, "minFunctionTokens")
         checkInt(mdl.getJiggleFactor, "jiggleFactor", max = 4)
+        checkInt(mdl.getQueryThreads, "queryThreads")
+        checkInt(mdl.getQueryQueueSize, "queryQueueSize")
+        
+        if (mdl.getQueryTimeout < 0)
+            throw new NCE(s"Invalid model configuration value 'queryTimeout' [value=${mdl.getQueryTimeout}, min=0]")
     }
 
     /**
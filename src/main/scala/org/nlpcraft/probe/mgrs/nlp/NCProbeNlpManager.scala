@@ -32,17 +32,21 @@
 package org.nlpcraft.probe.mgrs.nlp
 
 import java.io.Serializable
-import java.util.concurrent.Executors
-import java.util.function.Predicate
+import java.util.concurrent._
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicLong, AtomicReference}
+import java.util.function.{BiConsumer, Predicate}
 
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCDebug
+import org.nlpcraft.common.latency.NCLatencyTrace
+import org.nlpcraft.common.latency.NCLatencyTrace._
+import org.nlpcraft.common.metrics.{NCCounter, NCGauge, NCHistogram, NCMetrics}
 import org.nlpcraft.model._
 import org.nlpcraft.model.impl.NCMetadataImpl
 import org.nlpcraft.common.nlp.NCNlpSentence
 import org.nlpcraft.common.nlp.log.NCNlpAsciiLogger
 import org.nlpcraft.probe._
-import org.nlpcraft.probe.mgrs.{NCProbeLifecycle, NCProbeMessage}
+import org.nlpcraft.probe.mgrs.{NCModelDecorator, NCProbeLifecycle, NCProbeMessage}
 import org.nlpcraft.probe.mgrs.conn.NCConnectionManager
 import org.nlpcraft.probe.mgrs.model.NCModelManager
 import org.nlpcraft.probe.mgrs.nlp.conversation.NCConversationManager
@@ -59,18 +63,263 @@ import org.nlpcraft.probe.mgrs.nlp.pre._
 
 import scala.collection.JavaConverters._
 import scala.collection._
-import scala.concurrent.ExecutionContext
 
 /**
   * Probe NLP manager.
   */
 object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
-    private final val EC = ExecutionContext.fromExecutor(
-        Executors.newFixedThreadPool(8 * Runtime.getRuntime.availableProcessors())
+    /**
+      * Query pool with its utilization gauges.
+      *
+      * @param executor Pool executor.
+      * @param gauges Registered gauges.
+      */
+    private case class QueryPool(executor: ThreadPoolExecutor, gauges: Seq[NCGauge])
+    
+    // Query pool shared by the models without dedicated pools (lives as long as the probe).
+    private final val SHARED_POOL = mkPool("shared", 8 * Runtime.getRuntime.availableProcessors(), 0).executor
+    
+    // Dedicated query pools (bulkheads) with the model instances they were created for by model IDs.
+    private final val pools = mutable.HashMap.empty[String, (NCModel, QueryPool)]
+    
+    // Processing steps with recorded times.
+    private final val STEPS = Seq(
+        "prechk",
+        "stopword",
+        "model",
+        "function",
+        "coordinates",
+        "suspicious_nouns",
+        "post_enrich",
+        "context_dictionary",
+        "collapse",
+        "postchk"
     )
+    
+    /**
+      * Per-model metrics.
+      *
+      * @param mdlId Model ID.
+      */
+    private class ModelMetrics(mdlId: String) {
+        private val lbl = "model" → mdlId
+        
+        val queries: NCCounter = NCMetrics.counter("nlpcraft_probe_queries_total", "Total number of model queries.", lbl)
+        val errors: NCCounter = NCMetrics.counter("nlpcraft_probe_errors_total", "Total number of rejected or failed queries.", lbl)
+        val query: NCHistogram = NCMetrics.histogram("nlpcraft_probe_query_seconds", "Model query time.", lbl)
+        val variants: NCHistogram =
+            NCMetrics.histogram("nlpcraft_probe_variants", "Number of sentence variants after collapsing.", NCHistogram.SIZE, lbl)
+        val resultSize: NCHistogram =
+            NCMetrics.histogram("nlpcraft_probe_result_bytes", "Size of the query result body.", NCHistogram.SIZE, lbl)
+        val steps: Map[String, NCHistogram] =
+            STEPS.map(step ⇒
+                step → NCMetrics.histogram("nlpcraft_probe_step_seconds", "Processing step time.", lbl, "step" → step)
+            ).toMap
+    }
+    
+    // Per-model metrics by model IDs.
+    private final val mdlMetrics = new ConcurrentHashMap[String, ModelMetrics]()
+    
+    @volatile private var timeouts: ScheduledThreadPoolExecutor = _
 
     // Maximum size of the result body.
     private final val MAX_RES_BODY_LENGTH = 1024 * 1024 // 1MB.
+    
+    /**
+      * Runs probe-side enrichment pipeline for given server-side enriched sentence, including the final
+      * collapsing. Given sentence is modified in place. Only enrichers (and the managers they depend on)
+      * have to be started.
+      *
+      * @param mdl Model decorator.
+      * @param nlpSen Server-side enriched sentence.
+      * @param onStep Callback invoked with the step name right after each step is finished.
+      * @return Collapsed sentence variants.
+      */
+    @throws[NCE]
+    private[nlpcraft] def enrichPipeline(
+        mdl: NCModelDecorator,
+        nlpSen: NCNlpSentence,
+        onStep: String ⇒ Unit = _ ⇒ ()
+    ): Seq[NCNlpSentence] = {
+        def step[T](name: String)(f: ⇒ T): T = {
+            val res = f
+            
+            onStep(name)
+            
+            res
+        }
+        
+        // Order is important!
+        step("stopword") { NCStopWordEnricher.enrich(mdl, nlpSen) }
+        step("model") { NCModelEnricher.enrich(mdl, nlpSen) }
+        step("function") { NCFunctionEnricher.enrich(mdl, nlpSen) }
+        step("coordinates") { NCCoordinatesEnricher.enrich(mdl, nlpSen) }
+        step("suspicious_nouns") { NCSuspiciousNounsEnricher.enrich(mdl, nlpSen) }
+    
+        val senSeq = step("post_enrich") {
+            NCPostEnrichCollapser.collapse(mdl, nlpSen)
+            .flatMap(sen ⇒ {
+                NCPostEnricher.postEnrich(mdl, sen)
+                NCPostEnrichCollapser.collapse(mdl, sen)
+            })
+        }
+    
+        step("context_dictionary") {
+            senSeq.foreach(sen ⇒ {
+                NCContextEnricher.enrich(mdl, sen)
+                NCDictionaryEnricher.enrich(mdl, sen)
+            })
+        }
+    
+        // Collapse again.
+        step("collapse") { senSeq.flatMap(p ⇒ NCPostEnrichCollapser.collapse(mdl, p)) }
+    }
+    
+    /**
+      * Starts this component.
+      */
+    override def start(): NCLifecycle = {
+        ensureStopped()
+        
+        timeouts = new ScheduledThreadPoolExecutor(1)
+        
+        timeouts.setRemoveOnCancelPolicy(true)
+        
+        super.start()
+    }
+    
+    /**
+      * Stops this component.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+        
+        pools.synchronized {
+            pools.values.foreach { case (_, p) ⇒
+                p.executor.shutdownNow()
+                
+                p.gauges.foreach(NCMetrics.remove)
+            }
+            
+            pools.clear()
+        }
+        
+        if (timeouts != null) {
+            timeouts.shutdownNow()
+            
+            timeouts = null
+        }
+        
+        super.stop()
+    }
+    
+    /**
+      * Creates query pool with utilization gauges.
+      *
+      * @param name Pool name.
+      * @param threads Number of threads.
+      * @param qSize Queue size, unbounded if not positive.
+      */
+    private def mkPool(name: String, threads: Int, qSize: Int): QueryPool = {
+        val pool = new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            if (qSize > 0) new ArrayBlockingQueue[Runnable](qSize) else new LinkedBlockingQueue[Runnable]()
+        )
+        
+        QueryPool(
+            pool,
+            Seq(
+                NCMetrics.gauge("nlpcraft_probe_pool_size", "Number of query pool threads.", "pool" → name) { threads },
+                NCMetrics.gauge("nlpcraft_probe_pool_active", "Number of busy query pool threads.", "pool" → name) {
+                    pool.getActiveCount
+                },
+                NCMetrics.gauge("nlpcraft_probe_pool_queued", "Number of queries waiting in the pool queue.", "pool" → name) {
+                    pool.getQueue.size()
+                }
+            )
+        )
+    }
+    
+    /**
+      * Gets metrics of given model.
+      *
+      * @param mdlId Model ID.
+      */
+    private def metricsOf(mdlId: String): ModelMetrics = {
+        val m = mdlMetrics.get(mdlId)
+        
+        if (m != null)
+            m
+        else {
+            // Metrics registration is idempotent, so the race is harmless.
+            mdlMetrics.putIfAbsent(mdlId, new ModelMetrics(mdlId))
+            
+            mdlMetrics.get(mdlId)
+        }
+    }
+    
+    /**
+      * Shuts down dedicated query pool and unregisters its gauges. Queries already in the pool are still processed.
+      *
+      * @param p Query pool.
+      */
+    private def closePool(p: QueryPool): Unit = {
+        p.executor.shutdown()
+        
+        p.gauges.foreach(NCMetrics.remove)
+    }
+    
+    /**
+      * Discards dedicated query pool of given model, if any. It should be called when the model is
+      * discarded or reloaded, so that the pool is recreated with the new model settings.
+      *
+      * @param mdlId Model ID.
+      */
+    private[probe] def discardPool(mdlId: String): Unit =
+        pools.synchronized { pools.remove(mdlId) } match {
+            case Some((_, p)) ⇒ closePool(p)
+            case None ⇒ // No-op.
+        }
+    
+    /**
+      * Gets query pool for given model.
+      *
+      * @param mdl Model.
+      */
+    private def queryPool(mdl: NCModelDecorator): ExecutorService = {
+        val threads = mdl.model.getQueryThreads
+        val id = mdl.model.getDescriptor.getId
+        
+        if (threads == 0)
+            SHARED_POOL
+        else
+            pools.synchronized { pools.get(id) } match {
+                case Some((m, p)) if m eq mdl.model ⇒ p.executor
+                    
+                // Model was discarded after this query started (checked without pools lock
+                // since model manager discards pools under its own lock).
+                case _ if !NCModelManager.getModel(id).exists(_.model eq mdl.model) ⇒ SHARED_POOL
+                    
+                case _ ⇒
+                    pools.synchronized {
+                        pools.get(id) match {
+                            case Some((m, p)) if m eq mdl.model ⇒ p.executor
+                            case old ⇒
+                                // Pool of another instance of this model (reloaded concurrently).
+                                old.foreach { case (_, p) ⇒ closePool(p) }
+                                
+                                val p = mkPool(id, threads, mdl.model.getQueryQueueSize)
+                                
+                                pools += id → (mdl.model, p)
+                                
+                                p.executor
+                        }
+                    }
+            }
+    }
 
     /**
       * Processes 'ask' request from probe server.
@@ -99,9 +348,14 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
         dsName: String,
         dsDesc: String,
         dsModelCfg: String,
-        test: Boolean
+        test: Boolean,
+        timings: List[(String, Long)]
     ): Unit = {
         ensureStarted()
+        
+        val trace = new NCLatencyTrace(timings)
+        
+        trace.mark(PROBE_RECV)
 
         try
             ask0(
@@ -115,7 +369,8 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
                 dsName,
                 dsDesc,
                 dsModelCfg,
-                test
+                test,
+                trace
             )
         catch {
             case e: Throwable ⇒
@@ -129,6 +384,10 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
                     "txt" → txt
                 )
                 
+                trace.mark(PROBE_RESULT_SEND)
+                
+                msg += "timings" → trace.toList
+                
                 NCConnectionManager.send(msg)
         }
     }
@@ -158,6 +417,7 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
       * @param dsDesc Data source description.
       * @param dsModelCfg Data source model config.
       * @param test Test flag.
+      * @param trace Latency trace of the request.
       */
     @throws[NCE]
     private def ask0(
@@ -171,11 +431,16 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
         dsName: String,
         dsDesc: String,
         dsModelCfg: String,
-        test: Boolean
+        test: Boolean,
+        trace: NCLatencyTrace
     ): Unit = {
         if (!IS_PROBE_SILENT)
             logger.info(s"New sentence received: ${nlpSen.text}")
     
+        val metrics = metricsOf(dsModelId)
+        
+        metrics.queries.inc()
+        
         /**
           *
           * @param code Pre or post checker error code.
@@ -229,6 +494,12 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
             msg += "txt" → txt
             msg += "test" → test
             
+            if (errMsg.isDefined)
+                metrics.errors.inc()
+            
+            if (resBody.isDefined)
+                metrics.resultSize.record(resBody.get.length)
+            
             if (resBody.isDefined && resBody.get.length > MAX_RES_BODY_LENGTH)
                 addOptional(msg, "error", Some("Result is too big. Model results must to be corrected."))
             else {
@@ -236,6 +507,10 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
                 addOptional(msg, "resType", resType)
                 addOptional(msg, "resBody", resBody)
             }
+            
+            trace.mark(PROBE_RESULT_SEND)
+            
+            msg += "timings" → trace.toList
 
             NCConnectionManager.send(msg)
             
@@ -247,8 +522,35 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
 
         val mdl = NCModelManager.getModel(dsModelId).getOrElse(throw new NCE(s"Model not found: $dsModelId"))
         
+        /**
+          * Records time of the finished processing step and the time it was finished.
+          *
+          * @param name Step name.
+          * @param start Step start time in nanoseconds.
+          */
+        def finished(name: String, start: Long): Unit = {
+            metrics.steps(name).recordSince(start)
+            trace.mark(probeStep(name))
+        }
+        
+        /**
+          * Runs given processing step recording its time and the time it was finished.
+          *
+          * @param name Step name.
+          * @param f Step function.
+          */
+        def step[T](name: String)(f: ⇒ T): T = {
+            val start = System.nanoTime()
+            
+            val res = f
+            
+            finished(name, start)
+            
+            res
+        }
+
         try
-            NCNlpPreChecker.validate(mdl, nlpSen)
+            step("prechk") { NCNlpPreChecker.validate(mdl, nlpSen) }
         catch {
             case e: NCNlpPreException ⇒
                 val errMsg = errorMsg(e.status)
@@ -265,27 +567,15 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
                 return
         }
 
-        // Order is important!
-        NCStopWordEnricher.enrich(mdl, nlpSen)
-        NCModelEnricher.enrich(mdl, nlpSen)
-        NCFunctionEnricher.enrich(mdl, nlpSen)
-        NCCoordinatesEnricher.enrich(mdl, nlpSen)
-        NCSuspiciousNounsEnricher.enrich(mdl, nlpSen)
-
-        var senSeq =
-            NCPostEnrichCollapser.collapse(mdl, nlpSen)
-            .flatMap(sen ⇒ {
-                NCPostEnricher.postEnrich(mdl, sen)
-                NCPostEnrichCollapser.collapse(mdl, sen)
-            })
-
-        senSeq.foreach(sen ⇒ {
-            NCContextEnricher.enrich(mdl, sen)
-            NCDictionaryEnricher.enrich(mdl, sen)
+        var start = System.nanoTime()
+        
+        val senSeq = enrichPipeline(mdl, nlpSen, name ⇒ {
+            finished(name, start)
+            
+            start = System.nanoTime()
         })
-
-        // Collapse again.
-        senSeq = senSeq.flatMap(p ⇒ NCPostEnrichCollapser.collapse(mdl, p))
+        
+        metrics.variants.record(senSeq.size)
 
         if (!IS_PROBE_SILENT) {
             val sz = senSeq.size
@@ -298,7 +588,7 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
 
         // Final validation before execution.
         try
-            senSeq.foreach(sen ⇒ NCPostChecker.validate(mdl, sen))
+            step("postchk") { senSeq.foreach(sen ⇒ NCPostChecker.validate(mdl, sen)) }
         catch {
             case e: NCPostException ⇒
                 val errMsg = errorMsg(e.code)
@@ -315,6 +605,10 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
                 return
         }
 
+        val unitedSen =
+            new NCSentenceImpl(mdl, new NCMetadataImpl(senMeta.asJava), srvReqId, senSeq)
+
+        // Given back once the query is responded (see 'finish' below).
         val conv = NCConversationManager.get(usrId, dsId)
 
         // Update STM and recalculate context.
@@ -323,9 +617,6 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
         if (!IS_PROBE_SILENT)
             conv.ack()
 
-        val unitedSen =
-            new NCSentenceImpl(mdl, new NCMetadataImpl(senMeta.asJava), srvReqId, senSeq)
-
         // Create model query context.
         val qryCtx: NCQueryContext = new NCQueryContext {
             override val getDataSource: NCDataSource = new NCDataSource {
@@ -339,33 +630,73 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
             override lazy val getServerRequestId: String = srvReqId
 
             override lazy val getConversationContext: NCConversationContext = new NCConversationContext {
-                override def getTokens: java.util.HashSet[NCToken] = conv.tokens
+                override def getTokens: java.util.Set[NCToken] = conv.tokens
                 override def clear(filter: Predicate[NCToken]): Unit = conv.clear(filter)
             }
         }
 
-        // Execute model query asynchronously.
-        U.asFuture(
-            _ ⇒ {
-                val res = mdl.model.query(qryCtx)
-
-                if (res == null)
-                    throw new IllegalStateException("Result cannot be null.")
-                if (res.getBody == null)
-                    throw new IllegalStateException("Result body cannot be null.")
-                if (res.getType == null)
-                    throw new IllegalStateException("Result type cannot be null.")
-
-                val v = res.getVariant
-
-                // Adds input sentence to the ongoing conversation if *some* result
-                // was returned. Do not add if result is invalid.
-                if (v != null)
-                    conv.addItem(unitedSen, v)
-
-                res
-            },
-            {
+        /**
+          * Validates the result and adds input sentence to the ongoing conversation.
+          *
+          * @param res Model query result.
+          */
+        def process(res: NCQueryResult): NCQueryResult = {
+            if (res == null)
+                throw new IllegalStateException("Result cannot be null.")
+            if (res.getBody == null)
+                throw new IllegalStateException("Result body cannot be null.")
+            if (res.getType == null)
+                throw new IllegalStateException("Result type cannot be null.")
+
+            val v = res.getVariant
+
+            // Adds input sentence to the ongoing conversation if *some* result
+            // was returned. Do not add if result is invalid.
+            if (v != null)
+                conv.addItem(unitedSen, v)
+
+            res
+        }
+
+        // Query is responded only once: either with its outcome or with the timeout rejection.
+        val done = new AtomicBoolean(false)
+        val qryStart = new AtomicLong(0)
+        val timeoutFut = new AtomicReference[ScheduledFuture[_]]()
+        
+        // Thread executing the query (guarded by itself).
+        val runner = new AtomicReference[Thread]()
+        
+        /**
+          * Runs given response function if the query wasn't responded yet and gives back the conversation.
+          *
+          * @param f Response function.
+          */
+        def finish(f: ⇒ Unit): Unit =
+            if (done.compareAndSet(false, true)) {
+                val t = timeoutFut.get()
+                
+                if (t != null)
+                    t.cancel(false)
+                
+                val start = qryStart.get()
+                
+                // Not started queries (timed out in the queue) are not recorded.
+                if (start != 0)
+                    metrics.query.recordSince(start)
+                
+                try
+                    f
+                finally
+                    NCConversationManager.release(usrId, dsId)
+            }
+        
+        /**
+          * Responds with the error.
+          *
+          * @param err Model query error.
+          */
+        def fail(err: Throwable): Unit =
+            err match {
                 case e: NCRejection ⇒
                     logger.info(s"Rejection [srvReqId=$srvReqId, msg=${e.getMessage}]")
 
@@ -388,15 +719,151 @@ object NCProbeNlpManager extends NCProbeLifecycle("NLP manager") with NCDebug {
                         Some("Processing failed with unexpected error."), // System error message.
                         "P2S_ASK_RESULT"
                     )
-            },
-            (res: NCQueryResult) ⇒ {
-                respond(
-                    Some(res.getType),
-                    Some(res.getBody),
-                    None,
-                    "P2S_ASK_RESULT"
+            }
+
+        /**
+          * Responds with the error.
+          *
+          * @param err Model query error.
+          */
+        def onFailure(err: Throwable): Unit =
+            finish {
+                trace.mark(PROBE_QUERY_END)
+                
+                fail(err)
+            }
+
+        /**
+          * Validates and responds with the result.
+          *
+          * @param res Model query result.
+          */
+        def onSuccess(res: NCQueryResult): Unit =
+            finish {
+                trace.mark(PROBE_QUERY_END)
+                
+                try {
+                    val v = process(res)
+                    
+                    respond(
+                        Some(v.getType),
+                        Some(v.getBody),
+                        None,
+                        "P2S_ASK_RESULT"
+                    )
+                }
+                catch {
+                    case e: Throwable ⇒ fail(e)
+                }
+            }
+        
+        val stageRef = new AtomicReference[CompletionStage[NCQueryResult]]()
+
+        // Execute model query asynchronously.
+        try
+            queryPool(mdl).execute(new Runnable {
+                override def run(): Unit =
+                    // Skips query which timed out while waiting in the queue.
+                    if (!done.get()) {
+                        runner.synchronized { runner.set(Thread.currentThread()) }
+                        
+                        try {
+                            trace.mark(PROBE_QUERY_START)
+                            qryStart.set(System.nanoTime())
+                            
+                            val stage = mdl.model.queryAsync(qryCtx)
+            
+                            if (stage == null)
+                                onSuccess(mdl.model.query(qryCtx))
+                            else {
+                                stageRef.set(stage)
+                                
+                                // Asynchronous model: the result is sent from the completion callback
+                                // and this pool thread is released right away.
+                                stage.whenComplete(new BiConsumer[NCQueryResult, Throwable] {
+                                    override def accept(res: NCQueryResult, err: Throwable): Unit =
+                                        if (err != null)
+                                            onFailure(
+                                                err match {
+                                                    case e: CompletionException if e.getCause != null ⇒ e.getCause
+                                                    case e ⇒ e
+                                                }
+                                            )
+                                        else
+                                            onSuccess(res)
+                                })
+                            }
+                        }
+                        catch {
+                            case e: Throwable ⇒ onFailure(e)
+                        }
+                        finally
+                            runner.synchronized {
+                                runner.set(null)
+                                
+                                // Clears possible interruption by timeout before the thread is returned to the pool.
+                                Thread.interrupted()
+                            }
+                    }
+            })
+        catch {
+            case _: RejectedExecutionException ⇒
+                logger.warn(s"Query rejected due to full query queue [srvReqId=$srvReqId, mdlId=$dsModelId]")
+                
+                finish {
+                    respond(
+                        None,
+                        None,
+                        Some("Too many concurrent requests."), // System error message.
+                        "P2S_ASK_RESULT"
+                    )
+                }
+            
+            case e: Throwable ⇒ onFailure(e)
+        }
+        
+        val timeout = mdl.model.getQueryTimeout
+        
+        if (timeout > 0 && !done.get())
+            try
+                timeoutFut.set(
+                    timeouts.schedule(
+                        new Runnable {
+                            override def run(): Unit =
+                                finish {
+                                    logger.warn(s"Query timed out [srvReqId=$srvReqId, mdlId=$dsModelId, timeout=${timeout}ms]")
+                                    
+                                    respond(
+                                        None,
+                                        None,
+                                        Some("Processing timed out."), // System error message.
+                                        "P2S_ASK_RESULT"
+                                    )
+                                    
+                                    // Interrupts stuck query.
+                                    runner.synchronized {
+                                        val t = runner.get()
+                                        
+                                        if (t != null)
+                                            t.interrupt()
+                                    }
+                                    
+                                    val stage = stageRef.get()
+                                    
+                                    if (stage != null)
+                                        try
+                                            stage.toCompletableFuture.cancel(true)
+                                        catch {
+                                            case _: UnsupportedOperationException ⇒ // No-op.
+                                        }
+                                }
+                        },
+                        timeout,
+                        TimeUnit.MILLISECONDS
+                    )
                 )
+            catch {
+                case _: RejectedExecutionException ⇒ // Manager is stopping.
             }
-        )(EC)
     }
 }
@@ -31,6 +31,7 @@
 
 package org.nlpcraft.probe.mgrs.nlp.conversation
 
+import java.io.{IOException, ObjectInputStream, ObjectOutputStream}
 import java.text.SimpleDateFormat
 import java.util.function.Predicate
 
@@ -39,26 +40,56 @@ import org.nlpcraft.common._
 import org.nlpcraft.common.NCDebug
 import org.nlpcraft.common.ascii.NCAsciiTable
 import org.nlpcraft.model._
+import org.nlpcraft.model.impl.NCTokenImpl
 import org.nlpcraft.model.utils.NCTokenUtils._
 
 import scala.collection.JavaConverters._
 import scala.collection.mutable
 import scala.concurrent.duration._
 
+/**
+  * Conversation companion.
+  */
+object NCConversation {
+    // After 10 mins pause between questions we clear the STM.
+    final val CONV_CLEAR_DELAY = 10.minutes.toMillis
+    
+    /**
+      * Reads conversation written by 'write' method.
+      *
+      * @param usrId User ID.
+      * @param dsId Data source ID.
+      * @param in Input stream.
+      */
+    @throws[IOException]
+    def read(usrId: Long, dsId: Long, in: ObjectInputStream): NCConversation = {
+        val conv = NCConversation(usrId, dsId)
+        
+        conv.load(in)
+        
+        conv
+    }
+}
+
 /**
   * Conversation as an ordered set of utterances.
   */
 case class NCConversation(usrId: Long, dsId: Long) extends NCDebug with LazyLogging {
-    // After 10 mins pause between questions we clear the STM.
-    private final val CONV_CLEAR_DELAY = 10.minutes.toMillis
+    import NCConversation._
     
     // Timestamp format.
     private final val TSTAMP_FMT = new SimpleDateFormat("hh:mm:ss a")
     
     // Short-Term-Memory.
     private val stm = mutable.TreeSet.empty[NCConversationItem]
-    private var ctx = new java.util.HashSet[NCToken]()
-    private var lastUpdateTstamp = U.nowUtcMs()
+    
+    // Youngest tokens per each token group (guarded by 'stm' lock).
+    private var grps = Map.empty[String/*Token group.*/, Seq[NCToken]]
+    
+    // Immutable context snapshot read without locking.
+    @volatile private var ctx: java.util.Set[NCToken] = java.util.Collections.emptySet()
+    
+    @volatile private var lastUpdateTstamp = U.nowUtcMs()
     
     /**
       *
@@ -76,6 +107,35 @@ case class NCConversation(usrId: Long, dsId: Long) extends NCDebug with LazyLogg
         override def compare(that: NCConversationItem): Int = this.tstamp.compareTo(that.tstamp)
     }
     
+    /**
+      * Groups tokens which are stored in the context.
+      *
+      * @param toks Tokens.
+      */
+    private def group(toks: java.util.List[NCToken]): Map[String, Seq[NCToken]] =
+        toks.asScala.filter(t ⇒ !isFreeWord(t) && !isStopWord(t)).groupBy(
+            tok ⇒ if (tok.getGroup == null) "" else tok.getGroup
+        )
+    
+    /**
+      * Recalculates the context based on the whole STM.
+      * NOTE:
+      * (1) STM is a red-black tree and traversed in ascending time order (older first).
+      * (2) Map update ensure that only the youngest tokens per each group are retained in the context.
+      */
+    private def rebuild(): Unit = {
+        grps = Map.empty
+        
+        for (item ← stm)
+            grps ++= group(item.tokens)
+    }
+    
+    /**
+      * Publishes new context snapshot.
+      */
+    private def publish(): Unit =
+        ctx = java.util.Collections.unmodifiableSet(new java.util.HashSet[NCToken](grps.values.flatten.asJavaCollection))
+    
     /**
       *
       */
@@ -90,22 +150,13 @@ case class NCConversation(usrId: Long, dsId: Long) extends NCDebug with LazyLogg
                 s"]")
         
             stm.clear()
+            
+            grps = Map.empty
+            
+            publish()
         }
     
         lastUpdateTstamp = now
-    
-        val map = mutable.HashMap.empty[String/*Token group.*/, mutable.Buffer[NCToken]]
-    
-        // Recalculate the context based on new STM.
-        for (item ← stm)
-            // NOTE:
-            // (1) STM is a red-black tree and traversed in ascending time order (older first).
-            // (2) Map update ensure that only the youngest tokens per each group are retained in the context.
-            map ++= item.tokens.asScala.filter(t ⇒ !isFreeWord(t) && !isStopWord(t)).groupBy(
-                tok ⇒ if (tok.getGroup == null) "" else tok.getGroup
-            )
-    
-        ctx = new java.util.HashSet[NCToken](map.values.flatten.asJavaCollection)
     }
     
     /**
@@ -116,6 +167,10 @@ case class NCConversation(usrId: Long, dsId: Long) extends NCDebug with LazyLogg
     def clear(p: Predicate[NCToken]): Unit = stm.synchronized {
         for (item ← stm)
             item.tokens.removeIf(p)
+        
+        // Removed tokens can uncover older tokens of the same group.
+        rebuild()
+        publish()
     
         if (!IS_PROBE_SILENT)
             logger.trace(s"Manually cleared conversation for some tokens.")
@@ -137,12 +192,25 @@ case class NCConversation(usrId: Long, dsId: Long) extends NCDebug with LazyLogg
       * @param v Sentence's specific variant.
       */
     def addItem(sen: NCSentence, v: NCVariant): Unit = stm.synchronized {
-        stm += NCConversationItem(
+        val item = NCConversationItem(
             v.getTokens,
             sen.getNormalizedText,
             sen.getServerRequestId,
             lastUpdateTstamp
         )
+        
+        val youngest = stm.isEmpty || stm.last.tstamp < item.tstamp
+        
+        if (stm.add(item)) {
+            // Youngest item only overrides its groups. Otherwise (concurrent requests for the same
+            // conversation) STM order is restored by full recalculation.
+            if (youngest)
+                grps ++= group(item.tokens)
+            else
+                rebuild()
+            
+            publish()
+        }
     
         if (!IS_PROBE_SILENT)
             logger.trace(s"Added new sentence to the conversation [" +
@@ -179,10 +247,77 @@ case class NCConversation(usrId: Long, dsId: Long) extends NCDebug with LazyLogg
     }
     
     /**
-      * 
-      * @return
+      * Writes this conversation STM. Only tokens fields and metadata are written.
+      *
+      * @param out Output stream.
       */
-    def tokens: java.util.HashSet[NCToken] = stm.synchronized {
-        ctx
+    @throws[IOException]
+    def write(out: ObjectOutputStream): Unit = stm.synchronized {
+        out.writeLong(lastUpdateTstamp)
+        out.writeInt(stm.size)
+        
+        for (item ← stm) {
+            out.writeObject(item.text)
+            out.writeObject(item.srvReqId)
+            out.writeLong(item.tstamp)
+            out.writeInt(item.tokens.size())
+            
+            for (tok ← item.tokens.asScala) {
+                out.writeObject(tok.getServerRequestId)
+                out.writeObject(tok.getId)
+                out.writeObject(tok.getGroup)
+                out.writeObject(tok.getParentId)
+                out.writeObject(tok.getValue)
+                out.writeObject(tok.getMetadata)
+                out.writeObject(tok.getElementMetadata)
+            }
+        }
     }
+    
+    /**
+      * Reads STM written by 'write' method into this conversation.
+      *
+      * @param in Input stream.
+      */
+    @throws[IOException]
+    private def load(in: ObjectInputStream): Unit = stm.synchronized {
+        def str(): String = in.readObject().asInstanceOf[String]
+        def meta(): NCMetadata = in.readObject().asInstanceOf[NCMetadata]
+        
+        try {
+            lastUpdateTstamp = in.readLong()
+            
+            stm.clear()
+            
+            for (_ ← 0 until in.readInt()) {
+                val text = str()
+                val srvReqId = str()
+                val tstamp = in.readLong()
+                val toks = new java.util.ArrayList[NCToken]()
+                
+                for (_ ← 0 until in.readInt())
+                    toks.add(new NCTokenImpl(str(), str(), str(), str(), str(), meta(), meta()))
+                
+                stm += NCConversationItem(toks, text, srvReqId, tstamp)
+            }
+        }
+        catch {
+            case e: ClassNotFoundException ⇒ throw new IOException("Failed to read conversation.", e)
+        }
+        
+        rebuild()
+        publish()
+    }
+    
+    /**
+      * Gets timestamp of the last conversation update (or its creation).
+      */
+    def lastUpdate: Long = lastUpdateTstamp
+    
+    /**
+      * Gets immutable snapshot of the conversation context. This method never blocks.
+      *
+      * @return
+      */
+    def tokens: java.util.Set[NCToken] = ctx
 }
\ No newline at end of file
@@ -31,30 +31,394 @@
 
 package org.nlpcraft.probe.mgrs.nlp.conversation
 
+import java.util.{Timer, TimerTask, LinkedHashMap ⇒ JLinkedHashMap}
+
+import org.nlpcraft.common._
 import org.nlpcraft.common.NCDebug
+import org.nlpcraft.common.metrics.{NCCounter, NCMetrics}
 import org.nlpcraft.probe.mgrs.NCProbeLifecycle
 
-import scala.collection._
+import scala.collection.mutable
+import scala.concurrent.duration._
 
 /**
   * Conversation manager.
+  *
+  * Conversations are kept in a fixed number of shards, each guarded by its own lock. Conversations idle
+  * for longer than STM reset delay (see `NCConversation.CONV_CLEAR_DELAY`) are periodically removed, since
+  * their STM would be cleared on the next request anyway. Total number of conversations is limited
+  * by `NLPCRAFT_PROBE_MAX_CONVERSATIONS` system property or environment variable: least recently used
+  * conversations are evicted when the limit is reached.
+  *
+  * If `NLPCRAFT_PROBE_CONV_SPILL_DIR` system property or environment variable is set, conversations
+  * idle for longer than spill delay, as well as evicted ones, are moved to the local disk store in given
+  * folder instead of being dropped. They are transparently read back on the next request for the same
+  * user and data source, so that heap usage doesn't depend on the number of users.
+  *
+  * Conversations used by requests in progress (taken by `get` and not yet given back by `release`)
+  * are never removed, evicted or spilled.
   */
 object NCConversationManager extends NCProbeLifecycle("Conversation manager") with NCDebug {
     case class Key(userId: Long, dsId: Long)
     
-    // TODO: add periodic garbage collector for stale conversations.
-    private val convs = mutable.HashMap.empty[Key, NCConversation]
-
+    private final val SHARDS_CNT = 16
+    private final val DFLT_MAX_SIZE = 100000
+    private final val GC_PERIOD = 1.minute.toMillis
+    private final val SPILL_DELAY = 2.minutes.toMillis
+    
+    /**
+      * Conversation with the number of requests using it.
+      *
+      * @param conv Conversation.
+      */
+    private class Holder(val conv: NCConversation) {
+        // Guarded by the shard lock.
+        var users = 0
+    }
+    
+    /**
+      * LRU ordered conversations shard. Disk store reads and writes of its conversations are done under
+      * separate `io` lock (always taken before the shard lock), so that they don't block requests for
+      * the conversations in memory.
+      *
+      * @param maxSize Maximum shard size.
+      */
+    private class Shard(val maxSize: Int) extends JLinkedHashMap[Key, Holder](16, 0.75f, true) {
+        val io = new Object()
+    }
+    
+    private val created = event("created")
+    private val expired = event("expired")
+    private val evicted = event("evicted")
+    private val spilled = event("spilled")
+    private val restored = event("restored")
+    
     /**
-      * Gets conversation for given key.
+      * Registers conversations events counter.
+      *
+      * @param evt Event name.
+      */
+    private def event(evt: String): NCCounter =
+        NCMetrics.counter("nlpcraft_probe_conversation_events_total", "Total number of conversations events.", "event" → evt)
+    
+    @volatile private var shards: Array[Shard] = _
+    @volatile private var store: NCConversationStore = _
+    @volatile private var gc: Timer = _
+    
+    /**
+      * Starts this component.
+      */
+    @throws[NCE]
+    override def start(): NCLifecycle = {
+        ensureStopped()
+        
+        val maxSize =
+            U.sysEnv("NLPCRAFT_PROBE_MAX_CONVERSATIONS") match {
+                case Some(s) ⇒
+                    try
+                        s.trim.toInt
+                    catch {
+                        case _: NumberFormatException ⇒
+                            throw new NCE(s"Invalid 'NLPCRAFT_PROBE_MAX_CONVERSATIONS' value: $s")
+                    }
+                case None ⇒ DFLT_MAX_SIZE
+            }
+        
+        if (maxSize <= 0)
+            throw new NCE(s"'NLPCRAFT_PROBE_MAX_CONVERSATIONS' value must be positive: $maxSize")
+        
+        // Shards limits are rounded up, so total limit can be slightly exceeded.
+        shards = Array.fill(SHARDS_CNT)(new Shard((maxSize + SHARDS_CNT - 1) / SHARDS_CNT))
+        
+        store =
+            U.sysEnv("NLPCRAFT_PROBE_CONV_SPILL_DIR") match {
+                case Some(dir) ⇒
+                    val s = new NCConversationStore(new java.io.File(dir))
+                    
+                    try
+                        s.open()
+                    catch {
+                        case e: java.io.IOException ⇒ throw new NCE(s"Failed to open conversations store in: $dir", e)
+                    }
+                    
+                    logger.info(s"Idle conversations are stored in: $dir")
+                    
+                    s
+                case None ⇒ null
+            }
+        
+        NCMetrics.gauge("nlpcraft_probe_conversations", "Number of conversations.", "state" → "live") {
+            val arr = shards
+            
+            if (arr == null) 0 else arr.map(shard ⇒ shard.synchronized { shard.size() }).sum
+        }
+        NCMetrics.gauge("nlpcraft_probe_conversations", "Number of conversations.", "state" → "stored") {
+            val s = store
+            
+            if (s == null) 0 else s.size
+        }
+        
+        gc = new Timer("conversation-gc", true)
+        
+        gc.scheduleAtFixedRate(
+            new TimerTask() {
+                def run() {
+                    try
+                        removeIdle(U.nowUtcMs())
+                    catch {
+                        case e: Throwable ⇒ logger.error("Error during stale conversations removing.", e)
+                    }
+                }
+            },
+            GC_PERIOD,
+            GC_PERIOD
+        )
+        
+        super.start()
+    }
+    
+    /**
+      * Stops this component.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+        
+        if (gc != null) {
+            gc.cancel()
+            
+            gc = null
+        }
+        
+        if (shards != null)
+            shards.foreach(shard ⇒ shard.synchronized { shard.clear() })
+        
+        if (store != null) {
+            store.close()
+            
+            store = null
+        }
+        
+        super.stop()
+    }
+    
+    /**
+      * Removes conversations idle for longer than STM reset delay and spills the ones
+      * idle for longer than spill delay, if disk store is used.
+      *
+      * @param now Current timestamp.
+      */
+    private def removeIdle(now: Long): Unit = {
+        val store = this.store
+        
+        var cnt = 0
+        
+        for (shard ← shards)
+            shard.io.synchronized {
+                val idle =
+                    shard.synchronized {
+                        val buf = mutable.ArrayBuffer.empty[(Key, NCConversation)]
+                        val it = shard.entrySet().iterator()
+                        
+                        while (it.hasNext) {
+                            val e = it.next()
+                            val h = e.getValue
+                            val idle = now - h.conv.lastUpdate
+                            
+                            if (h.users == 0)
+                                if (idle > NCConversation.CONV_CLEAR_DELAY) {
+                                    it.remove()
+                                    
+                                    cnt += 1
+                                }
+                                else if (store != null && idle > SPILL_DELAY) {
+                                    it.remove()
+                                    
+                                    buf += e.getKey → h.conv
+                                }
+                        }
+                        
+                        buf
+                    }
+                
+                for ((key, conv) ← idle)
+                    spill(key, conv)
+            }
+        
+        if (store != null)
+            try
+                cnt += store.removeStale(now - NCConversation.CONV_CLEAR_DELAY)
+            catch {
+                case e: java.io.IOException ⇒ logger.error("Failed to clean up conversations store.", e)
+            }
+        
+        expired.inc(cnt)
+        
+        if (cnt > 0 && !IS_PROBE_SILENT)
+            logger.trace(s"Stale conversations removed: $cnt")
+    }
+    
+    /**
+      * Removes least recently used conversations which are not in use from the oversized shard.
+      * NOTE: should be called under shard lock.
+      *
+      * @param shard Shard.
+      * @return Removed conversations.
+      */
+    private def evict(shard: Shard): Seq[(Key, NCConversation)] = {
+        val buf = mutable.ArrayBuffer.empty[(Key, NCConversation)]
+        val it = shard.entrySet().iterator()
+        
+        // Shard can stay oversized while its conversations are in use.
+        while (shard.size() > shard.maxSize && it.hasNext) {
+            val e = it.next()
+            
+            if (e.getValue.users == 0) {
+                it.remove()
+                
+                buf += e.getKey → e.getValue.conv
+            }
+        }
+        
+        evicted.inc(buf.size)
+        
+        buf
+    }
+    
+    /**
+      * Moves conversation to the disk store, if it is used.
+      * NOTE: conversation is lost if it cannot be written.
+      *
+      * @param key Conversation key.
+      * @param conv Conversation.
+      */
+    private def spill(key: Key, conv: NCConversation): Unit = {
+        val store = this.store
+        
+        if (store != null)
+            try {
+                store.put(key, conv)
+                
+                spilled.inc()
+            }
+            catch {
+                case e: java.io.IOException ⇒ logger.error(s"Failed to store conversation: $key", e)
+            }
+    }
+    
+    /**
+      * Reads conversation back from the disk store, if it was stored there.
+      *
+      * @param key Conversation key.
+      */
+    private def restore(key: Key): Option[NCConversation] = {
+        val store = this.store
+        
+        if (store == null)
+            None
+        else
+            try {
+                val conv = store.take(key)
+                
+                if (conv.isDefined)
+                    restored.inc()
+                
+                conv
+            }
+            catch {
+                case e: java.io.IOException ⇒
+                    logger.error(s"Failed to restore conversation: $key", e)
+                    
+                    None
+            }
+    }
+    
+    /**
+      *
+      * @param key Conversation key.
+      */
+    private def shardOf(key: Key): Shard = shards((key.hashCode() & Int.MaxValue) % SHARDS_CNT)
+    
+    /**
+      * Takes conversation from the shard, if it is there.
+      *
+      * @param shard Shard.
+      * @param key Conversation key.
+      */
+    private def acquire(shard: Shard, key: Key): Option[NCConversation] =
+        shard.synchronized {
+            shard.get(key) match {
+                case null ⇒ None
+                case h ⇒
+                    h.users += 1
+                    
+                    Some(h.conv)
+            }
+        }
+    
+    /**
+      * Takes conversation for given key. Taken conversation is kept in memory until it is
+      * given back by `release` method.
       *
       * @param usrId User ID.
       * @param dsId Data source ID.
       * @return New or existing conversation.
       */
     def get(usrId: Long, dsId: Long): NCConversation = {
-        convs.synchronized {
-            convs.getOrElseUpdate(Key(usrId, dsId), NCConversation(usrId, dsId))
+        val key = Key(usrId, dsId)
+        val shard = shardOf(key)
+        
+        acquire(shard, key) match {
+            case Some(conv) ⇒ conv
+            case None ⇒
+                shard.io.synchronized {
+                    // Could be read back by concurrent request.
+                    acquire(shard, key) match {
+                        case Some(conv) ⇒ conv
+                        case None ⇒
+                            val h = new Holder(
+                                restore(key) match {
+                                    case Some(c) ⇒ c
+                                    case None ⇒
+                                        created.inc()
+                                        
+                                        NCConversation(usrId, dsId)
+                                }
+                            )
+                            
+                            h.users = 1
+                            
+                            val victims =
+                                shard.synchronized {
+                                    shard.put(key, h)
+                                    
+                                    evict(shard)
+                                }
+                            
+                            for ((k, conv) ← victims)
+                                spill(k, conv)
+                            
+                            h.conv
+                    }
+                }
+        }
+    }
+    
+    /**
+      * Gives back conversation taken by `get` method.
+      *
+      * @param usrId User ID.
+      * @param dsId Data source ID.
+      */
+    def release(usrId: Long, dsId: Long): Unit = {
+        val key = Key(usrId, dsId)
+        val shard = shardOf(key)
+        
+        shard.synchronized {
+            val h = shard.get(key)
+            
+            // Shards are cleared on stop.
+            if (h != null && h.users > 0)
+                h.users -= 1
         }
     }
 }
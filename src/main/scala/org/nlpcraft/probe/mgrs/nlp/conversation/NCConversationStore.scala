@@ -0,0 +1,299 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.probe.mgrs.nlp.conversation
+
+import java.io._
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption._
+import java.nio.file.{Files, Path, StandardCopyOption}
+
+import com.typesafe.scalalogging.LazyLogging
+import org.nlpcraft.probe.mgrs.nlp.conversation.NCConversationManager.Key
+
+import scala.collection.mutable
+
+/**
+  * Append-only local disk store for idle conversations. Each conversation is stored as a single
+  * length-prefixed record, only the in-memory index of (key → record offset) is kept on heap.
+  * Records which were taken back or expired become garbage and the file is compacted once
+  * garbage exceeds live data.
+  *
+  * Store content doesn't survive probe restart: the file is deleted on close.
+  *
+  * @param dir Store folder.
+  */
+private[conversation] class NCConversationStore(dir: File) extends LazyLogging {
+    // Minimal garbage size to trigger compaction.
+    private final val COMPACT_MIN_GARBAGE = 16L * 1024 * 1024
+    
+    /**
+      *
+      * @param off Record offset.
+      * @param len Record length (without length prefix).
+      * @param lastUpdate Conversation last update timestamp.
+      */
+    private case class Entry(off: Long, len: Int, lastUpdate: Long)
+    
+    private val idx = mutable.HashMap.empty[Key, Entry]
+    
+    private var path: Path = _
+    private var ch: FileChannel = _
+    private var live = 0L
+    private var garbage = 0L
+    
+    /**
+      * Opens the store.
+      */
+    @throws[IOException]
+    def open(): Unit = synchronized {
+        if (!dir.exists() && !dir.mkdirs())
+            throw new IOException(s"Folder cannot be created: ${dir.getAbsolutePath}")
+        
+        path = File.createTempFile("conversations-", ".dat", dir).toPath
+        ch = FileChannel.open(path, READ, WRITE)
+    }
+    
+    /**
+      * Closes the store and deletes its file.
+      */
+    def close(): Unit = synchronized {
+        idx.clear()
+        
+        if (ch != null) {
+            try
+                ch.close()
+            catch {
+                case e: IOException ⇒ logger.warn(s"Failed to close conversations store: $path", e)
+            }
+            
+            ch = null
+        }
+        
+        if (path != null) {
+            Files.deleteIfExists(path)
+            
+            path = null
+        }
+    }
+    
+    /**
+      * Gets number of stored conversations.
+      */
+    def size: Int = synchronized { idx.size }
+    
+    /**
+      * Stores conversation, replacing previously stored one with the same key.
+      *
+      * @param key Conversation key.
+      * @param conv Conversation.
+      */
+    @throws[IOException]
+    def put(key: Key, conv: NCConversation): Unit = {
+        // Serialized outside of the store lock.
+        val bos = new ByteArrayOutputStream()
+        val out = new ObjectOutputStream(bos)
+        
+        conv.write(out)
+        
+        out.close()
+        
+        val bytes = bos.toByteArray
+        
+        synchronized {
+            val off = ch.size()
+            val buf = ByteBuffer.allocate(4 + bytes.length)
+            
+            buf.putInt(bytes.length).put(bytes).flip()
+            
+            writeFully(ch, buf, off)
+            
+            idx.put(key, Entry(off, bytes.length, conv.lastUpdate)) match {
+                case Some(old) ⇒ release(old)
+                case None ⇒ // No-op.
+            }
+            
+            live += bytes.length + 4
+        }
+    }
+    
+    /**
+      * Removes conversation from the store and returns it, if it was stored.
+      *
+      * @param key Conversation key.
+      */
+    @throws[IOException]
+    def take(key: Key): Option[NCConversation] = {
+        val bytes =
+            synchronized {
+                idx.remove(key) match {
+                    case Some(e) ⇒
+                        release(e)
+                        
+                        val buf = ByteBuffer.allocate(e.len)
+                        
+                        readFully(ch, buf, e.off + 4)
+                        
+                        Some(buf.array())
+                        
+                    case None ⇒ None
+                }
+            }
+        
+        bytes.map(b ⇒ NCConversation.read(key.userId, key.dsId, new ObjectInputStream(new ByteArrayInputStream(b))))
+    }
+    
+    /**
+      * Removes conversations which were not updated since given timestamp and compacts the store, if needed.
+      *
+      * @param minUpdate Minimal last update timestamp for conversation to be retained.
+      * @return Number of removed conversations.
+      */
+    @throws[IOException]
+    def removeStale(minUpdate: Long): Int = synchronized {
+        val stale = idx.filter(_._2.lastUpdate < minUpdate)
+        
+        for ((key, e) ← stale) {
+            idx.remove(key)
+            
+            release(e)
+        }
+        
+        if (idx.isEmpty) {
+            ch.truncate(0)
+            
+            live = 0
+            garbage = 0
+        }
+        else if (garbage >= COMPACT_MIN_GARBAGE && garbage > live)
+            compact()
+        
+        stale.size
+    }
+    
+    /**
+      * Marks record as garbage.
+      *
+      * @param e Index entry.
+      */
+    private def release(e: Entry): Unit = {
+        live -= e.len + 4
+        garbage += e.len + 4
+    }
+    
+    /**
+      * Rewrites live records into the new file. Index and channel are replaced only when the new
+      * file is in place, so the store stays consistent if compaction fails.
+      */
+    @throws[IOException]
+    private def compact(): Unit = {
+        val newPath = File.createTempFile("conversations-", ".tmp", dir).toPath
+        val newCh = FileChannel.open(newPath, READ, WRITE)
+        val newIdx = mutable.HashMap.empty[Key, Entry]
+        
+        var off = 0L
+        
+        try {
+            for ((key, e) ← idx.toSeq.sortBy(_._2.off)) {
+                val len = e.len + 4
+                var pos = 0L
+                
+                while (pos < len) {
+                    val n = ch.transferTo(e.off + pos, len - pos, newCh)
+                    
+                    if (n <= 0)
+                        throw new EOFException(s"Unexpected end of conversations store: $path")
+                    
+                    pos += n
+                }
+                
+                newIdx.put(key, e.copy(off = off))
+                
+                off += len
+            }
+            
+            // Opened channels are not affected by the file renaming.
+            Files.move(newPath, path, StandardCopyOption.REPLACE_EXISTING)
+        }
+        catch {
+            case e: IOException ⇒
+                newCh.close()
+                Files.deleteIfExists(newPath)
+                
+                throw e
+        }
+        
+        ch.close()
+        
+        ch = newCh
+        
+        idx.clear()
+        idx ++= newIdx
+        
+        live = off
+        garbage = 0
+        
+        logger.trace(s"Conversations store compacted [conversations=${idx.size}, size=$off]")
+    }
+    
+    /**
+      *
+      * @param ch Channel.
+      * @param buf Buffer to write.
+      * @param off File offset.
+      */
+    private def writeFully(ch: FileChannel, buf: ByteBuffer, off: Long): Unit = {
+        var pos = off
+        
+        while (buf.hasRemaining)
+            pos += ch.write(buf, pos)
+    }
+    
+    /**
+      *
+      * @param ch Channel.
+      * @param buf Buffer to read into.
+      * @param off File offset.
+      */
+    private def readFully(ch: FileChannel, buf: ByteBuffer, off: Long): Unit = {
+        var pos = off
+        
+        while (buf.hasRemaining) {
+            val n = ch.read(buf, pos)
+            
+            if (n < 0)
+                throw new EOFException(s"Unexpected end of conversations store: $path")
+            
+            pos += n
+        }
+    }
+}
@@ -32,29 +32,22 @@
 package org.nlpcraft.probe.mgrs.nlp.pre
 
 import com.typesafe.scalalogging.LazyLogging
-import org.apache.tika.langdetect.OptimaizeLangDetector
 import org.nlpcraft.common.NCLifecycle
 import org.nlpcraft.common.nlp.NCNlpSentence
 import org.nlpcraft.probe.mgrs.NCModelDecorator
 
 /**
-  * Pre-checker.
+  * Pre-checker. Language and charset are detected on the server and shipped with the sentence.
   */
 object NCNlpPreChecker extends NCLifecycle("Pre-checker") with LazyLogging {
-    // Create new language finder singleton.
-    private val langFinder = new OptimaizeLangDetector()
-    
-    // Initialize language finder.
-    langFinder.loadModels()
-    
     @throws[NCNlpPreException]
     def validate(mdl: NCModelDecorator, ns: NCNlpSentence) {
         val model = mdl.model
         
-        if (!model.isNotLatinCharsetAllowed && !ns.text.matches("""[\s\w\p{Punct}]+"""))
+        if (!model.isNotLatinCharsetAllowed && !ns.isLatinCharset)
             throw NCNlpPreException("ALLOW_NON_LATIN_CHARSET")
     
-        if (!model.isNonEnglishAllowed && !langFinder.detect(ns.text).isLanguage("en"))
+        if (!model.isNonEnglishAllowed && !ns.isEnglish)
             throw NCNlpPreException("ALLOW_NON_ENGLISH")
     
         if (!model.isNoNounsAllowed && !ns.exists(_.pos.startsWith("n")))
@@ -44,6 +44,7 @@ import org.nlpcraft.server.endpoints.NCEndpointManager
 import org.nlpcraft.server.geo.NCGeoManager
 import org.nlpcraft.server.ignite.{NCIgniteInstance, NCIgniteRunner}
 import org.nlpcraft.server.nlp.enrichers.NCNlpEnricherManager
+import org.nlpcraft.server.nlp.lang.NCLanguageManager
 import org.nlpcraft.server.nlp.preproc.NCPreProcessManager
 import org.nlpcraft.server.nlp.spell.NCSpellCheckManager
 import org.nlpcraft.server.nlp.synonym.NCSynonymManager
@@ -51,7 +52,7 @@ import org.nlpcraft.server.nlp.wordnet.NCWordNetManager
 import org.nlpcraft.server.notification.NCNotificationManager
 import org.nlpcraft.server.plugin.NCPluginManager
 import org.nlpcraft.server.probe.NCProbeManager
-import org.nlpcraft.server.proclog.NCProcessLogManager
+import org.nlpcraft.server.proclog.{NCProcessLogManager, NCProcessLogPartitionManager}
 import org.nlpcraft.server.query.NCQueryManager
 import org.nlpcraft.server.rest.NCRestManager
 import org.nlpcraft.server.tx.NCTxManager
@@ -93,12 +94,14 @@ object NCServer extends App with NCIgniteInstance with LazyLogging {
         NCPluginManager.start()
         NCTxManager.start()
         NCDbManager.start()
+        NCProcessLogPartitionManager.start()
         NCProcessLogManager.start()
         NCWordNetManager.start()
         NCDictionaryManager.start()
         NCSpellCheckManager.start()
         NCSynonymManager.start()
         NCPreProcessManager.start()
+        NCLanguageManager.start()
         NCGeoManager.start()
         NCNlpManager.start()
         NCNumericManager.start()
@@ -139,12 +142,14 @@ object NCServer extends App with NCIgniteInstance with LazyLogging {
         NCNumericManager.stop()
         NCNlpManager.stop()
         NCGeoManager.stop()
+        NCLanguageManager.stop()
         NCPreProcessManager.stop()
         NCSynonymManager.stop()
         NCSpellCheckManager.stop()
         NCDictionaryManager.stop()
         NCWordNetManager.stop()
         NCProcessLogManager.stop()
+        NCProcessLogPartitionManager.stop()
         NCDbManager.stop()
         NCTxManager.stop()
         NCPluginManager.stop()
@@ -31,15 +31,17 @@
 
 package org.nlpcraft.server.db
 
-import java.sql.Timestamp
+import java.io.{IOException, OutputStream}
+import java.sql.{SQLException, Timestamp}
 import java.time.LocalDate
 
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
 import org.nlpcraft.server.apicodes.NCApiStatusCode._
-import org.nlpcraft.server.db.postgres.NCPsql
+import org.nlpcraft.server.db.postgres.{NCPsql, NCPsqlBatch}
 import org.nlpcraft.server.db.postgres.NCPsql.Implicits._
 import org.nlpcraft.server.mdo._
+import org.postgresql.PGConnection
 
 /**
   * Provides basic CRUD and often used operations on PostgreSQL RDBMS.
@@ -48,6 +50,229 @@ import org.nlpcraft.server.mdo._
 object NCDbManager extends NCLifecycle("Database manager") {
     // Relative database schema path.
     private final val SCHEMA_PATH = "sql/schema.sql"
+
+    // SQL statements are built once so that the same text always hits the statement cache of pooled connections.
+    private final val SQL_EXISTS_PASSWD_HASH = "SELECT 1 FROM passwd_pool WHERE passwd_hash = ? LIMIT 1"
+
+    private final val SQL_INSERT_PASSWD_HASH = "INSERT INTO passwd_pool (passwd_hash) VALUES (?)"
+
+    private final val SQL_DELETE_PASSWD_HASH = "DELETE FROM passwd_pool WHERE passwd_hash = ?"
+
+    private final val SQL_SELECT_USER =
+        """
+          |SELECT *
+          |FROM nc_user
+          |WHERE
+          |    id = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_SELECT_USER_BY_EMAIL =
+        """
+          |SELECT *
+          |FROM nc_user
+          |WHERE
+          |    email = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_SELECT_ALL_USERS =
+        """
+          |SELECT *
+          |FROM nc_user
+          |WHERE deleted = FALSE""".stripMargin
+
+    private final val SQL_INSERT_USER =
+        """
+          |INSERT INTO nc_user(
+          |    id,
+          |    first_name,
+          |    last_name,
+          |    email,
+          |    passwd_salt,
+          |    avatar_url,
+          |    last_ds_id,
+          |    is_admin
+          |)
+          |VALUES (?, ?, ?, ?, ?, ?, ?, ?)""".stripMargin
+
+    private final val SQL_UPDATE_USER =
+        """
+          |UPDATE nc_user
+          |SET
+          |    first_name = ?,
+          |    last_name = ?,
+          |    avatar_url = ?,
+          |    is_admin = ?,
+          |    last_modified_on = current_timestamp
+          |WHERE
+          |    id = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_MARK_USER_DELETED =
+        """
+          |UPDATE nc_user
+          |SET
+          |    deleted = TRUE,
+          |    deleted_on = current_timestamp,
+          |    last_modified_on = current_timestamp
+          |WHERE
+          |    id = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_SELECT_DS =
+        """
+          |SELECT *
+          |FROM ds_instance
+          |WHERE
+          |    id = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_SELECT_ALL_DS =
+        """
+          |SELECT *
+          |FROM ds_instance
+          |WHERE deleted = FALSE""".stripMargin
+
+    private final val SQL_INSERT_DS =
+        """
+          |INSERT INTO ds_instance(
+          |     id,
+          |     name,
+          |     short_desc,
+          |     model_id,
+          |     model_name,
+          |     model_ver,
+          |     model_cfg,
+          |     is_temporary
+          |) VALUES (?, ?, ?, ?, ?, ?, ?, ?)""".stripMargin
+
+    private final val SQL_UPDATE_DS =
+        """
+          |UPDATE ds_instance
+          |SET
+          |    name = ?,
+          |    short_desc = ?,
+          |    last_modified_on = current_timestamp
+          |WHERE
+          |    id = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_MARK_DS_DELETED =
+        """
+          |UPDATE ds_instance
+          |SET
+          |    deleted = TRUE,
+          |    deleted_on = current_timestamp,
+          |    last_modified_on = current_timestamp
+          |WHERE
+          |    id = ? AND
+          |    deleted = FALSE""".stripMargin
+
+    private final val SQL_DELETE_DS = "DELETE FROM ds_instance WHERE id = ?"
+
+    // Processing log status of the cancelled request.
+    final val QRY_CANCELLED = "QRY_CANCELLED"
+
+    // Processing log SQL statements (shared by single-row and batched updates).
+    // Updates filter by the receive timestamp too, so that only one partition is scanned.
+    private final val SQL_INSERT_PROC_LOG =
+        """
+          |INSERT
+          |  INTO proc_log (
+          |     user_id,
+          |     srv_req_id,
+          |     txt,
+          |     ds_id,
+          |     model_id,
+          |     status,
+          |     is_test,
+          |     user_agent,
+          |     rmt_address,
+          |     recv_tstamp
+          | )
+          | VALUES (
+          |     ?, ?, ?, ?, ?, ?, ?, ?, ?, ?
+          | )""".stripMargin
+
+    private final val SQL_INSERT_FULL_PROC_LOG =
+        """
+          |INSERT
+          |  INTO proc_log (
+          |     user_id,
+          |     srv_req_id,
+          |     txt,
+          |     ds_id,
+          |     model_id,
+          |     status,
+          |     is_test,
+          |     user_agent,
+          |     rmt_address,
+          |     recv_tstamp,
+          |     resp_tstamp,
+          |     cancel_tstamp,
+          |     res_type,
+          |     res_body_gzip,
+          |     error,
+          |     probe_session_id,
+          |     timings
+          | )
+          | VALUES (
+          |     ?, ?, ?, ?, ?, ?, ?, ?, ?, ?,
+          |     ?, ?, ?, ?, ?, ?, ?::jsonb
+          | )""".stripMargin
+
+    private final val SQL_UPDATE_CANCEL_PROC_LOG =
+        """
+          |UPDATE proc_log
+          |SET
+          |    status = ?,
+          |    cancel_tstamp = ?
+          |WHERE srv_req_id = ? AND recv_tstamp = ?""".stripMargin
+
+    private final val SQL_UPDATE_READY_PROC_LOG =
+        """
+          |UPDATE proc_log
+          |SET
+          |    status = ?,
+          |    error = ?,
+          |    res_type = ?,
+          |    res_body_gzip = ?,
+          |    resp_tstamp = ?,
+          |    timings = ?::jsonb
+          |WHERE srv_req_id = ? AND recv_tstamp = ?""".stripMargin
+
+    private final val SQL_INSERT_PROBE_SESSION =
+        """
+          |INSERT
+          |  INTO probe_session (
+          |     probe_token,
+          |     probe_id,
+          |     probe_guid,
+          |     probe_api_version,
+          |     probe_api_date,
+          |     probe_os_version,
+          |     probe_os_name,
+          |     probe_os_arch,
+          |     probe_start_tstamp,
+          |     probe_tmz_id,
+          |     probe_tmz_abbr,
+          |     probe_tmz_name,
+          |     probe_user_name,
+          |     probe_java_version,
+          |     probe_java_vendor,
+          |     probe_host_name,
+          |     probe_host_addr,
+          |     probe_mac_addr
+          | )
+          | VALUES (
+          |     ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?
+          | )""".stripMargin
+
+    private final val SQL_UPDATE_PROBE_PROC_LOG =
+        """
+          |UPDATE proc_log
+          |SET
+          |    probe_session_id = ?
+          |WHERE srv_req_id = ? AND recv_tstamp = ?""".stripMargin
     
     /**
       * Starts manager.
@@ -121,7 +346,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
     def isKnownPasswordHash(hash: String): Boolean = {
         ensureStarted()
     
-        NCPsql.exists("passwd_pool WHERE passwd_hash = ?", hash)
+        NCPsql.exists(SQL_EXISTS_PASSWD_HASH, hash)
     }
     
     /**
@@ -133,7 +358,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
     def addPasswordHash(hash: String): Unit = {
         ensureStarted()
     
-        NCPsql.insert("INSERT INTO passwd_pool (passwd_hash) VALUES (?)", hash)
+        NCPsql.insert(SQL_INSERT_PASSWD_HASH, hash)
     }
     
     /**
@@ -145,7 +370,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
     def erasePasswordHash(hash: String): Unit = {
         ensureStarted()
     
-        NCPsql.delete("DELETE FROM passwd_pool WHERE passwd_hash = ?", hash)
+        NCPsql.delete(SQL_DELETE_PASSWD_HASH, hash)
     }
 
     /**
@@ -159,12 +384,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
 
         NCPsql.selectSingle[NCUserMdo](
-            """
-              |SELECT *
-              |FROM nc_user
-              |WHERE
-              |    email = ? AND
-              |    deleted = FALSE""".stripMargin,
+            SQL_SELECT_USER_BY_EMAIL,
             email
         )
     }
@@ -178,7 +398,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
     def deleteUser(usrId: Long): Unit = {
         ensureStarted()
 
-        NCPsql.markAsDeleted("nc_user", "id", usrId)
+        NCPsql.update(SQL_MARK_USER_DELETED, usrId)
     }
 
     /**
@@ -190,7 +410,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
     def deleteDataSource(dsId: Long): Unit = {
         ensureStarted()
         
-        NCPsql.markAsDeleted("ds_instance", "id", dsId)
+        NCPsql.update(SQL_MARK_DS_DELETED, dsId)
     }
 
     /**
@@ -202,7 +422,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
     def eraseDataSource(dsId: Long): Unit = {
         ensureStarted()
 
-        NCPsql.delete("DELETE FROM ds_instance WHERE id = ?", dsId)
+        NCPsql.delete(SQL_DELETE_DS, dsId)
     }
 
     /**
@@ -225,18 +445,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
 
         NCPsql.update(
-            s"""
-               |UPDATE nc_user
-               |SET
-               |    first_name = ?,
-               |    last_name = ?,
-               |    avatar_url = ?,
-               |    is_admin = ?,
-               |    last_modified_on = current_timestamp
-               |WHERE
-               |    id = ? AND
-               |    deleted = FALSE
-                """.stripMargin,
+            SQL_UPDATE_USER,
             firstName,
             lastName,
             avatarUrl.orNull,
@@ -261,16 +470,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
         
         NCPsql.update(
-            s"""
-               |UPDATE ds_instance
-               |SET
-               |    name = ?,
-               |    short_desc = ?,
-               |    last_modified_on = current_timestamp
-               |WHERE
-               |    id = ? AND
-               |    deleted = FALSE
-                """.stripMargin,
+            SQL_UPDATE_DS,
             name,
             shortDesc,
             dsId
@@ -288,13 +488,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
     
         NCPsql.selectSingle[NCUserMdo](
-            s"""
-               |SELECT *
-               |FROM nc_user
-               |WHERE
-               |    id = ? AND
-               |    deleted = FALSE
-            """.stripMargin,
+            SQL_SELECT_USER,
             usrId)
     }
     
@@ -309,13 +503,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
         
         NCPsql.selectSingle[NCDataSourceMdo](
-            s"""
-               |SELECT *
-               |FROM ds_instance
-               |WHERE
-               |    id = ? AND
-               |    deleted = FALSE
-            """.stripMargin,
+            SQL_SELECT_DS,
             dsId)
     }
 
@@ -329,11 +517,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
         
         NCPsql.select[NCUserMdo](
-            s"""
-               |SELECT *
-               |FROM nc_user
-               |WHERE deleted = FALSE
-            """.stripMargin)
+            SQL_SELECT_ALL_USERS)
     }
     
     /**
@@ -346,11 +530,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
         
         NCPsql.select[NCDataSourceMdo](
-            s"""
-               |SELECT *
-               |FROM ds_instance
-               |WHERE deleted = FALSE
-            """.stripMargin)
+            SQL_SELECT_ALL_DS)
     }
 
     /**
@@ -378,18 +558,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         
         // Insert user.
         NCPsql.insertGetKey[Long](
-            """
-              | INSERT INTO nc_user(
-              |    id,
-              |    first_name,
-              |    last_name,
-              |    email,
-              |    passwd_salt,
-              |    avatar_url,
-              |    last_ds_id,
-              |    is_admin
-              | )
-              | VALUES (?, ?, ?, ?, ?, ?, ?, ?)""".stripMargin,
+            SQL_INSERT_USER,
             id,
             firstName,
             lastName,
@@ -427,17 +596,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
 
         NCPsql.insertGetKey[Long](
-            """
-              |INSERT INTO ds_instance(
-              |     id,
-              |     name,
-              |     short_desc,
-              |     model_id,
-              |     model_name,
-              |     model_ver,
-              |     model_cfg,
-              |     is_temporary
-              |) VALUES (?, ?, ?, ?, ?, ?, ?, ?)""".stripMargin,
+            SQL_INSERT_DS,
             id,
             name,
             desc,
@@ -478,23 +637,7 @@ object NCDbManager extends NCLifecycle("Database manager") {
         ensureStarted()
         
         NCPsql.insertSingle(
-            """
-              |INSERT
-              |  INTO proc_log (
-              |     user_id,
-              |     srv_req_id,
-              |     txt,
-              |     ds_id,
-              |     model_id,
-              |     status,
-              |     is_test,
-              |     user_agent,
-              |     rmt_address,
-              |     recv_tstamp
-              | )
-              | VALUES (
-              |     ?, ?, ?, ?, ?, ?, ?, ?, ?, ?
-              | )""".stripMargin,
+            SQL_INSERT_PROC_LOG,
             usrId,
             srvReqId,
             txt,
@@ -511,25 +654,22 @@ object NCDbManager extends NCLifecycle("Database manager") {
     /**
       * 
       * @param srvReqId
+      * @param rcvTstamp Receive timestamp of the request (partition key).
       * @param tstamp
       */
     @throws[NCE]
     def updateCancelProcessingLog(
         srvReqId: String,
+        rcvTstamp: Timestamp,
         tstamp: Timestamp
     ): Unit = {
         ensureStarted()
         NCPsql.insertSingle(
-            """
-              |UPDATE proc_log
-              |SET
-              |    status = ?,
-              |    cancel_tstamp = ?
-              |WHERE srv_req_id = ?
-            """.stripMargin,
-            "QRY_CANCELLED",
+            SQL_UPDATE_CANCEL_PROC_LOG,
+            QRY_CANCELLED,
             tstamp,
-            srvReqId
+            srvReqId,
+            rcvTstamp
         )
     }
     
@@ -537,45 +677,42 @@ object NCDbManager extends NCLifecycle("Database manager") {
       * Updates processing log.
       *
       * @param srvReqId
+      * @param rcvTstamp Receive timestamp of the request (partition key).
       * @param errMsg
       * @param resType
       * @param resBody
       * @param tstamp
+      * @param timings Latency trace hops as JSON text, or `null`.
       */
     @throws[NCE]
     def updateReadyProcessingLog(
         srvReqId: String,
+        rcvTstamp: Timestamp,
         errMsg: String,
         resType: String,
         resBody: String,
-        tstamp: Timestamp
+        tstamp: Timestamp,
+        timings: String
     ): Unit = {
         ensureStarted()
         
         NCPsql.insertSingle(
-            """
-              |UPDATE proc_log
-              |SET
-              |    status = ?,
-              |    error = ?,
-              |    res_type = ?,
-              |    res_body_gzip = ?,
-              |    resp_tstamp = ?
-              |WHERE srv_req_id = ?
-               """.stripMargin,
+            SQL_UPDATE_READY_PROC_LOG,
             QRY_READY.toString,
             errMsg,
             resType,
             resBody,
             tstamp,
-            srvReqId
+            timings,
+            srvReqId,
+            rcvTstamp
         )
     }
     
     /**
-      * Updates processing log.
+      * Adds probe session, i.e. information about registered probe shared by all
+      * processing log entries of this probe.
       *
-      * @param srvReqId
       * @param probeToken
       * @param probeId
       * @param probeGuid
@@ -594,10 +731,10 @@ object NCDbManager extends NCLifecycle("Database manager") {
       * @param hostName
       * @param hostAddr
       * @param macAddr
+      * @return ID of the new probe session.
       */
     @throws[NCE]
-    def updateProbeProcessingLog(
-        srvReqId: String,
+    def addProbeSession(
         probeToken: String,
         probeId: String,
         probeGuid: String,
@@ -616,33 +753,11 @@ object NCDbManager extends NCLifecycle("Database manager") {
         hostName: String,
         hostAddr: String,
         macAddr: String
-    ): Unit = {
+    ): Long = {
         ensureStarted()
-        
-        NCPsql.insertSingle(
-            """
-              |UPDATE proc_log
-              |SET
-              |    probe_token = ?,
-              |    probe_id = ?,
-              |    probe_guid = ?,
-              |    probe_api_version = ?,
-              |    probe_api_date = ?,
-              |    probe_os_version = ?,
-              |    probe_os_name = ?,
-              |    probe_os_arch = ?,
-              |    probe_start_tstamp = ?,
-              |    probe_tmz_id = ?,
-              |    probe_tmz_abbr = ?,
-              |    probe_tmz_name = ?,
-              |    probe_user_name = ?,
-              |    probe_java_version = ?,
-              |    probe_java_vendor = ?,
-              |    probe_host_name = ?,
-              |    probe_host_addr = ?,
-              |    probe_mac_addr = ?
-              |WHERE srv_req_id = ?
-            """.stripMargin,
+
+        NCPsql.insertGetKey[Long](
+            SQL_INSERT_PROBE_SESSION,
             probeToken,
             probeId,
             probeGuid,
@@ -660,11 +775,202 @@ object NCDbManager extends NCLifecycle("Database manager") {
             javaVendor,
             hostName,
             hostAddr,
-            macAddr,
-            srvReqId
+            macAddr
+        )
+    }
+
+    /**
+      * Updates processing log with the probe session processing the request.
+      *
+      * @param srvReqId Server request ID.
+      * @param rcvTstamp Receive timestamp of the request (partition key).
+      * @param probeSessionId Probe session ID.
+      */
+    @throws[NCE]
+    def updateProbeProcessingLog(
+        srvReqId: String,
+        rcvTstamp: Timestamp,
+        probeSessionId: Long
+    ): Unit = {
+        ensureStarted()
+        
+        NCPsql.insertSingle(
+            SQL_UPDATE_PROBE_PROC_LOG,
+            probeSessionId,
+            srvReqId,
+            rcvTstamp
         )
     }
 
+    /**
+      * Creates batch of complete processing log inserts. Parameters of each row go in the same
+      * order as columns of `proc_log` table: `user_id`, `srv_req_id`, `txt`, `ds_id`, `model_id`,
+      * `status`, `is_test`, `user_agent`, `rmt_address`, `recv_tstamp`, `resp_tstamp`, `cancel_tstamp`,
+      * `res_type`, `res_body_gzip`, `error`, `probe_session_id` and `timings` (JSON text).
+      *
+      * @param size Batch size.
+      */
+    @throws[NCE]
+    def newFullProcessingLogBatch(size: Int): NCPsqlBatch = {
+        ensureStarted()
+
+        NCPsql.batch(SQL_INSERT_FULL_PROC_LOG, size)
+    }
+
+    /**
+      * Creates batch of cancel updates. Row parameters: status, cancel timestamp, server request ID
+      * and receive timestamp.
+      *
+      * @param size Batch size.
+      */
+    @throws[NCE]
+    def updateCancelProcessingLogBatch(size: Int): NCPsqlBatch = {
+        ensureStarted()
+
+        NCPsql.batch(SQL_UPDATE_CANCEL_PROC_LOG, size)
+    }
+
+    /**
+      * Creates batch of result updates. Row parameters: status, error, result type, result body,
+      * response timestamp, timings (JSON text), server request ID and receive timestamp.
+      *
+      * @param size Batch size.
+      */
+    @throws[NCE]
+    def updateReadyProcessingLogBatch(size: Int): NCPsqlBatch = {
+        ensureStarted()
+
+        NCPsql.batch(SQL_UPDATE_READY_PROC_LOG, size)
+    }
+
+    /**
+      * Creates batch of probe updates. Row parameters: probe session ID, server request ID and receive timestamp.
+      *
+      * @param size Batch size.
+      */
+    @throws[NCE]
+    def updateProbeProcessingLogBatch(size: Int): NCPsqlBatch = {
+        ensureStarted()
+
+        NCPsql.batch(SQL_UPDATE_PROBE_PROC_LOG, size)
+    }
+
+    /**
+      * Gets all range partitions of processing log ordered by their lower bound.
+      * Default partition is not included.
+      */
+    @throws[NCE]
+    def getProcessingLogPartitions: List[NCProcessLogPartitionMdo] = {
+        ensureStarted()
+
+        NCPsql.select[NCProcessLogPartitionMdo](
+            """
+              |SELECT
+              |    c.relname AS name,
+              |    substring(pg_get_expr(c.relpartbound, c.oid) FROM 'FROM \(''([^'']+)''\)')::timestamp AS from_tstamp,
+              |    substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \(''([^'']+)''\)')::timestamp AS to_tstamp
+              |FROM pg_inherits i
+              |JOIN pg_class c ON c.oid = i.inhrelid
+              |JOIN pg_class p ON p.oid = i.inhparent
+              |WHERE
+              |    p.relname = 'proc_log' AND
+              |    pg_get_expr(c.relpartbound, c.oid) <> 'DEFAULT'
+              |ORDER BY from_tstamp""".stripMargin
+        )
+    }
+
+    /**
+      * Creates processing log partition for given range of receive timestamps. Partition can't be created
+      * while default partition contains rows of its range, so such rows are moved into the new partition
+      * (default partition is detached meanwhile). Should be called inside of 'NCPsql.sql' block.
+      *
+      * @param name Partition table name.
+      * @param from Inclusive lower bound.
+      * @param to Exclusive upper bound.
+      * @return Number of rows moved from the default partition.
+      */
+    @throws[NCE]
+    def addProcessingLogPartition(name: String, from: LocalDate, to: LocalDate): Int = {
+        ensureStarted()
+
+        val tbl = checkTableName(name)
+        val create = s"CREATE TABLE $tbl PARTITION OF proc_log FOR VALUES FROM ('$from') TO ('$to')"
+        val range = s"recv_tstamp >= '$from' AND recv_tstamp < '$to'"
+
+        if (NCPsql.exists(s"proc_log_default WHERE $range")) {
+            NCPsql.ddl("ALTER TABLE proc_log DETACH PARTITION proc_log_default")
+            NCPsql.ddl(create)
+
+            val moved = NCPsql.insert(s"INSERT INTO $tbl SELECT * FROM proc_log_default WHERE $range")
+
+            NCPsql.delete(s"DELETE FROM proc_log_default WHERE $range")
+            NCPsql.ddl("ALTER TABLE proc_log ATTACH PARTITION proc_log_default DEFAULT")
+
+            moved
+        }
+        else {
+            NCPsql.ddl(create)
+
+            0
+        }
+    }
+
+    /**
+      * Detaches processing log partition keeping it as a standalone table.
+      *
+      * @param name Partition table name.
+      */
+    @throws[NCE]
+    def detachProcessingLogPartition(name: String): Unit = {
+        ensureStarted()
+
+        NCPsql.ddl(s"ALTER TABLE proc_log DETACH PARTITION ${checkTableName(name)}")
+    }
+
+    /**
+      * Drops given table.
+      *
+      * @param name Table name.
+      */
+    @throws[NCE]
+    def dropTable(name: String): Unit = {
+        ensureStarted()
+
+        NCPsql.ddl(s"DROP TABLE IF EXISTS ${checkTableName(name)}")
+    }
+
+    /**
+      * Exports given table in CSV format (with header) into the output stream.
+      *
+      * @param name Table name.
+      * @param out Output stream.
+      * @return Number of exported rows.
+      */
+    @throws[NCE]
+    def exportTable(name: String, out: OutputStream): Long = {
+        ensureStarted()
+
+        try
+            NCPsql.connection().unwrap(classOf[PGConnection]).getCopyAPI.
+                copyOut(s"COPY ${checkTableName(name)} TO STDOUT WITH (FORMAT csv, HEADER)", out)
+        catch {
+            case e: SQLException ⇒ throw new NCE(s"Failed to export table: $name", e)
+            case e: IOException ⇒ throw new NCE(s"Failed to export table: $name", e)
+        }
+    }
+
+    /**
+      * Checks that table name is safe to use in the SQL text.
+      *
+      * @param name Table name.
+      */
+    @throws[NCE]
+    private def checkTableName(name: String): String =
+        if (name.matches("[a-z_][a-z0-9_]*"))
+            name
+        else
+            throw new NCE(s"Invalid table name: $name")
+
     /**
       * Gets maximum long column value.
       *
@@ -38,6 +38,7 @@ import com.mchange.v2.c3p0.ComboPooledDataSource
 import com.typesafe.scalalogging.LazyLogging
 import org.apache.ignite.transactions.Transaction
 import org.nlpcraft.common._
+import org.nlpcraft.common.metrics.NCMetrics
 import org.nlpcraft.server.NCConfigurable
 import org.nlpcraft.server.tx.NCTxManager
 import resource._
@@ -75,6 +76,9 @@ object NCPsql extends LazyLogging {
     import Implicits._
 
     private val threadLocal = new ThreadLocal[Connection]()
+    
+    private val poolWaitHist = NCMetrics.histogram("nlpcraft_db_pool_wait_seconds", "Time waiting for JDBC connection from the pool.")
+    private val qryHist = NCMetrics.histogram("nlpcraft_db_query_seconds", "Time of SQL statements execution.")
 
     // Type safe and eager settings container.
     private object Config extends NCConfigurable {
@@ -85,6 +89,7 @@ object NCPsql extends LazyLogging {
         val username: String = hocon.getString(s"$prefix.jdbc.username")
         val passwd: String = hocon.getString(s"$prefix.jdbc.password")
         val maxStmt: Int = hocon.getInt(s"$prefix.c3p0.maxStatements")
+        val maxStmtPerConn: Int = hocon.getInt(s"$prefix.c3p0.maxStatementsPerConnection")
         val initPoolSize: Int = hocon.getInt(s"$prefix.c3p0.pool.initSize")
         val minPoolSize: Int = hocon.getInt(s"$prefix.c3p0.pool.minSize")
         val maxPoolSize: Int = hocon.getInt(s"$prefix.c3p0.pool.maxSize")
@@ -99,6 +104,8 @@ object NCPsql extends LazyLogging {
                 s"Configuration property '$prefix.c3p0.pool.initSize' ($initPoolSize) must be <= '$prefix.c3p0.pool.maxSize' ($maxPoolSize).")
             require(acqInc > 0,
                 s"Configuration property '$prefix.c3p0.pool.acquireIncrement' must be > 0: $acqInc")
+            require(maxStmt >= 0 && maxStmtPerConn >= 0,
+                s"Configuration properties '$prefix.c3p0.maxStatements' and '$prefix.c3p0.maxStatementsPerConnection' must be >= 0.")
         }
     }
 
@@ -116,6 +123,7 @@ object NCPsql extends LazyLogging {
 
         // c3p0 settings.
         ds.setMaxStatements(Config.maxStmt)
+        ds.setMaxStatementsPerConnection(Config.maxStmtPerConn)
         ds.setMinPoolSize(Config.minPoolSize)
         ds.setAcquireIncrement(Config.acqInc)
         ds.setMaxPoolSize(Config.maxPoolSize)
@@ -258,7 +266,7 @@ object NCPsql extends LazyLogging {
                     if (cnt >= size) {
                         cnt = 0
 
-                        ps.executeBatch()
+                        executeBatch(ps)
                     }
                 }
             }
@@ -272,7 +280,7 @@ object NCPsql extends LazyLogging {
                     if (cnt != 0) {
                         require(ps != null)
 
-                        ps.executeBatch()
+                        executeBatch(ps)
                     }
 
                     if (ps != null) {
@@ -409,7 +417,11 @@ object NCPsql extends LazyLogging {
             
             try {
                 if (isNew) {
+                    val start = System.nanoTime()
+                    
                     c = c3p0.getConnection
+                    
+                    poolWaitHist.recordSince(start)
     
                     // Configure the connection.
                     c.setAutoCommit(false)
@@ -490,7 +502,7 @@ object NCPsql extends LazyLogging {
         var r = List.empty[R]
 
         catching(psqlErrorCodes) {
-            for (ps ← managed { prepare(sql, params) } ; rs ← managed { ps.executeQuery() } )
+            for (ps ← managed { prepare(sql, params) } ; rs ← managed { executeQuery(ps) } )
                 while (rs.next)
                     r :+= p(rs)
 
@@ -552,7 +564,7 @@ object NCPsql extends LazyLogging {
 
         catching(psqlErrorCodes) {
             managed { prepare(sql, params, Some("id")) } acquireAndGet { ps ⇒
-                ps.executeUpdate match {
+                executeUpdate(ps) match {
                     case 0 ⇒ throw noKeyFound
                     case 1 ⇒ managed(ps.getGeneratedKeys) acquireAndGet { rs ⇒
                         if (rs.next)
@@ -576,7 +588,7 @@ object NCPsql extends LazyLogging {
     @throws[NCE]
     def insert(sql: String, params: Any*): Int =
         catching(psqlErrorCodes) {
-            managed { prepare(sql, params) } acquireAndGet { _.executeUpdate }
+            managed { prepare(sql, params) } acquireAndGet { executeUpdate }
         }
 
     /**
@@ -593,6 +605,48 @@ object NCPsql extends LazyLogging {
             case c: Int ⇒ throw new NCE(s"Expected single insert count, but received $c inserts.")
         }
 
+    /**
+     * Executes query of given prepared statement recording its execution time.
+     *
+     * @param ps Prepared statement.
+     */
+    private def executeQuery(ps: PreparedStatement): ResultSet = {
+        val start = System.nanoTime()
+        
+        try
+            ps.executeQuery()
+        finally
+            qryHist.recordSince(start)
+    }
+    
+    /**
+     * Executes update of given prepared statement recording its execution time.
+     *
+     * @param ps Prepared statement.
+     */
+    private def executeUpdate(ps: PreparedStatement): Int = {
+        val start = System.nanoTime()
+        
+        try
+            ps.executeUpdate()
+        finally
+            qryHist.recordSince(start)
+    }
+    
+    /**
+     * Executes batch of given prepared statement recording its execution time.
+     *
+     * @param ps Prepared statement.
+     */
+    private def executeBatch(ps: PreparedStatement): Array[Int] = {
+        val start = System.nanoTime()
+        
+        try
+            ps.executeBatch()
+        finally
+            qryHist.recordSince(start)
+    }
+    
     /**
      * Executes update statement.
      *
@@ -601,7 +655,7 @@ object NCPsql extends LazyLogging {
      */
     private def exec(sql: String, params: Any*): Int =
         catching[Int](psqlErrorCodes) {
-            managed { prepare(sql, params) } acquireAndGet { _.executeUpdate }
+            managed { prepare(sql, params) } acquireAndGet { executeUpdate }
         }
 
     /**
@@ -700,7 +754,7 @@ object NCPsql extends LazyLogging {
     @throws[NCE]
     def select[R](sql: String, callback: R ⇒ Unit, params: Any*) (implicit p: RsParser[R]): Unit =
         catching(psqlErrorCodes) {
-            for (ps ← managed { prepare(sql, params) } ; rs ← managed { ps.executeQuery() } )
+            for (ps ← managed { prepare(sql, params) } ; rs ← managed { executeQuery(ps) } )
                 while (rs.next)
                     callback(p(rs))
         }
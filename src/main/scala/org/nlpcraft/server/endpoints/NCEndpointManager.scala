@@ -28,36 +28,45 @@
  * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
  *        /_/
  */
-
 package org.nlpcraft.server.endpoints
 
 import java.util.concurrent.{Executors, ScheduledExecutorService, TimeUnit}
 
+import akka.http.scaladsl.Http
+import akka.http.scaladsl.model._
+import akka.http.scaladsl.settings.ConnectionPoolSettings
+import akka.stream.BufferOverflowException
 import com.google.gson.Gson
-import org.apache.http.HttpResponse
-import org.apache.http.client.ResponseHandler
-import org.apache.http.client.methods.HttpPost
-import org.apache.http.entity.StringEntity
-import org.apache.http.impl.client.{CloseableHttpClient, HttpClients}
 import org.apache.ignite.IgniteCache
 import org.apache.ignite.cache.query.SqlQuery
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
+import org.nlpcraft.common.metrics.NCMetrics
+import org.nlpcraft.common.util.{NCTimingWheel, NCUtils}
 import org.nlpcraft.server.NCConfigurable
 import org.nlpcraft.server.ignite.NCIgniteHelpers._
 import org.nlpcraft.server.ignite.NCIgniteInstance
 import org.nlpcraft.server.mdo.NCQueryStateMdo
 import org.nlpcraft.server.query.NCQueryManager
+import org.nlpcraft.server.rest.NCRestManager
 import org.nlpcraft.server.tx.NCTxManager
-import org.nlpcraft.common.util.NCUtils
 
-import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
+import scala.collection.mutable
 import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.Future
 import scala.util.control.Exception.catching
+import scala.util.{Failure, Success}
 
 /**
   * Query result notification endpoints manager.
+  *
+  * Notifications are scheduled on the in-memory timing wheel by their send time, Ignite cache
+  * only keeps them for durability (they are rescheduled from the cache on start). Due notifications
+  * are sent in per-endpoint batches via pooled asynchronous HTTP client (connections are kept alive),
+  * each endpoint has at most one request in flight and notifications which became due meanwhile
+  * are sent with the next one. Total number of requests in flight is limited by 'maxConnections',
+  * so that HTTP client pools never overflow, endpoints over the limit wait for the next free slot.
   */
 object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteInstance {
     private object Config extends NCConfigurable {
@@ -66,8 +75,9 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
         val maxQueueSize: Int = hocon.getInt(s"$prefix.queue.maxSize")
         val maxQueueUserSize: Int = hocon.getInt(s"$prefix.queue.maxPerUserSize")
         val maxQueueCheckPeriodMs: Long = hocon.getLong(s"$prefix.queue.checkPeriodMins") * 60 * 1000
-        val delaysMs: Seq[Long] = hocon.getLongList(s"$prefix.delaysSecs").toSeq.map(p ⇒ p * 1000)
+        val delaysMs: Seq[Long] = hocon.getLongList(s"$prefix.delaysSecs").asScala.map(p ⇒ p * 1000)
         val delaysCnt: Int = delaysMs.size
+        val maxConnections: Int = hocon.getInt(s"$prefix.maxConnections")
 
         override def check(): Unit = {
             require(maxQueueSize > 0,
@@ -80,10 +90,22 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
                 s"Configuration parameter '$prefix.delaysSecs' cannot be empty.")
             delaysMs.foreach(delayMs ⇒ require(delayMs > 0,
                 s"Configuration parameter '$prefix.delaysSecs' must contain only positive values: $delayMs"))
+            require(maxConnections > 0,
+                s"Configuration parameter '$prefix.maxConnections' must > 0: $maxConnections")
         }
     }
 
     Config.check()
+    
+    // Timing wheel resolution and size (about 5 secs per turn).
+    private final val TICK_MS = 10
+    private final val WHEEL_SIZE = 512
+    
+    // Maximum number of query states sent in one request.
+    private final val MAX_BATCH_SIZE = 100
+    
+    // Resend delay for notifications rejected by overflowed HTTP client pool.
+    private final val OVERFLOW_DELAY_MS = 100
 
     // Should be the same as REST '/check' response.
     // Note, it cannot be declared inside methods because GSON requirements.
@@ -100,17 +122,37 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
         createTstamp: Long,
         updateTstamp: Long
     )
+    
+    /**
+      * Notifications destination.
+      *
+      * @param usrId User ID.
+      * @param url Endpoint URL.
+      */
+    private case class Endpoint(usrId: Long, url: String)
 
     private final val mux = new Object
 
     private final val GSON = new Gson
-
-    @volatile private var sleepTime = Long.MaxValue
+    
+    // Due notifications (in endpoints arrival order) and endpoints with requests in flight, guarded by 'mux'.
+    private final val ready = mutable.LinkedHashMap.empty[Endpoint, mutable.LinkedHashMap[String, NCEndpointCacheValue]]
+    private final val busy = mutable.HashSet.empty[Endpoint]
 
     @volatile private var cache: IgniteCache[String, NCEndpointCacheValue] = _
-    @volatile private var sender: Thread = _
+    @volatile private var wheel: NCTimingWheel[String, NCEndpointCacheValue] = _
     @volatile private var cleaner: ScheduledExecutorService = _
-    @volatile private var httpCli: CloseableHttpClient = _
+    @volatile private var poolSettings: ConnectionPoolSettings = _
+    
+    private val sentCnt = NCMetrics.counter("nlpcraft_endpoint_sent_total", "Total number of query states delivered to endpoints.")
+    private val retriesCnt = NCMetrics.counter("nlpcraft_endpoint_retries_total", "Total number of rescheduled endpoint deliveries.")
+    private val delayHist = NCMetrics.histogram("nlpcraft_endpoint_delivery_seconds", "Delay of query state delivery after its scheduled send time.")
+    
+    NCMetrics.gauge("nlpcraft_endpoint_queue_size", "Number of query states pending endpoint delivery.") {
+        val w = wheel
+        
+        if (w == null) 0 else w.size()
+    }
 
     /**
       * Starts this component.
@@ -121,53 +163,31 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
         }
 
         require(cache != null)
-
-        httpCli = HttpClients.createDefault
-
-        sender =
-            NCUtils.mkThread("endpoint-sender-thread") {
-                thread ⇒ {
-                    while (!thread.isInterrupted) {
-                        mux.synchronized {
-                            val t = sleepTime
-
-                            if (t > 0)
-                                mux.wait(t)
-
-                            sleepTime = Long.MaxValue
-                        }
-
-                        val t = U.nowUtcMs()
-
-                        val query: SqlQuery[String, NCEndpointCacheValue] =
-                            new SqlQuery(
-                                classOf[NCEndpointCacheValue],
-                                "SELECT * FROM NCEndpointCacheValue WHERE sendTime <= ?"
-                            )
-
-                        query.setArgs(List(t).map(_.asInstanceOf[java.lang.Object]): _*)
-
-                        val readyData =
-                            catching(wrapIE) {
-                                cache.query(query).getAll.asScala.map(p ⇒ p.getKey → p.getValue).toMap
-                            }
-
-                        logger.trace(s"Records for sending: ${readyData.size}")
-
-                        readyData.
-                            groupBy(_._2.getUserId).
-                            foreach { case (usrId, data) ⇒
-                                val values = data.values.toSeq
-
-                                require(values.nonEmpty)
-
-                                send(usrId, values.head.getEndpoint, values)
-                            }
-                    }
-                }
+        
+        val maxConns = Config.maxConnections
+        
+        // Requests in flight are limited by 'maxConnections' in total, so pool queue of the
+        // same size (it must be a power of 2) is never overflowed even for single host.
+        // Server wide actor system is used, its connection pools are shut down with it.
+        poolSettings = ConnectionPoolSettings(NCRestManager.SYSTEM).
+            withMaxConnections(maxConns).
+            withMaxOpenRequests(if (maxConns == 1) 1 else Integer.highestOneBit(maxConns - 1) << 1)
+        
+        wheel = new NCTimingWheel[String, NCEndpointCacheValue]("endpoint-sender-thread", TICK_MS, WHEEL_SIZE)(onDue)
+        
+        // Notifications left from the previous run.
+        val saved =
+            catching(wrapIE) {
+                cache.asScala.map(p ⇒ p.getKey → p.getValue).toList
             }
-
-        sender.start()
+        
+        for ((srvReqId, v) ← saved)
+            wheel.schedule(srvReqId, v, v.getSendTime)
+        
+        if (saved.nonEmpty)
+            logger.info(s"Query state notifications rescheduled: ${saved.size}")
+        
+        wheel.start()
 
         cleaner = Executors.newSingleThreadScheduledExecutor
 
@@ -178,6 +198,22 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
         super.start()
     }
     
+    /**
+      * Removes notifications from the timing wheel and due batches.
+      *
+      * @param srvReqIds Server request IDs.
+      */
+    private def unschedule(srvReqIds: Set[String]): Unit = {
+        val w = wheel
+        
+        if (w != null)
+            srvReqIds.foreach(w.cancel)
+        
+        mux.synchronized {
+            ready.values.foreach(_ --= srvReqIds)
+        }
+    }
+    
     /**
       * Checks and reduces if necessary queue size, for each user and in general.
       */
@@ -217,6 +253,8 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
                         logger.warn(s"Query state notifications dropped due to per-use queue size limit: $srvReqIds")
 
                         cache --= srvReqIds
+                        
+                        unschedule(srvReqIds)
                     }
 
                     // Clears summary cache.
@@ -241,6 +279,8 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
                         logger.warn(s"Query state notifications dropped due to overall queue size limit: $srvReqIds")
 
                         cache --= srvReqIds
+                        
+                        unschedule(srvReqIds)
                     }
                 }
             }
@@ -249,14 +289,57 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
             case e: Throwable ⇒ logger.error("Query notification GC error.", e)
         }
     
+    /**
+      * Timing wheel callback: groups due notifications by endpoints and sends them.
+      *
+      * @param due Due notifications.
+      */
+    private def onDue(due: Seq[(String, NCEndpointCacheValue)]): Unit = {
+        mux.synchronized {
+            due.foreach { case (srvReqId, v) ⇒
+                ready.getOrElseUpdate(Endpoint(v.getUserId, v.getEndpoint), mutable.LinkedHashMap.empty) += srvReqId → v
+            }
+        }
+        
+        flush()
+    }
+    
+    /**
+      * Sends next batches of due notifications to the endpoints without requests in flight,
+      * as long as total number of requests in flight is below the limit.
+      */
+    private def flush(): Unit = {
+        val batches = mux.synchronized {
+            val free = Config.maxConnections - busy.size
+            
+            if (free <= 0)
+                Seq.empty
+            else
+                ready.keys.filter(ep ⇒ !busy.contains(ep)).take(free).toList.map(ep ⇒ {
+                    val vals = ready(ep)
+                    val b = vals.take(MAX_BATCH_SIZE).values.toSeq
+                    
+                    vals --= b.map(_.getSrvReqId)
+                    
+                    if (vals.isEmpty)
+                        ready -= ep
+                    
+                    busy += ep
+                    
+                    ep → b
+                })
+        }
+        
+        batches.foreach { case (ep, b) ⇒ send(ep, b) }
+    }
+    
     /**
       * Sends states events to user endpoint.
       *
-      * @param usrId User ID.
       * @param ep Endpoint.
       * @param values Cached values.
       */
-    private def send(usrId: Long, ep: String, values: Seq[NCEndpointCacheValue]): Unit = {
+    private def send(ep: Endpoint, values: Seq[NCEndpointCacheValue]): Unit = {
         val seq = values.map(p ⇒ {
             val s = p.getState
 
@@ -274,85 +357,147 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
                 s.updateTstamp.getTime
             )
         })
-
-        NCUtils.asFuture(
-        _ ⇒ {
-            val post = new HttpPost(ep)
-
+        
+        val fut =
             try {
-                post.setHeader("Content-Type", "application/json")
-                post.setEntity(new StringEntity(GSON.toJson(seq.asJava), "UTF-8"))
-
-                httpCli.execute(
-                    post,
-                    new ResponseHandler[Unit] {
-                        override def handleResponse(resp: HttpResponse): Unit = {
-                            val code = resp.getStatusLine.getStatusCode
-
-                            if (code != 200)
-                                throw new NCE(s"Unexpected query state endpoint send HTTP response [" +
-                                    s"userId=$usrId, " +
-                                    s"endpoint=$ep, " +
-                                    s"code=$code" +
-                                s"]")
-                        }
-                    }
+                val req = HttpRequest(
+                    HttpMethods.POST,
+                    ep.url,
+                    entity = HttpEntity(ContentTypes.`application/json`, GSON.toJson(seq.asJava))
                 )
+                
+                Http()(NCRestManager.SYSTEM).singleRequest(req, settings = poolSettings).flatMap(resp ⇒ {
+                    // Response body is not used but has to be consumed to release the connection.
+                    resp.discardEntityBytes()(NCRestManager.MATERIALIZER)
+                    
+                    val code = resp.status.intValue()
+                    
+                    if (code != 200)
+                        Future.failed(new NCE(s"Unexpected query state endpoint send HTTP response [" +
+                            s"userId=${ep.usrId}, " +
+                            s"endpoint=${ep.url}, " +
+                            s"code=$code" +
+                        s"]"))
+                    else
+                        Future.successful(())
+                })
             }
-            finally
-                post.releaseConnection()
-        },
-        {
-            case e: Exception ⇒
-                val t = U.nowUtcMs()
-
-                val sendAgain =
-                    values.flatMap(v ⇒
-                        if (NCQueryManager.contains(v.getSrvReqId)) {
-                            val i = v.getAttempts
-                            val delay = if (i < Config.delaysCnt) Config.delaysMs(i) else Config.delaysMs.last
-                            val s = v.getState
-
-                            val nextValue = new NCEndpointCacheValue(
-                                s, v.getEndpoint, t + delay, i + 1, v.getCreatedOn, s.userId, s.srvReqId
-                            )
-
-                            Some(v.getSrvReqId → nextValue)
-                        }
-                        else
-                            None
-                    ).toMap
-
-                if (sendAgain.nonEmpty) {
-                    val sleepTime = sendAgain.map(_._2.getSendTime).min - U.nowUtcMs()
-
-                    mux.synchronized {
-                        this.sleepTime = sleepTime
-
-                        mux.notifyAll()
-                    }
+            catch {
+                case e: Exception ⇒ Future.failed(e) // Invalid URL.
+            }
+        
+        fut.onComplete(res ⇒ {
+            try
+                res match {
+                    case Success(_) ⇒ onSent(ep, values)
+                    // Request wasn't even sent, it's not a failed attempt.
+                    case Failure(e: BufferOverflowException) ⇒ onOverflow(ep, values, e)
+                    case Failure(e) ⇒ onFailed(ep, values, e)
                 }
-
-                logger.warn(
-                    s"Error sending notification " +
-                        s"[userId=$usrId" +
-                        s", endpoint=$ep" +
-                        s", sendAgain=${sendAgain.size}" +
-                        s", error=${e.getLocalizedMessage}" +
-                        s"]"
-                )
-        },
-        (_: Unit) ⇒ {
-            val set = seq.map(_.srvReqId).toSet
-
+            catch {
+                case e: Throwable ⇒ logger.error(s"Failed to process endpoint response [endpoint=${ep.url}]", e)
+            }
+            finally {
+                mux.synchronized {
+                    busy -= ep
+                }
+                
+                flush()
+            }
+        })
+    }
+    
+    /**
+      * Removes delivered notifications.
+      *
+      * @param ep Endpoint.
+      * @param values Delivered values.
+      */
+    private def onSent(ep: Endpoint, values: Seq[NCEndpointCacheValue]): Unit = {
+        val t = U.nowUtcMs()
+        val set = values.map(_.getSrvReqId).toSet
+        
+        sentCnt.inc(set.size)
+        
+        values.foreach(v ⇒ delayHist.record(TimeUnit.MILLISECONDS.toNanos(math.max(0, t - v.getSendTime))))
+        
+        // Response can come after the manager is stopped.
+        val c = cache
+        
+        if (c != null)
             catching(wrapIE) {
                 NCTxManager.startTx {
-                    cache --= set
+                    c --= set
                 }
             }
-
-            logger.trace(s"Endpoint notifications sent [userId=$usrId, endpoint=$ep, srvReqIds=$set]")
+        
+        logger.trace(s"Endpoint notifications sent [userId=${ep.usrId}, endpoint=${ep.url}, srvReqIds=$set]")
+    }
+    
+    /**
+      * Reschedules notifications rejected by HTTP client pool without counting the attempt.
+      *
+      * @param ep Endpoint.
+      * @param values Not sent values.
+      * @param e Error.
+      */
+    private def onOverflow(ep: Endpoint, values: Seq[NCEndpointCacheValue], e: Throwable): Unit = {
+        val t = U.nowUtcMs()
+        val w = wheel
+        
+        // Manager is stopped, values are kept in the cache till the next start.
+        if (w != null)
+            values.foreach(v ⇒ w.schedule(v.getSrvReqId, v, t + OVERFLOW_DELAY_MS))
+        
+        logger.debug(s"Endpoint notifications postponed [userId=${ep.usrId}, endpoint=${ep.url}, error=${e.getLocalizedMessage}]")
+    }
+    
+    /**
+      * Reschedules notifications with the next attempt delay, drops ones whose requests are already gone.
+      *
+      * @param ep Endpoint.
+      * @param values Not delivered values.
+      * @param e Error.
+      */
+    private def onFailed(ep: Endpoint, values: Seq[NCEndpointCacheValue], e: Throwable): Unit = {
+        val t = U.nowUtcMs()
+        val w = wheel
+        val c = cache
+        
+        // Response can come after the manager is stopped, values are kept in the cache till the next start.
+        if (w == null || c == null)
+            return
+        
+        val (again, gone) = values.partition(v ⇒ NCQueryManager.contains(v.getSrvReqId))
+        
+        val next = again.map(v ⇒ {
+            val i = v.getAttempts
+            val delay = if (i < Config.delaysCnt) Config.delaysMs(i) else Config.delaysMs.last
+            val s = v.getState
+            
+            new NCEndpointCacheValue(s, v.getEndpoint, t + delay, i + 1, v.getCreatedOn, s.userId, s.srvReqId)
         })
+        
+        catching(wrapIE) {
+            NCTxManager.startTx {
+                next.foreach(v ⇒ c += v.getSrvReqId → v)
+                
+                c --= gone.map(_.getSrvReqId).toSet
+            }
+        }
+        
+        next.foreach(v ⇒ w.schedule(v.getSrvReqId, v, v.getSendTime))
+        
+        retriesCnt.inc(next.size)
+        
+        logger.warn(
+            s"Error sending notification " +
+                s"[userId=${ep.usrId}" +
+                s", endpoint=${ep.url}" +
+                s", sendAgain=${next.size}" +
+                s", error=${e.getLocalizedMessage}" +
+                s"]"
+        )
     }
 
     /**
@@ -360,19 +505,23 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
       */
     override def stop(): Unit = {
         if (cleaner != null) {
-            try
-                cleaner.awaitTermination(Long.MaxValue, TimeUnit.MILLISECONDS)
-            catch {
-                case _: InterruptedException ⇒ () // Safely ignore.
-            }
+            NCUtils.shutdownPool(cleaner)
 
             cleaner = null
         }
-
-        NCUtils.stopThread(sender)
+        
+        if (wheel != null) {
+            wheel.stop()
+            
+            wheel = null
+        }
+        
+        mux.synchronized {
+            ready.clear()
+            busy.clear()
+        }
 
         cache = null
-        httpCli = null
 
         super.stop()
     }
@@ -391,16 +540,13 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
         NCUtils.asFuture(
             _ ⇒ {
                 val t = U.nowUtcMs()
+                val v = new NCEndpointCacheValue(state, ep, t, 0, t, state.userId, state.srvReqId)
 
                 catching(wrapIE) {
-                    cache +=
-                        state.srvReqId →
-                        new NCEndpointCacheValue(state, ep, t, 0, t, state.userId, state.srvReqId)
-                }
-
-                mux.synchronized {
-                    mux.notifyAll()
+                    cache += state.srvReqId → v
                 }
+                
+                wheel.schedule(state.srvReqId, v, t)
             },
             {
                 case e: Exception ⇒
@@ -418,6 +564,8 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
         require(srvReqIds != null)
 
         ensureStarted()
+        
+        unschedule(srvReqIds)
 
         NCUtils.asFuture(
             _ ⇒ {
@@ -441,6 +589,10 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
       */
     def cancelNotifications(usrId: Long): Unit = {
         ensureStarted()
+        
+        mux.synchronized {
+            ready.retain((ep, _) ⇒ ep.usrId != usrId)
+        }
 
         NCUtils.asFuture(
             _ ⇒ {
@@ -454,7 +606,11 @@ object NCEndpointManager extends NCLifecycle("Endpoints manager") with NCIgniteI
 
                 catching(wrapIE) {
                     NCTxManager.startTx {
-                        cache --= cache.query(query).getAll.asScala.map(_.getKey).toSet
+                        val srvReqIds = cache.query(query).getAll.asScala.map(_.getKey).toSet
+                        
+                        cache --= srvReqIds
+                        
+                        unschedule(srvReqIds)
                     }
                 }
             },
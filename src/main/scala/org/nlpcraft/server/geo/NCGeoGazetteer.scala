@@ -0,0 +1,353 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.server.geo
+
+import scala.collection.mutable
+
+/**
+  * Compact, id-based GEO gazetteer.
+  *
+  * All GEO entries are interned (equal entries and names share the same instance) and
+  * referenced by their IDs stored in primitive arrays. Synonyms are compiled into the
+  * Aho-Corasick automaton over the space-separated words of the synonyms, so all synonyms
+  * contained in a given sequence of tokens are found in one linear pass.
+  *
+  * @param words Synonyms words dictionary (word → word ID).
+  * @param entries All interned GEO entries (entry ID → entry).
+  * @param keyEntStart Start indexes of synonym entries in `keyEnts` array (synonym ID → start index).
+  * @param keyEnts Entry IDs of all synonyms.
+  * @param keyLen Synonyms lengths in words (synonym ID → length).
+  * @param edgeStart Start indexes of the node transitions (node ID → start index).
+  * @param edgeWord Transitions words, sorted by word ID for each node.
+  * @param edgeTrg Transitions target nodes.
+  * @param fail Failure links (node ID → node ID).
+  * @param out Output links, i.e. nearest synonym node reachable by failure links (node ID → node ID or -1).
+  * @param nodeKey Synonym ended in the node (node ID → synonym ID or -1).
+  */
+class NCGeoGazetteer private(
+    words: Map[String, Int],
+    val entries: Array[NCGeoEntry],
+    keyEntStart: Array[Int],
+    keyEnts: Array[Int],
+    keyLen: Array[Int],
+    edgeStart: Array[Int],
+    edgeWord: Array[Int],
+    edgeTrg: Array[Int],
+    fail: Array[Int],
+    out: Array[Int],
+    nodeKey: Array[Int]
+) extends Serializable {
+    import NCGeoGazetteer._
+    
+    /**
+      * Gets transition target node, or -1 if there isn't any.
+      *
+      * @param node Node ID.
+      * @param word Word ID.
+      */
+    private def goto(node: Int, word: Int): Int = {
+        var lo = edgeStart(node)
+        var hi = edgeStart(node + 1) - 1
+        
+        while (lo <= hi) {
+            val mid = (lo + hi) >>> 1
+            val w = edgeWord(mid)
+            
+            if (w < word)
+                lo = mid + 1
+            else if (w > word)
+                hi = mid - 1
+            else
+                return edgeTrg(mid)
+        }
+        
+        -1
+    }
+    
+    /**
+      * Gets number of synonyms.
+      */
+    def size: Int = keyLen.length
+    
+    /**
+      * Gets synonym ID for the given text, or -1 if there isn't such synonym.
+      *
+      * @param s Synonym text.
+      */
+    def lookup(s: String): Int = {
+        var node = 0
+        
+        for (w ← split(s) if node >= 0)
+            node = words.get(w) match {
+                case Some(id) ⇒ goto(node, id)
+                case None ⇒ -1
+            }
+        
+        if (node >= 0) nodeKey(node) else -1
+    }
+    
+    /**
+      * Gets GEO entries for the given synonym ID.
+      *
+      * @param key Synonym ID.
+      */
+    def getEntries(key: Int): Seq[NCGeoEntry] =
+        for (i ← keyEntStart(key) until keyEntStart(key + 1)) yield entries(keyEnts(i))
+    
+    /**
+      * Finds all synonyms in the given sequence of tokens texts. Each found synonym
+      * covers whole tokens, i.e. it equals to the space-separated texts of some tokens slice.
+      *
+      * @param toks Tokens texts.
+      * @return Found synonyms in the order of their end tokens.
+      */
+    def find(toks: Seq[String]): Seq[Match] = {
+        val split = toks.map(NCGeoGazetteer.split)
+        val n = split.map(_.length).sum
+        
+        // Token indexes for the words which start (end) some token, -1 for other words.
+        val tokStart = Array.fill(n)(-1)
+        val tokEnd = Array.fill(n)(-1)
+        
+        var i = 0
+        
+        for ((ws, idx) ← split.zipWithIndex) {
+            tokStart(i) = idx
+            tokEnd(i + ws.length - 1) = idx
+            
+            i += ws.length
+        }
+        
+        val res = mutable.ArrayBuffer.empty[Match]
+        
+        var node = 0
+        
+        i = 0
+        
+        for (ws ← split; w ← ws) {
+            words.get(w) match {
+                case Some(id) ⇒
+                    var trg = goto(node, id)
+                    
+                    while (trg < 0 && node != 0) {
+                        node = fail(node)
+                        trg = goto(node, id)
+                    }
+                    
+                    node = if (trg < 0) 0 else trg
+                
+                // Unknown word cannot be a part of any synonym.
+                case None ⇒ node = 0
+            }
+            
+            if (tokEnd(i) >= 0) {
+                var x = if (nodeKey(node) >= 0) node else out(node)
+                
+                while (x >= 0) {
+                    val key = nodeKey(x)
+                    val from = tokStart(i - keyLen(key) + 1)
+                    
+                    if (from >= 0)
+                        res += Match(from, tokEnd(i), key)
+                    
+                    x = out(x)
+                }
+            }
+            
+            i += 1
+        }
+        
+        res
+    }
+}
+
+/**
+  * GEO gazetteer companion object.
+  */
+object NCGeoGazetteer {
+    /**
+      * Found synonym.
+      *
+      * @param from Index of the first token (inclusive).
+      * @param to Index of the last token (inclusive).
+      * @param key Synonym ID.
+      */
+    case class Match(from: Int, to: Int, key: Int) {
+        def length: Int = to - from + 1
+    }
+    
+    /**
+      * Splits synonym or token text into words.
+      * Note that empty words are kept to preserve exact space-separated text matching.
+      *
+      * @param s Text to split.
+      */
+    private def split(s: String): Array[String] = s.split(" ", -1)
+    
+    /**
+      * Makes gazetteer.
+      *
+      * @param syns Synonyms.
+      */
+    def apply(syns: Map[String, Set[NCGeoEntry]]): NCGeoGazetteer = {
+        val names = mutable.HashMap.empty[String, String]
+        val entIds = mutable.HashMap.empty[NCGeoEntry, Int]
+        val ents = mutable.ArrayBuffer.empty[NCGeoEntry]
+        
+        def intern(s: String): String = names.getOrElseUpdate(s, s)
+        
+        // Interns entry and all its parents.
+        def internEntry(e: NCGeoEntry): Int =
+            entIds.get(e) match {
+                case Some(id) ⇒ id
+                case None ⇒
+                    def get[T <: NCGeoEntry](e: T): T = ents(internEntry(e)).asInstanceOf[T]
+                    
+                    val x = e match {
+                        case x: NCGeoContinent ⇒ x.copy(name = intern(x.name))
+                        case x: NCGeoSubContinent ⇒ x.copy(name = intern(x.name), continent = get(x.continent))
+                        case x: NCGeoCountry ⇒ x.copy(name = intern(x.name), subContinent = get(x.subContinent))
+                        case x: NCGeoRegion ⇒ x.copy(name = intern(x.name), country = get(x.country))
+                        case x: NCGeoCity ⇒ x.copy(name = intern(x.name), region = get(x.region))
+                        case x: NCGeoMetro ⇒ x.copy(name = intern(x.name))
+                        case x: NCTopGeoCity ⇒ x.copy(name = intern(x.name), region = get(x.region))
+                    }
+                    
+                    val id = ents.size
+                    
+                    ents += x
+                    entIds += x → id
+                    
+                    id
+            }
+        
+        val words = mutable.HashMap.empty[String, Int]
+        
+        // Trie.
+        val edges = mutable.HashMap.empty[Long, Int]
+        val nodeKey = mutable.ArrayBuffer[Int](-1)
+        
+        val keyEntStart = mutable.ArrayBuffer.empty[Int]
+        val keyEnts = mutable.ArrayBuffer.empty[Int]
+        val keyLen = mutable.ArrayBuffer.empty[Int]
+        
+        for ((syn, set) ← syns.toSeq.sortBy(_._1)) {
+            var node = 0
+            val ws = split(syn)
+            
+            for (w ← ws) {
+                val wId = words.getOrElseUpdate(w, words.size)
+                
+                node = edges.getOrElseUpdate(
+                    (node.toLong << 32) | wId,
+                    {
+                        nodeKey += -1
+                        
+                        nodeKey.size - 1
+                    }
+                )
+            }
+            
+            nodeKey(node) = keyLen.size
+            
+            keyEntStart += keyEnts.size
+            keyEnts ++= set.toSeq.map(internEntry).sorted
+            keyLen += ws.length
+        }
+        
+        keyEntStart += keyEnts.size
+        
+        val nodesCnt = nodeKey.size
+        
+        // Compacts trie transitions, sorted by node and word.
+        val sorted = edges.toArray.sortBy(_._1)
+        
+        val edgeStart = new Array[Int](nodesCnt + 1)
+        val edgeWord = sorted.map(_._1.toInt)
+        val edgeTrg = sorted.map(_._2)
+        
+        for ((key, _) ← sorted)
+            edgeStart((key >>> 32).toInt + 1) += 1
+        
+        for (i ← 1 to nodesCnt)
+            edgeStart(i) += edgeStart(i - 1)
+        
+        val fail = new Array[Int](nodesCnt)
+        val out = Array.fill(nodesCnt)(-1)
+        
+        val gaz = new NCGeoGazetteer(
+            words.toMap,
+            ents.toArray,
+            keyEntStart.toArray,
+            keyEnts.toArray,
+            keyLen.toArray,
+            edgeStart,
+            edgeWord,
+            edgeTrg,
+            fail,
+            out,
+            nodeKey.toArray
+        )
+        
+        // Failure and output links, calculated in BFS order.
+        val queue = mutable.Queue[Int](0)
+        
+        while (queue.nonEmpty) {
+            val node = queue.dequeue()
+            
+            for (i ← edgeStart(node) until edgeStart(node + 1)) {
+                val w = edgeWord(i)
+                val trg = edgeTrg(i)
+                
+                if (node != 0) {
+                    var f = fail(node)
+                    var x = gaz.goto(f, w)
+                    
+                    while (x < 0 && f != 0) {
+                        f = fail(f)
+                        x = gaz.goto(f, w)
+                    }
+                    
+                    fail(trg) = if (x < 0) 0 else x
+                }
+                
+                val f = fail(trg)
+                
+                out(trg) = if (f != 0 && nodeKey(f) >= 0) f else out(f)
+                
+                queue += trg
+            }
+        }
+        
+        gaz
+    }
+}
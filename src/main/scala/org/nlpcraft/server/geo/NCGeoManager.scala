@@ -32,6 +32,7 @@
 package org.nlpcraft.server.geo
 
 import org.nlpcraft.common.nlp.dict.{NCDictionaryManager, NCDictionaryType}
+import org.nlpcraft.common.snapshot.NCResourceSnapshot
 import org.nlpcraft.server.json.NCJson
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
@@ -46,6 +47,8 @@ object NCGeoManager extends NCLifecycle("Geo manager") {
     private final val CTRY_DIR = "geo/countries"
     private final val CONT_PATH = "geo/continents.json"
     private final val METRO_PATH = "geo/metro.json"
+    private final val WORLD_TOP_PATH = "geo/world_top.json"
+    private final val US_TOP_PATH = "geo/us_top.json"
     private final val SYNONYMS_DIR_PATH = "geo/synonyms"
     private final val CASE_SENSITIVE_DIR_PATH = s"$SYNONYMS_DIR_PATH/case_sensitive"
     
@@ -65,7 +68,7 @@ object NCGeoManager extends NCLifecycle("Geo manager") {
     override def start(): NCLifecycle = {
         ensureStopped()
         
-        model = readAndConstructModel()
+        model = NCResourceSnapshot.get("geo", getResources) { readAndConstructModel() }
         
         super.start()
     }
@@ -92,6 +95,29 @@ object NCGeoManager extends NCLifecycle("Geo manager") {
         model
     }
     
+    /**
+      * Gets JSON resources with given folder.
+      *
+      * @param dir Resources folder.
+      */
+    private def readJss(dir: String): Seq[String] =
+        if (U.hasResource(dir)) U.getFilesResources(dir).filter(_.endsWith(".json")) else Seq.empty
+    
+    /**
+      * Gets all resources GEO model is constructed from.
+      */
+    private def getResources: Seq[String] =
+        Seq(
+            CONT_PATH,
+            METRO_PATH,
+            WORLD_TOP_PATH,
+            US_TOP_PATH,
+            NCDictionaryManager.getResource(NCDictionaryType.WORD_COMMON)
+        ) ++
+        U.getFilesResources(CTRY_DIR) ++
+        readJss(SYNONYMS_DIR_PATH) ++
+        readJss(CASE_SENSITIVE_DIR_PATH)
+    
     /**
       * Reads and constructs GEO model.
       */
@@ -225,9 +251,6 @@ object NCGeoManager extends NCLifecycle("Geo manager") {
         
         val dicts = NCDictionaryManager.get(NCDictionaryType.WORD_COMMON)
         
-        def readJss(dir: String): Seq[String] =
-            if (U.hasResource(dir)) U.getFilesResources(dir).filter(_.endsWith(".json")) else Seq.empty
-        
         def extract(res: String, ignoreCase: Boolean): Seq[NCGeoSynonym] =
             NCJson.extractResource[List[NCGeoSynonym]](res, ignoreCase)
         def process(s: NCGeoSynonym, add: (Seq[String], NCGeoEntry) ⇒ Unit): Unit =
@@ -354,16 +377,23 @@ object NCGeoManager extends NCLifecycle("Geo manager") {
                 }
             ).toSet
         
+        val gaz = NCGeoGazetteer(geoEntries.map(p ⇒ p._1 → p._2.toSet).toMap)
+        
+        val interned = gaz.entries.map(e ⇒ e → e).toMap
+        
+        // Replaces entries with their interned gazetteer instances.
+        def intern[T <: NCGeoEntry](set: mutable.HashSet[T]): Set[T] = set.map(interned(_).asInstanceOf[T]).toSet
+        
         NCGeoModel(
-            geoEntries.map(p ⇒ p._1 → p._2.toSet).toMap,
-            conts.toSet,
-            subs.toSet,
-            cntrs.toSet,
-            regions.toSet,
-            cities.toSet,
-            metro.toSet,
-            mkTopCities("geo/world_top.json"),
-            mkTopCities("geo/us_top.json")
+            gaz,
+            intern(conts),
+            intern(subs),
+            intern(cntrs),
+            intern(regions),
+            intern(cities),
+            intern(metro),
+            mkTopCities(WORLD_TOP_PATH),
+            mkTopCities(US_TOP_PATH)
         )
     }
 }
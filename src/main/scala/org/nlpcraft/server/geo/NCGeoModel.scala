@@ -33,7 +33,7 @@ package org.nlpcraft.server.geo
 
 // GEO model which contains common GEO data.
 case class NCGeoModel(
-    synonyms: Map[String, Set[NCGeoEntry]],
+    gazetteer: NCGeoGazetteer,
     continents: Set[NCGeoContinent],
     subContinents: Set[NCGeoSubContinent],
     countries: Set[NCGeoCountry],
@@ -58,7 +58,9 @@ case class NCQueryStateMdo(
     @NCMdoField var resultType: Option[String] = None,
     @NCMdoField var resultBody: Option[String] = None,
     // Query ERROR.
-    @NCMdoField var error: Option[String] = None
+    @NCMdoField var error: Option[String] = None,
+    // Latency trace hops (name and timestamp) of the completed query.
+    @NCMdoField(json = false) var timings: List[(String, Long)] = Nil
 ) extends NCAnnotatedMdo[NCQueryStateMdo]
 
 object NCQueryStateMdo {
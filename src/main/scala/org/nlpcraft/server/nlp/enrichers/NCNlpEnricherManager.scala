@@ -33,6 +33,7 @@ package org.nlpcraft.server.nlp.enrichers
 
 import org.apache.ignite.IgniteCache
 import org.nlpcraft.common.ascii.NCAsciiTable
+import org.nlpcraft.common.metrics.{NCHistogram, NCMetrics}
 import org.nlpcraft.common.nlp.{NCNlpSentence, NCNlpSentenceNote, NCNlpSentenceToken}
 import org.nlpcraft.server.ignite.NCIgniteHelpers._
 import org.nlpcraft.server.ignite.NCIgniteInstance
@@ -42,6 +43,7 @@ import org.nlpcraft.server.nlp.enrichers.geo.NCGeoEnricher
 import org.nlpcraft.server.nlp.enrichers.numeric.NCNumericEnricher
 import org.nlpcraft.server.nlp.enrichers.quote.NCQuoteEnricher
 import org.nlpcraft.server.nlp.enrichers.stopword.NCStopWordEnricher
+import org.nlpcraft.server.nlp.lang.NCLanguageManager
 import org.nlpcraft.server.nlp.preproc.NCPreProcessManager
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
@@ -74,6 +76,26 @@ object NCNlpEnricherManager extends NCLifecycle("Enrichment manager") with NCIgn
         )
     )
     
+    private val cacheHits = NCMetrics.counter("nlpcraft_enricher_cache_hits_total", "Total number of sentence cache hits.")
+    private val cacheMisses = NCMetrics.counter("nlpcraft_enricher_cache_misses_total", "Total number of sentence cache misses.")
+    
+    NCMetrics.gauge("nlpcraft_enricher_cache_hit_ratio", "Sentence cache hit ratio.") {
+        val hits = cacheHits.get
+        val total = hits + cacheMisses.get
+        
+        if (total == 0) 0 else hits.toDouble / total
+    }
+    
+    private def mkHist(name: String): NCHistogram =
+        NCMetrics.histogram("nlpcraft_enricher_seconds", "Time spent in the server-side enricher.", "enricher" → name)
+    
+    private val baseHist = mkHist("base")
+    private val quoteHist = mkHist("quote")
+    private val stopWordHist = mkHist("stopword")
+    private val dateHist = mkHist("date")
+    private val numericHist = mkHist("numeric")
+    private val geoHist = mkHist("geo")
+    
     /**
       *
       * @param txt Text to enrich into NLP sentence.
@@ -87,18 +109,14 @@ object NCNlpEnricherManager extends NCLifecycle("Enrichment manager") with NCIgn
 
         catching(wrapIE) {
             cache(normTxt) match {
-                case Some(s) ⇒ s
+                case Some(s) ⇒
+                    cacheHits.inc()
+                    
+                    s
                 case None ⇒
-                    val s = new NCNlpSentence(normTxt)
-
-                    // Server-side enrichment pipeline.
-                    // NOTE: order of enrichers is IMPORTANT.
-                    NCBaseNlpEnricher.enrich(s)
-                    NCQuoteEnricher.enrich(s)
-                    NCStopWordEnricher.enrich(s)
-                    NCDateEnricher.enrich(s)
-                    NCNumericEnricher.enrich(s)
-                    NCGeoEnricher.enrich(s)
+                    cacheMisses.inc()
+                    
+                    val s = enrichPipeline(normTxt)
 
                     prepareAsciiTable(s).info(logger, Some(s"Sentence enriched: $normTxt"))
 
@@ -109,6 +127,56 @@ object NCNlpEnricherManager extends NCLifecycle("Enrichment manager") with NCIgn
         }
     }
     
+    /**
+      * Runs server-side enrichment pipeline for given normalized text, bypassing the sentence cache.
+      * Only enrichers (and the managers they depend on) have to be started.
+      *
+      * @param normTxt Normalized text to enrich into NLP sentence.
+      */
+    @throws[NCE]
+    private[nlpcraft] def enrichPipeline(normTxt: String): NCNlpSentence = {
+        // Language and charset are detected once and cached with the sentence.
+        val s = new NCNlpSentence(
+            normTxt,
+            NCLanguageManager.isLatinCharset(normTxt),
+            NCLanguageManager.isEnglish(normTxt)
+        )
+        
+        // Server-side enrichment pipeline.
+        // NOTE: order of enrichers is IMPORTANT.
+        var start = System.nanoTime()
+        
+        NCBaseNlpEnricher.enrich(s)
+        start = record(baseHist, start)
+        NCQuoteEnricher.enrich(s)
+        start = record(quoteHist, start)
+        NCStopWordEnricher.enrich(s)
+        start = record(stopWordHist, start)
+        NCDateEnricher.enrich(s)
+        start = record(dateHist, start)
+        NCNumericEnricher.enrich(s)
+        start = record(numericHist, start)
+        NCGeoEnricher.enrich(s)
+        record(geoHist, start)
+        
+        s
+    }
+    
+    /**
+      * Records time elapsed since given start.
+      *
+      * @param hist Histogram to record to.
+      * @param start Start time in nanoseconds.
+      * @return Current time in nanoseconds, i.e. start of the next step.
+      */
+    private def record(hist: NCHistogram, start: Long): Long = {
+        val now = System.nanoTime()
+        
+        hist.record(now - start)
+        
+        now
+    }
+    
     /**
       *
       * @param s NLP sentence to ASCII print.
@@ -39,6 +39,7 @@ import org.nlpcraft.common.NCLifecycle
 import org.nlpcraft.common.nlp.{NCNlpSentence, NCNlpSentenceNote, NCNlpSentenceToken}
 import org.nlpcraft.server.nlp.enrichers.NCNlpEnricher
 import org.nlpcraft.server.nlp.enrichers.date.NCDateConstants._
+import org.nlpcraft.common.snapshot.NCResourceSnapshot
 import org.nlpcraft.common.util.NCUtils
 
 import scala.collection.immutable.Iterable
@@ -124,22 +125,26 @@ object NCDateEnricher extends NCNlpEnricher("Date enricher") {
     override def start(): NCLifecycle = {
         ensureStopped()
 
-        def read(res: String): LHM_SS = {
-            val m: LHM_SS = new LHM_SS()
+        def read(name: String): LHM_SS = {
+            val res = s"date/$name.txt.gz"
 
-            val map = NCUtils.readTextGzipResource(res, "UTF-8", logger).map(p ⇒ {
-                val pair = p.split("\\|")
+            NCResourceSnapshot.get(s"date-$name", Seq(res)) {
+                val m: LHM_SS = new LHM_SS()
 
-                pair.head.trim → pair.last.trim
-            })
+                val map = NCUtils.readTextGzipResource(res, "UTF-8", logger).map(p ⇒ {
+                    val pair = p.split("\\|")
 
-            m ++= map
+                    pair.head.trim → pair.last.trim
+                })
 
-            m
+                m ++= map
+
+                m
+            }
         }
 
-        cacheFull = read("date/full.txt.gz")
-        cacheParts = read("date/parts.txt.gz")
+        cacheFull = read("full")
+        cacheParts = read("parts")
 
         super.start()
     }
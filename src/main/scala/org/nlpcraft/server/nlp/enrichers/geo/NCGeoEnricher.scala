@@ -64,7 +64,7 @@ object NCGeoEnricher extends NCNlpEnricher("Geo enricher") {
     private final val EXCEPTIONS_PATH = "geo/exceptions"
 
     @throws[NCE]
-    private[geo] final val LOCATIONS: Map[String, Set[NCGeoEntry]] = NCGeoManager.getModel.synonyms
+    private[geo] final val GAZETTEER: NCGeoGazetteer = NCGeoManager.getModel.gazetteer
 
     // GEO names matched with common english words and user defined exception GEO names.
     // Note that 'ignore case' parameter set as false because DLGeoLocationKind definition (CITY ect)
@@ -90,15 +90,98 @@ object NCGeoEnricher extends NCNlpEnricher("Geo enricher") {
         NCJson.extractResource[List[TopCity]](WORLD_TOP_PATH, ignoreCase = true).
             map(city ⇒ glue(city.name, city.region)).toSet
 
+    // Precomputed table of WordNet adjectives which nouns relatives are GEO synonyms, e.g. "american" ⇒ "america".
+    // It can be disabled by 'NLPCRAFT_GEO_JJ_TABLE_DISABLED' system property or environment variable.
+    @volatile private var jjTable: Option[Map[String, Int]] = None
+
     private def isConflictName(name: String): Boolean =
         US_CONFLICT_STATES.contains(name.toLowerCase) && name.exists(_.isLower)
 
+    /**
+      * Gets gazetteer key for the first of given nouns which is GEO synonym.
+      *
+      * @param nouns Nouns.
+      * @return Gazetteer key or -1 if not found.
+      */
+    private def findNoun(nouns: Seq[String]): Int =
+        nouns.toStream.map(noun ⇒
+            GAZETTEER.lookup(noun) match {
+                case -1 ⇒ GAZETTEER.lookup(noun.toLowerCase)
+                case k ⇒ k
+            }
+        ).find(_ >= 0).getOrElse(-1)
+
+    /**
+      * Gets gazetteer key for the given adjective.
+      *
+      * @param adj Adjective.
+      * @return Gazetteer key or -1 if not found.
+      */
+    private def findAdjective(adj: String): Int =
+        jjTable match {
+            // Table is built for WordNet adjective lemmas, other forms are checked via WordNet.
+            case Some(t) if adj.forall(ch ⇒ ch.isLetter && ch.isLower) ⇒ t.getOrElse(adj, -1)
+            case _ ⇒ findNoun(NCWordNetManager.getNNsForJJ(adj))
+        }
+
+    /**
+      * Starts this enricher.
+      */
+    override def start(): NCLifecycle = {
+        ensureStopped()
+
+        jjTable =
+            if (U.isSysEnvTrue("NLPCRAFT_GEO_JJ_TABLE_DISABLED"))
+                None
+            else {
+                val t =
+                    NCWordNetManager.getNNsForAllJJs.
+                        map { case (adj, nouns) ⇒ adj → findNoun(nouns) }.
+                        filter { case (_, key) ⇒ key >= 0 }.
+                        toMap
+
+                logger.trace(s"GEO adjectives table built [size=${t.size}]")
+
+                Some(t)
+            }
+
+        super.start()
+    }
+
+    /**
+      * Stops this enricher.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+
+        jjTable = None
+
+        super.stop()
+    }
+
     @throws[NCE]
     override def enrich(ns: NCNlpSentence) {
         // This stage must not be 1st enrichment stage.
         assume(ns.nonEmpty)
 
-        for (toks ← ns.tokenMix(withQuoted = true)) {
+        // Tokens of 'ns.tokenMix(withQuoted = true)' slices.
+        val all = ns.filter(!_.isStopword)
+
+        // All synonyms are found in one pass, slices without matches are skipped.
+        def find(f: NCNlpSentenceToken ⇒ String): Map[(Int, Int), Int] =
+            GAZETTEER.find(all.map(f)).map(m ⇒ (m.from, m.to) → m.key).toMap
+
+        val normMatches = find(_.normText)
+        val origMatches = find(_.origText)
+
+        // Single adjectives which can be converted into nouns.
+        val jjs = all.indices.filter(i ⇒ NCPennTreebank.JJS_POS.contains(all(i).pos)).map(i ⇒ i → i)
+
+        // Slices are processed in the same order as 'tokenMix' returns them.
+        val slices = (normMatches.keySet ++ origMatches.keySet ++ jjs).toSeq.sortBy { case (from, to) ⇒ (from - to, from) }
+
+        for ((from, to) ← slices) {
+            val toks = all.slice(from, to + 1)
             val len = toks.map(_.words).sum
 
             def mkNote(kind: NCGeoLocationKind, seq: (String, Any)*): NCNlpSentenceNote =
@@ -156,7 +239,7 @@ object NCGeoEnricher extends NCNlpEnricher("Geo enricher") {
                     case _ ⇒ throw new AssertionError(s"Unexpected data: $e")
                 }
 
-            def addAll(locs: Set[NCGeoEntry]): Unit =
+            def addAll(locs: Seq[NCGeoEntry]): Unit =
                 for (loc ← locs) {
                     val note = make(loc)
 
@@ -167,8 +250,10 @@ object NCGeoEnricher extends NCNlpEnricher("Geo enricher") {
                         foreach(t ⇒ t.getNlpNote += "pos" → NCPennTreebank.SYNTH_POS)
                 }
 
-            LOCATIONS.get(toks.map(_.normText).mkString(" ")) match {
-                case Some(locs) ⇒
+            normMatches.get(from → to) match {
+                case Some(key) ⇒
+                    val locs = GAZETTEER.getEntries(key)
+
                     // If multiple token match - add it.
                     if (toks.length > 1)
                         addAll(locs)
@@ -204,8 +289,8 @@ object NCGeoEnricher extends NCNlpEnricher("Geo enricher") {
                     }
                 case None ⇒
                     // Case sensitive synonyms.
-                    LOCATIONS.get(toks.map(_.origText).mkString(" ")) match {
-                        case Some(locs) ⇒ addAll(locs)
+                    origMatches.get(from → to) match {
+                        case Some(key) ⇒ addAll(GAZETTEER.getEntries(key))
                         case None ⇒
                             // If there is no direct match try to convert JJs to NNs and re-check
                             // for a possible match, e.g. "american" ⇒ "america".
@@ -213,23 +298,10 @@ object NCGeoEnricher extends NCNlpEnricher("Geo enricher") {
                                 val tok = toks.head
 
                                 if (NCPennTreebank.JJS_POS.contains(tok.pos)) {
-                                    var endLoop = false
-
-                                    for (noun ← NCWordNetManager.getNNsForJJ(tok.normText); if !endLoop) {
-                                        def onResult(locs: Set[NCGeoEntry]): Unit = {
-                                            addAll(locs)
-                                            endLoop = true
-                                        }
-
-                                        LOCATIONS.get(noun) match {
-                                            case Some(locs) ⇒ onResult(locs)
-                                            case None ⇒
-                                                LOCATIONS.get(noun.toLowerCase) match {
-                                                    case Some(locs) ⇒ onResult(locs)
-                                                    case None ⇒ // No-op.
-                                                }
-                                        }
-                                    }
+                                    val key = findAdjective(tok.normText)
+
+                                    if (key >= 0)
+                                        addAll(GAZETTEER.getEntries(key))
                                 }
                             }
                     }
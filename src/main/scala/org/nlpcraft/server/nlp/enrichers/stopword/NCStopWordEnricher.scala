@@ -36,6 +36,7 @@ import org.nlpcraft.common.NCLifecycle
 import org.nlpcraft.common.nlp.opennlp.NCNlpManager
 import org.nlpcraft.common.nlp.pos.NCPennTreebank
 import org.nlpcraft.common.nlp.{NCNlpSentence, NCNlpSentenceNote, NCNlpSentenceToken}
+import org.nlpcraft.common.snapshot.NCResourceSnapshot
 import org.nlpcraft.server.nlp.enrichers.NCNlpEnricher
 import org.nlpcraft.server.nlp.enrichers.NCNlpEnricher._
 
@@ -128,15 +129,65 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
         includes: Map[String, Set[Word]],
         excludes: Map[String, Set[Word]]
     ) {
+        // 'Any' words merged with words included by each POS.
+        private val anyIncludes: Map[String, Set[Word]] = includes.map { case (pos, set) ⇒ pos → (any ++ set) }
+
         def matches(s: String, posOpt: Option[String]): Boolean =
             posOpt match {
                 case Some(pos) ⇒
-                    !excludes.getOrElse(pos, Set.empty).contains(s) &&
-                    (any.contains(s) || includes.getOrElse(pos, Set.empty).contains(s))
+                    !excludes.getOrElse(pos, Set.empty).contains(s) && anyIncludes.getOrElse(pos, any).contains(s)
                 case _ ⇒ any.contains(s)
             }
     }
 
+    /**
+     * Wildcards matcher compiled into the prefixes trie. Each trie node keeps the suffixes of
+     * the wildcards which prefixes end in this node, so the string is scanned only once
+     * for all wildcards prefixes.
+     *
+     * @param wildcards Wildcards.
+     */
+    private class WildcardMatcher(wildcards: Set[Wildcard]) {
+        private class Node {
+            val children: mutable.HashMap[Char, Node] = mutable.HashMap.empty[Char, Node]
+            var suffixes: Array[String] = Array.empty
+        }
+
+        private val root = new Node
+
+        for ((b, e) ← wildcards) {
+            var node = root
+
+            for (ch ← b)
+                node = node.children.getOrElseUpdate(ch, new Node)
+
+            node.suffixes :+= e
+        }
+
+        def matches(s: String): Boolean = {
+            var node = root
+            var i = 0
+            var res = false
+
+            while (!res && node != null) {
+                res = node.suffixes.exists(s.endsWith)
+
+                node =
+                    if (i < s.length)
+                        node.children.get(s.charAt(i)) match {
+                            case Some(n) ⇒ n
+                            case None ⇒ null
+                        }
+                    else
+                        null
+
+                i += 1
+            }
+
+            res
+        }
+    }
+
     /**
      * Stop words holder, used for scanning.
      *
@@ -155,12 +206,14 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
         private val inclPoses = filterPoses(includes)
         private val exclPoses = filterPoses(excludes)
 
+        // Matchers compiled for each POS, 'any' wildcards merged with wildcards included by each POS.
+        private val anyMatcher = new WildcardMatcher(any)
+        private val inclMatchers = includes.map { case (pos, set) ⇒ pos → new WildcardMatcher(any ++ set) }
+        private val exclMatchers = excludes.map { case (pos, set) ⇒ pos → new WildcardMatcher(set) }
+
         private def filterPoses(m: Map[String, Set[Wildcard]]): Set[String] =
             m.filter { case(_, pair) ⇒ pair.exists { case (begin, end) ⇒ begin.isEmpty && end.isEmpty } }.keySet
 
-        private def matches(s: String, set: Set[Wildcard]): Boolean =
-            set.exists { case (b, e) ⇒ (b.isEmpty || s.startsWith(b)) && (e.isEmpty || s.endsWith(e)) }
-
         def matches(s: String, posOpt: Option[String]): Boolean =
             if (s.contains(' '))
                 false
@@ -168,11 +221,10 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
                 posOpt match {
                     case Some(pos) ⇒
                         !exclPoses.contains(pos) &&
-                        !matches(s, excludes.getOrElse(pos, Set.empty)) &&
+                        !exclMatchers.get(pos).exists(_.matches(s)) &&
                         (
                             inclPoses.contains(pos) ||
-                            matches(s, any) ||
-                            matches(s, includes.getOrElse(pos, Set.empty))
+                            inclMatchers.getOrElse(pos, anyMatcher).matches(s)
                         )
                     case _ ⇒ throw new AssertionError(s"Unexpected missed POS.")
                 }
@@ -202,16 +254,28 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
                     case _ ⇒ None
                 }
 
+            lazy val lemmaKey = toLemmaKey(toks)
+            lazy val origKey = toOriginalKey(toks)
+
             // Hash access.
             stems.matches(toStemKey(toks), posOpt) ||
-            lemmas.matches(toLemmaKey(toks), posOpt) ||
-            origins.matches(toOriginalKey(toks), posOpt) ||
+            lemmas.matches(lemmaKey, posOpt) ||
+            origins.matches(origKey, posOpt) ||
             // Scan access.
-            wildcardsLemmas.matches(toLemmaKey(toks), posOpt) ||
-            wildcardsOrigins.matches(toOriginalKey(toks), posOpt)
+            wildcardsLemmas.matches(lemmaKey, posOpt) ||
+            wildcardsOrigins.matches(origKey, posOpt)
         }
     }
 
+    /**
+     * Per-sentence cache key for the tokens sequence.
+     *
+     * @param from Index of the first token.
+     * @param to Index of the last token.
+     * @param mask Bit mask of the tokens included into sequence (relative to the first token).
+     */
+    private case class CacheKey(from: Int, to: Int, mask: Long)
+
     /**
      * Parses configuration template.
      *
@@ -424,16 +488,36 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
      * @param cache Cache map.
      * @param get Calculation method based on given tokens.
      */
-    private def exists(toks: Seq[NCNlpSentenceToken], cache: mutable.HashMap[Seq[NCNlpSentenceToken], Boolean], get: Seq[NCNlpSentenceToken] ⇒ Boolean): Boolean =
-        cache.get(toks) match {
-            case Some(b) ⇒ b
-            case None ⇒
-                val b = get(toks)
+    private def exists(
+        toks: Seq[NCNlpSentenceToken],
+        cache: mutable.HashMap[CacheKey, Boolean],
+        get: Seq[NCNlpSentenceToken] ⇒ Boolean
+    ): Boolean = {
+        val from = toks.head.index
+        val to = toks.last.index
+
+        // Too long sequences are not cached.
+        if (to - from >= 64)
+            get(toks)
+        else {
+            var mask = 0L
 
-                cache += toks → b
+            for (t ← toks)
+                mask |= 1L << (t.index - from)
 
-                b
+            val key = CacheKey(from, to, mask)
+
+            cache.get(key) match {
+                case Some(b) ⇒ b
+                case None ⇒
+                    val b = get(toks)
+
+                    cache += key → b
+
+                    b
+            }
         }
+    }
 
     /**
       *
@@ -574,8 +658,8 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
         processBrackets(ns)
 
         // Stop words and exceptions caches for this sentence.
-        val cacheSw = mutable.HashMap.empty[Seq[NCNlpSentenceToken], Boolean]
-        val cacheEx = mutable.HashMap.empty[Seq[NCNlpSentenceToken], Boolean]
+        val cacheSw = mutable.HashMap.empty[CacheKey, Boolean]
+        val cacheEx = mutable.HashMap.empty[CacheKey, Boolean]
 
         def isStop(toks: Seq[NCNlpSentenceToken]): Boolean = exists(toks, cacheSw, STOP_WORDS.matches)
         def isException(toks: Seq[NCNlpSentenceToken]): Boolean = exists(toks, cacheEx, EXCEPTIONS.matches)
@@ -624,14 +708,15 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
         // | Pass #3.                             |
         // | Find all words from predefined list. |
         // +--------------------------------------+
-        val buf = mutable.Buffer.empty[Seq[NCNlpSentenceToken]]
+        // Tokens are compared by their indexes.
+        val buf = mutable.Buffer.empty[Seq[Int]]
 
         val mix = ns.tokenMixWithStopWords()
 
-        for (toks ← mix if !buf.exists(_.containsSlice(toks)) && isStop(toks) && !isException(toks)) {
+        for (toks ← mix if !buf.exists(_.containsSlice(toks.map(_.index))) && isStop(toks) && !isException(toks)) {
             toks.foreach(mark)
 
-            buf += toks
+            buf += toks.map(_.index)
         }
 
         // Capture the token mix at this point minus the initial stop words found up to this point.
@@ -653,7 +738,7 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
         // All sentence first stop words + first non stop word.
         val startToks = ns.takeWhile(_.isStopword) ++ ns.find(!_.isStopword).map(p ⇒ p)
 
-        for (startTok ← startToks; tup ← origToks.filter(_._1.head == startTok); key = tup._2
+        for (startTok ← startToks; tup ← origToks.filter(_._1.head.index == startTok.index); key = tup._2
              if FIRST_WORDS.contains(key) && !isException(tup._1)) {
             tup._1.foreach(mark)
             foundKeys += key
@@ -683,10 +768,18 @@ object NCStopWordEnricher extends NCNlpEnricher("Stopword enricher") {
     override def start(): NCLifecycle = {
         ensureStopped()
 
+        def read(name: String): Set[String] = {
+            val res = s"stopwords/$name.txt.gz"
+
+            NCResourceSnapshot.get(s"stopwords-$name", Seq(res)) {
+                U.readTextGzipResource(res, "UTF-8", logger).toSet
+            }
+        }
+
         // Stemmatization is done already by generator.
-        POSSESSIVE_WORDS = U.readTextGzipResource("stopwords/possessive_words.txt.gz", "UTF-8", logger).toSet
-        FIRST_WORDS = U.readTextGzipResource("stopwords/first_words.txt.gz", "UTF-8", logger).toSet
-        NOUN_WORDS = U.readTextGzipResource("stopwords/noun_words.txt.gz", "UTF-8", logger).toSet
+        POSSESSIVE_WORDS = read("possessive_words")
+        FIRST_WORDS = read("first_words")
+        NOUN_WORDS = read("noun_words")
 
         // Case sensitive.
         val m =
@@ -0,0 +1,98 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.server.nlp.lang
+
+import java.util.regex.Pattern
+
+import org.apache.tika.langdetect.OptimaizeLangDetector
+import org.nlpcraft.common.NCLifecycle
+
+/**
+  * Language and charset detection for the normalized text. It's performed once on the server
+  * for each enriched sentence and the results are shipped to the probe with the sentence.
+  */
+object NCLanguageManager extends NCLifecycle("Language manager") {
+    private final val LATIN_CHARSET = Pattern.compile("""[\s\w\p{Punct}]+""")
+    
+    // NOTE: language finder is not thread-safe, so its access is synchronized.
+    @volatile private var langFinder: OptimaizeLangDetector = _
+    
+    /**
+      * Checks whether given text contains only latin charset characters.
+      *
+      * @param txt Text to check.
+      */
+    def isLatinCharset(txt: String): Boolean = {
+        ensureStarted()
+        
+        LATIN_CHARSET.matcher(txt).matches()
+    }
+    
+    /**
+      * Checks whether given text is detected as English.
+      *
+      * @param txt Text to check.
+      */
+    def isEnglish(txt: String): Boolean = {
+        ensureStarted()
+        
+        langFinder.synchronized {
+            langFinder.detect(txt).isLanguage("en")
+        }
+    }
+    
+    /**
+      * Starts this manager.
+      */
+    override def start(): NCLifecycle = {
+        ensureStopped()
+        
+        val finder = new OptimaizeLangDetector()
+        
+        finder.loadModels()
+        
+        langFinder = finder
+        
+        super.start()
+    }
+    
+    /**
+      * Stops this manager.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+        
+        langFinder = null
+        
+        super.stop()
+    }
+}
@@ -33,6 +33,7 @@ package org.nlpcraft.server.nlp.spell
 
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
+import org.nlpcraft.common.snapshot.NCResourceSnapshot
 import org.nlpcraft.server.json.NCJson
 
 import scala.collection._
@@ -43,12 +44,15 @@ import scala.collection._
 object NCSpellCheckManager extends NCLifecycle("Spellcheck manager") {
     case class Record(correct: String, misspellings: Seq[String])
     
-    private val dict: Map[String, String] = (
-        for (rec ← NCJson.extractResource[List[Record]]("spell/dictionary.json", ignoreCase = true)) yield {
-            for (v ← rec.misspellings) yield v → rec.correct
-        }
-        )
-        .flatten.toMap
+    private final val RES = "spell/dictionary.json"
+    
+    private val dict: Map[String, String] = NCResourceSnapshot.get("spell", Seq(RES)) {
+        (
+            for (rec ← NCJson.extractResource[List[Record]](RES, ignoreCase = true)) yield {
+                for (v ← rec.misspellings) yield v → rec.correct
+            }
+        ).flatten.toMap
+    }
     
     private def isWordUpper(s: String): Boolean = s.forall(_.isUpper)
     private def isHeadUpper(s: String): Boolean = s.head.isUpper
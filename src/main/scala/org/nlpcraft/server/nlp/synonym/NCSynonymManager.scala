@@ -33,6 +33,7 @@ package org.nlpcraft.server.nlp.synonym
 
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
+import org.nlpcraft.common.snapshot.NCResourceSnapshot
 import org.nlpcraft.server.json.NCJson
 import org.nlpcraft.server.nlp.synonym.NCSynonymType._
 import org.nlpcraft.server.nlp.wordnet.NCWordNetManager
@@ -41,6 +42,8 @@ import org.nlpcraft.server.nlp.wordnet.NCWordNetManager
  * Synonyms manager.
  */
 object NCSynonymManager extends NCLifecycle("Synonyms manager") {
+    private final val RES = "synonyms/synonyms.json"
+    
     @volatile private var m: Map[String, Seq[Seq[String]]] = _
 
     /**
@@ -50,19 +53,25 @@ object NCSynonymManager extends NCLifecycle("Synonyms manager") {
     override def start(): NCLifecycle = {
         ensureStopped()
         
-        m = NCJson.extractResource[Map[String, List[List[String]]]]("synonyms/synonyms.json", ignoreCase = true).
-            map(p ⇒ p._1.toUpperCase → p._2)
-
-        val sets = m.flatMap(_._2).toSeq
-        val dups = sets.flatten.filter(w ⇒ sets.count(_.contains(w)) > 1).distinct
-
-        if (dups.nonEmpty)
-            throw new NCE(s"Duplicated synonyms: ${dups.mkString(", ")}")
-
-        m.foreach(p ⇒
-            if (p._2.exists(_.isEmpty))
-                throw new NCE(s"Empty synonyms sets found for POS: ${p._1}")
-        )
+        // Validated data is stored in the snapshot, so validation is skipped for unchanged resources.
+        m = NCResourceSnapshot.get("synonyms", Seq(RES)) {
+            val m: Map[String, Seq[Seq[String]]] =
+                NCJson.extractResource[Map[String, List[List[String]]]](RES, ignoreCase = true).
+                    map(p ⇒ p._1.toUpperCase → p._2)
+    
+            val sets = m.flatMap(_._2).toSeq
+            val dups = sets.flatten.filter(w ⇒ sets.count(_.contains(w)) > 1).distinct
+    
+            if (dups.nonEmpty)
+                throw new NCE(s"Duplicated synonyms: ${dups.mkString(", ")}")
+    
+            m.foreach(p ⇒
+                if (p._2.exists(_.isEmpty))
+                    throw new NCE(s"Empty synonyms sets found for POS: ${p._1}")
+            )
+            
+            m
+        }
     
         super.start()
     }
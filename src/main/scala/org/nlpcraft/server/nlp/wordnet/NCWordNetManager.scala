@@ -31,6 +31,8 @@
 
 package org.nlpcraft.server.nlp.wordnet
 
+import java.util.concurrent.ConcurrentHashMap
+
 import net.sf.extjwnl.data.POS._
 import net.sf.extjwnl.data.{IndexWord, POS, PointerType}
 import net.sf.extjwnl.dictionary.{Dictionary, MorphologicalProcessor}
@@ -43,9 +45,52 @@ import scala.collection.JavaConverters._
   * WordNet manager.
   */
 object NCWordNetManager extends NCLifecycle("WordNet manager") {
+    // Maximum size of each lookup memo cache.
+    private final val MEMO_MAX_SIZE = 100000
+    
     @volatile private var dic: Dictionary = _
     @volatile private var morph: MorphologicalProcessor = _
     
+    /**
+      * Bounded concurrent memo cache for dictionary lookups.
+      * When the cache is full an arbitrary entry is evicted.
+      *
+      * @param maxSize Maximum cache size.
+      */
+    private class Memo[K, V](maxSize: Int) {
+        private val map = new ConcurrentHashMap[K, V]()
+        
+        def apply(k: K)(mk: ⇒ V): V = {
+            val v = map.get(k)
+            
+            if (v != null)
+                v
+            else {
+                val v = mk
+                
+                if (map.size() >= maxSize) {
+                    val it = map.keySet().iterator()
+                    
+                    if (it.hasNext) {
+                        it.next()
+                        it.remove()
+                    }
+                }
+                
+                map.put(k, v)
+                
+                v
+            }
+        }
+        
+        def clear(): Unit = map.clear()
+    }
+    
+    private val nnsForJJ = new Memo[String, Seq[String]](MEMO_MAX_SIZE)
+    private val jjsForNN = new Memo[String, Seq[String]](MEMO_MAX_SIZE)
+    private val synonyms = new Memo[(String, POS), Seq[Seq[String]]](MEMO_MAX_SIZE)
+    private val baseForms = new Memo[(String, POS), String](MEMO_MAX_SIZE)
+    
     private def pennPos2WordNet(pennPos: String): Option[POS] =
         pennPos.head match {
             case 'N' ⇒ Some(NOUN)
@@ -73,7 +118,7 @@ object NCWordNetManager extends NCLifecycle("WordNet manager") {
                     else
                         Seq.empty
                 })
-            ).distinct
+            ).distinct.toList
         else
             Seq.empty[String]
     }
@@ -91,6 +136,20 @@ object NCWordNetManager extends NCLifecycle("WordNet manager") {
         super.start()
     }
     
+    /**
+      * Stops manager.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+        
+        nnsForJJ.clear()
+        jjsForNN.clear()
+        synonyms.clear()
+        baseForms.clear()
+        
+        super.stop()
+    }
+    
     /**
       * Gets a sequence of possible nouns relatives for the given adjective.
       *
@@ -100,7 +159,23 @@ object NCWordNetManager extends NCLifecycle("WordNet manager") {
     def getNNsForJJ(adj: String): Seq[String] = {
         ensureStarted()
         
-        convert(adj, ADJECTIVE, NOUN)
+        nnsForJJ(adj) { convert(adj, ADJECTIVE, NOUN) }
+    }
+    
+    /**
+      * Gets possible nouns relatives for all dictionary adjectives. Results are not memoized,
+      * this method is intended for precomputed tables built at startup.
+      *
+      * @return Iterator of adjectives with their possible noun relatives.
+      */
+    def getNNsForAllJJs: Iterator[(String, Seq[String])] = {
+        ensureStarted()
+        
+        dic.getIndexWordIterator(ADJECTIVE).asScala.map(w ⇒ {
+            val adj = w.getLemma
+            
+            adj → convert(adj, ADJECTIVE, NOUN)
+        })
     }
     
     /**
@@ -112,7 +187,7 @@ object NCWordNetManager extends NCLifecycle("WordNet manager") {
     def getJJsForNN(noun: String): Seq[String] = {
         ensureStarted()
         
-        convert(noun, NOUN, ADJECTIVE)
+        jjsForNN(noun) { convert(noun, NOUN, ADJECTIVE) }
     }
     
     /**
@@ -129,17 +204,21 @@ object NCWordNetManager extends NCLifecycle("WordNet manager") {
         
         pennPos2WordNet(pennPos) match {
             case Some(wnPos) ⇒
-                morph.lookupBaseForm(wnPos, lemma) match {
-                    case wnWord: IndexWord ⇒
-                        val wnLemma = wnWord.getLemma
-                        val synonyms = if (syns == null) getSynonyms(lemma, pennPos).flatten.toSet else syns
+                def get(): String =
+                    morph.lookupBaseForm(wnPos, lemma) match {
+                        case wnWord: IndexWord ⇒
+                            val wnLemma = wnWord.getLemma
+                            val synonyms = if (syns == null) getSynonyms(lemma, pennPos).flatten.toSet else syns
                         
-                        if (synonyms.contains(wnLemma))
-                            wnLemma
-                        else
-                            lemma
-                    case null ⇒ lemma
-                }
+                            if (synonyms.contains(wnLemma))
+                                wnLemma
+                            else
+                                lemma
+                        case null ⇒ lemma
+                    }
+                
+                // Only results which depend on the lemma and POS are memoized.
+                if (syns == null) baseForms(lemma → wnPos) { get() } else get()
                 
             // For unsupported POS tags - return the input lemma.
             case None ⇒ lemma
@@ -157,32 +236,35 @@ object NCWordNetManager extends NCLifecycle("WordNet manager") {
         pennPos: String): Seq[Seq[String]] = {
         ensureStarted()
         
-        val res: Seq[Seq[String]] = pennPos2WordNet(pennPos) match {
+        pennPos2WordNet(pennPos) match {
             case Some(wnPos) ⇒
-                val wnWord = dic.lookupIndexWord(wnPos, lemma)
-                
-                if (wnWord == null)
-                    Seq.empty
-                else
-                    wnWord.getSynsetOffsets match {
-                        case synsOffs: Array[Long] ⇒
-                            synsOffs.
-                                map(dic.getSynsetAt(wnPos, _)).
-                                filter(_.getPOS == wnPos).
-                                map(
-                                    _.getWords.asScala.
-                                        map(_.getLemma.toLowerCase).
-                                        filter(_ != lemma).
-                                        map(normalize).toSeq
-                                )
-                        
-                        case null ⇒ Seq.empty
-                    }
+                synonyms(lemma → wnPos) {
+                    val wnWord = dic.lookupIndexWord(wnPos, lemma)
+                    
+                    val res: Seq[Seq[String]] =
+                        if (wnWord == null)
+                            Seq.empty
+                        else
+                            wnWord.getSynsetOffsets match {
+                                case synsOffs: Array[Long] ⇒
+                                    synsOffs.
+                                        map(dic.getSynsetAt(wnPos, _)).
+                                        filter(_.getPOS == wnPos).
+                                        map(
+                                            _.getWords.asScala.
+                                                map(_.getLemma.toLowerCase).
+                                                filter(_ != lemma).
+                                                map(normalize).toList
+                                        ).toList
+                                
+                                case null ⇒ Seq.empty
+                            }
+                    
+                    res.filter(_.nonEmpty)
+                }
                 
             // Invalid POS.
             case None ⇒ Seq.empty
         }
-        
-        res.filter(_.nonEmpty)
     }
 }
@@ -34,12 +34,18 @@ package org.nlpcraft.server.probe
 import java.io._
 import java.net.{InetSocketAddress, ServerSocket, Socket, SocketTimeoutException}
 import java.security.Key
-import java.util.concurrent.atomic.AtomicBoolean
-import java.util.concurrent.{ExecutorService, Executors}
+import java.sql.Timestamp
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicInteger}
+import java.util.concurrent.{ConcurrentHashMap, ExecutorService, Executors}
 
 import org.nlpcraft.common.ascii.NCAsciiTable
+import org.nlpcraft.common.latency.NCLatencyTrace
+import org.nlpcraft.common.latency.NCLatencyTrace._
+import org.nlpcraft.common.metrics.{NCGauge, NCMetricSnapshot, NCMetrics}
 import org.nlpcraft.common.nlp.NCNlpSentence
 import org.nlpcraft.server.NCConfigurable
+import org.nlpcraft.server.db.NCDbManager
+import org.nlpcraft.server.db.postgres.NCPsql
 import org.nlpcraft.server.mdo.{NCDataSourceMdo, NCProbeMdo, NCProbeModelMdo, NCUserMdo}
 import org.nlpcraft.server.notification.NCNotificationManager
 import org.nlpcraft.server.plugin.NCPluginManager
@@ -111,16 +117,44 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
     private case class ProbeHolder(
         probeKey: ProbeKey,
         probe: NCProbeMdo,
+        probeSessionId: Long, // ID of the 'probe_session' row this registration was logged with.
         var dnSocket: NCSocket,
         var upSocket: NCSocket,
         var dnThread: Thread, // Separate thread listening for messages from the probe.
         cryptoKey: Key, // Encryption key.
         timestamp: Long = U.nowUtcMs()
     ) {
+        // Number of messages scheduled for sending to the probe but not written yet.
+        val sendQueue = new AtomicInteger(0)
+        
+        @volatile var sendQueueGauge: NCGauge = _
+        
+        // Latest metrics reported by the probe with 'P2S_PING' message.
+        @volatile var metrics: Seq[NCMetricSnapshot] = Nil
+        
+        // Server request IDs sent to the probe and not answered yet.
+        val pendingAsks: java.util.Set[String] = ConcurrentHashMap.newKeySet[String]()
+        
+        /**
+          * Gets number of query threads available to given model, as reported by the probe.
+          * Models without dedicated pools share the probe's common pool.
+          *
+          * @param mdlId Model ID.
+          */
+        def capacity(mdlId: String): Int = {
+            def poolSize(pool: String): Option[Double] =
+                metrics.find(m ⇒ m.name == "nlpcraft_probe_pool_size" && m.labels.contains("pool" → pool)).map(_.value)
+            
+            poolSize(mdlId).orElse(poolSize("shared")).map(_.toInt).getOrElse(1).max(1)
+        }
+        
         /**
           *
           */
         def close(): Unit = {
+            if (sendQueueGauge != null)
+                NCMetrics.remove(sendQueueGauge)
+            
             if (dnThread != null)
                 U.stopThread(dnThread)
             
@@ -142,6 +176,10 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
     private val pending = mutable.HashMap.empty[ProbeKey, ProbeHolder]
     
     private var pool: ExecutorService = _
+    
+    private val sendHist = NCMetrics.histogram("nlpcraft_probe_send_seconds", "Time of writing message to the probe uplink socket.")
+    
+    NCMetrics.gauge("nlpcraft_probes_connected", "Number of connected probes.") { probes.synchronized { probes.size } }
     private var isStopping: AtomicBoolean = _
     private var authPlugin: NCProbeAuthenticationPlugin = _
     
@@ -228,17 +266,20 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
       * @param probeMsg Probe message to send.
       */
     private def sendToProbe(probeKey: ProbeKey, probeMsg: NCProbeMessage): Unit = {
-        val (sock, cryptoKey) = probes.synchronized {
-            probes.get(probeKey) match {
-                case None ⇒ (null, null)
-                case Some(h) ⇒ (h.upSocket, h.cryptoKey)
-            }
-        }
+        val holder = probes.synchronized { probes.get(probeKey).orNull }
         
-        if (sock != null)
+        if (holder != null) {
+            val sock = holder.upSocket
+            
+            holder.sendQueue.incrementAndGet()
+            
             Future {
+                val start = System.nanoTime()
+                
                 try {
-                    sock.write(probeMsg, cryptoKey)
+                    sock.write(probeMsg, holder.cryptoKey)
+                    
+                    sendHist.recordSince(start)
                 }
                 catch {
                     case _: EOFException ⇒
@@ -256,7 +297,10 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
                         
                         closeAndRemoveHolder(probeKey)
                 }
+                finally
+                    holder.sendQueue.decrementAndGet()
             }
+        }
         else
             logger.warn(s"Sending message to unknown probe (ignoring) [" +
                 s"probeKey=$probeKey, " +
@@ -426,6 +470,15 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
         if (holder != null)
             probes.synchronized {
                 probes += probeKey → holder
+    
+                holder.sendQueueGauge = NCMetrics.gauge(
+                    "nlpcraft_probe_send_queue",
+                    "Number of messages pending to be sent to the probe.",
+                    "probe_id" → probeKey.probeId,
+                    "probe_guid" → probeKey.probeGuid
+                ) {
+                    holder.sendQueue.get()
+                }
             
                 addProbeToTable(mkProbeTable, holder).info(logger, Some("New probe registered:"))
             
@@ -531,29 +584,56 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
                     case None ⇒
                         val probeApiDate = hsMsg.data[java.time.LocalDate]("PROBE_API_DATE")
                         
+                        val probe = NCProbeMdo(
+                            probeToken = hsMsg.data[String]("PROBE_TOKEN"),
+                            probeId = hsMsg.data[String]("PROBE_ID"),
+                            probeGuid = probeGuid,
+                            probeApiVersion = probeApiVer,
+                            probeApiDate = probeApiDate,
+                            osVersion = hsMsg.data[String]("PROBE_OS_VER"),
+                            osName = hsMsg.data[String]("PROBE_OS_NAME"),
+                            osArch = hsMsg.data[String]("PROBE_OS_ARCH"),
+                            startTstamp = new java.sql.Timestamp(hsMsg.data[Long]("PROBE_START_TSTAMP")),
+                            tmzId = hsMsg.data[String]("PROBE_TMZ_ID"),
+                            tmzAbbr = hsMsg.data[String]("PROBE_TMZ_ABBR"),
+                            tmzName = hsMsg.data[String]("PROBE_TMZ_NAME"),
+                            userName = hsMsg.data[String]("PROBE_SYS_USERNAME"),
+                            javaVersion = hsMsg.data[String]("PROBE_JAVA_VER"),
+                            javaVendor = hsMsg.data[String]("PROBE_JAVA_VENDOR"),
+                            hostName = hsMsg.data[String]("PROBE_HOST_NAME"),
+                            hostAddr = hsMsg.data[String]("PROBE_HOST_ADDR"),
+                            macAddr = hsMsg.dataOpt[String]("PROBE_HW_ADDR").getOrElse(""),
+                            models = models
+                        )
+
+                        // Probe attributes are logged once per registration, not per request.
+                        val probeSessionId = NCPsql.sql {
+                            NCDbManager.addProbeSession(
+                                probe.probeToken,
+                                probe.probeId,
+                                probe.probeGuid,
+                                probe.probeApiVersion,
+                                probe.probeApiDate,
+                                probe.osVersion,
+                                probe.osName,
+                                probe.osArch,
+                                probe.startTstamp,
+                                probe.tmzId,
+                                probe.tmzAbbr,
+                                probe.tmzName,
+                                probe.userName,
+                                probe.javaVersion,
+                                probe.javaVendor,
+                                probe.hostName,
+                                probe.hostAddr,
+                                probe.macAddr
+                            )
+                        }
+
                         val holder = ProbeHolder(
                             probeKey,
-                            NCProbeMdo(
-                                probeToken = hsMsg.data[String]("PROBE_TOKEN"),
-                                probeId = hsMsg.data[String]("PROBE_ID"),
-                                probeGuid = probeGuid,
-                                probeApiVersion = probeApiVer,
-                                probeApiDate = probeApiDate,
-                                osVersion = hsMsg.data[String]("PROBE_OS_VER"),
-                                osName = hsMsg.data[String]("PROBE_OS_NAME"),
-                                osArch = hsMsg.data[String]("PROBE_OS_ARCH"),
-                                startTstamp = new java.sql.Timestamp(hsMsg.data[Long]("PROBE_START_TSTAMP")),
-                                tmzId = hsMsg.data[String]("PROBE_TMZ_ID"),
-                                tmzAbbr = hsMsg.data[String]("PROBE_TMZ_ABBR"),
-                                tmzName = hsMsg.data[String]("PROBE_TMZ_NAME"),
-                                userName = hsMsg.data[String]("PROBE_SYS_USERNAME"),
-                                javaVersion = hsMsg.data[String]("PROBE_JAVA_VER"),
-                                javaVendor = hsMsg.data[String]("PROBE_JAVA_VENDOR"),
-                                hostName = hsMsg.data[String]("PROBE_HOST_NAME"),
-                                hostAddr = hsMsg.data[String]("PROBE_HOST_ADDR"),
-                                macAddr = hsMsg.dataOpt[String]("PROBE_HW_ADDR").getOrElse(""),
-                                models = models
-                            ),
+                            probe,
+                            probeSessionId,
                             null, // No downlink socket yet.
                             sock,
                             null, // No downlink thread yet.
@@ -593,11 +673,30 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
             val typ = probeMsg.getType
             
             typ match {
-                case "P2S_PING" ⇒ ()
+                case "P2S_PING" ⇒
+                    // Older probes don't send metrics.
+                    probeMsg.dataOpt[Seq[NCMetricSnapshot]]("metrics") match {
+                        case Some(metrics) ⇒
+                            probes.synchronized { probes.get(probeKey) } match {
+                                case Some(holder) ⇒ holder.metrics = metrics
+                                case None ⇒ // No-op.
+                            }
+                        case None ⇒ // No-op.
+                    }
                 
                 case "P2S_ASK_RESULT" ⇒
                     val srvReqId = probeMsg.data[String]("srvReqId")
                     
+                    probes.synchronized { probes.get(probeKey) } match {
+                        case Some(holder) ⇒ holder.pendingAsks.remove(srvReqId)
+                        case None ⇒ // No-op.
+                    }
+                    
+                    // Older probes don't send latency trace.
+                    val timings =
+                        probeMsg.dataOpt[List[(String, Long)]]("timings").getOrElse(Nil) :+
+                        (SRV_RESULT_RECV → U.nowUtcMs())
+                    
                     try {
                         val errOpt = probeMsg.dataOpt[String]("error")
                         val resTypeOpt = probeMsg.dataOpt[String]("resType")
@@ -608,7 +707,8 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
                             
                             NCQueryManager.setError(
                                 srvReqId,
-                                err
+                                err,
+                                timings
                             )
     
                             logger.trace(s"Error result processed [srvReqId=$srvReqId, error=$err]")
@@ -622,7 +722,8 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
                             NCQueryManager.setResult(
                                 srvReqId,
                                 resType,
-                                resBody
+                                resBody,
+                                timings
                             )
     
                             logger.trace(s"OK result processed [srvReqId=$srvReqId]")
@@ -634,7 +735,8 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
         
                             NCQueryManager.setError(
                                 srvReqId,
-                                "Processing failed due to a system error."
+                                "Processing failed due to a system error.",
+                                timings
                             )
                     }
                     
@@ -646,14 +748,23 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
     }
     
     /**
+      * Gets the least loaded probe hosting given model. The load is a number of queries
+      * sent to the probe and not answered yet, relative to the number of query threads
+      * the probe reported for this model.
       *
-      * @param modelId
+      * @param modelId Model ID.
       * @return
       */
-    private def getProbeForModelId(modelId: String): Option[ProbeHolder] =
-        probes.synchronized {
-            probes.values.find(_.probe.models.exists(_.id == modelId))
+    private def getProbeForModelId(modelId: String): Option[ProbeHolder] = {
+        val candidates = probes.synchronized {
+            probes.values.filter(_.probe.models.exists(_.id == modelId)).toSeq
         }
+        
+        if (candidates.isEmpty)
+            None
+        else
+            Some(candidates.minBy(h ⇒ h.pendingAsks.size().toDouble / h.capacity(modelId)))
+    }
     
     /**
       *
@@ -704,6 +815,8 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
       * @param usrAgent
       * @param rmtAddr
       * @param isTest
+      * @param rcvTstamp Receive timestamp of the request.
+      * @param trace Latency trace of the request.
       */
     @throws[NCE]
     def askProbe(
@@ -714,7 +827,9 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
         nlpSen: NCNlpSentence,
         usrAgent: Option[String],
         rmtAddr: Option[String],
-        isTest: Boolean): Unit = {
+        isTest: Boolean,
+        rcvTstamp: Timestamp,
+        trace: NCLatencyTrace): Unit = {
         ensureStarted()
         
         val senMeta =
@@ -733,6 +848,10 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
         
         getProbeForModelId(ds.modelId) match {
             case Some(holder) ⇒
+                holder.pendingAsks.add(srvReqId)
+                
+                trace.mark(SRV_PROBE_DISPATCH)
+                
                 sendToProbe(
                     holder.probeKey,
                     NCProbeMessage("S2P_ASK",
@@ -746,19 +865,57 @@ object NCProbeManager extends NCLifecycle("Probe manager") {
                         "dsName" → ds.name,
                         "dsDesc" → ds.shortDesc,
                         "dsModelCfg" → ds.modelConfig.orNull,
-                        "test" → isTest
+                        "test" → isTest,
+                        "timings" → trace.toList
                     )
                 )
 
                 NCProcessLogManager.updateProbe(
                     srvReqId,
-                    holder.probe
+                    rcvTstamp,
+                    holder.probeSessionId
                 )
 
             case None ⇒ throw new NCE(s"Unknown model ID: ${ds.modelId}")
         }
     }
     
+    /**
+      * Forgets pending asks of the queries which are not going to be answered by the probes
+      * anymore (cancelled, expired or failed on the server side), so they don't skew the routing.
+      *
+      * @param srvReqIds Server request IDs.
+      */
+    def forgetAsks(srvReqIds: Set[String]): Unit =
+        probes.synchronized { probes.values.toSeq }.foreach(h ⇒ srvReqIds.foreach(h.pendingAsks.remove))
+    
+    /**
+      * Gets latest metrics reported by all active probes, labelled with probe ID and GUID.
+      */
+    @throws[NCE]
+    def getProbesMetrics: Seq[NCMetricSnapshot] = {
+        ensureStarted()
+        
+        probes.synchronized { probes.values.toSeq }.flatMap(h ⇒
+            h.metrics.map(_.withLabels("probe_id" → h.probeKey.probeId, "probe_guid" → h.probeKey.probeGuid))
+        )
+    }
+    
+    /**
+      * Gets latest metrics reported by given probe.
+      *
+      * @param probeGuid Probe GUID.
+      */
+    @throws[NCE]
+    def getProbeMetrics(probeGuid: String): Seq[NCMetricSnapshot] = {
+        ensureStarted()
+        
+        probes.synchronized { probes.values.find(_.probeKey.probeGuid == probeGuid) } match {
+            case Some(h) ⇒ h.metrics
+            case None ⇒ Nil
+        }
+    }
+    
     /**
       * Gets all active probes.
       * 
@@ -32,105 +32,460 @@
 package org.nlpcraft.server.proclog
 
 import java.sql.Timestamp
+import java.util
 
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
-import org.nlpcraft.server.apicodes.NCApiStatusCode.NCApiStatusCode
+import org.nlpcraft.common.latency.NCLatencyTrace
+import org.nlpcraft.common.metrics.NCMetrics
+import org.nlpcraft.server.NCConfigurable
+import org.nlpcraft.server.apicodes.NCApiStatusCode._
 import org.nlpcraft.server.db.NCDbManager
 import org.nlpcraft.server.db.postgres.NCPsql
-import org.nlpcraft.server.mdo.NCProbeMdo
+
+import scala.collection.JavaConverters._
 
 /**
   * Process log manager.
+  *
+  * In write-behind mode all lifecycle updates of the same request are merged in a bounded in-memory
+  * queue and periodically flushed by the dedicated thread in JDBC batches. Request that was created
+  * and completed between two flushes is written with a single insert.
   */
 object NCProcessLogManager extends NCLifecycle("Process log manager") {
+    private object Config extends NCConfigurable {
+        final val prefix = "server.processLog"
+        
+        val writeBehind: Boolean = hocon.getBoolean(s"$prefix.writeBehind")
+        val flushIntervalMs: Long = hocon.getLong(s"$prefix.flushIntervalMs")
+        val maxLagMs: Long = hocon.getLong(s"$prefix.maxLagMs")
+        val maxQueueSize: Int = hocon.getInt(s"$prefix.maxQueueSize")
+        val batchSize: Int = hocon.getInt(s"$prefix.batchSize")
+        
+        override def check(): Unit = {
+            require(flushIntervalMs > 0,
+                s"Configuration parameter '$prefix.flushIntervalMs' must be > 0")
+            require(maxLagMs >= flushIntervalMs,
+                s"Configuration parameter '$prefix.maxLagMs' must be >= '$prefix.flushIntervalMs'")
+            require(maxQueueSize > 0,
+                s"Configuration parameter '$prefix.maxQueueSize' must be > 0")
+            require(batchSize > 0 && batchSize <= maxQueueSize,
+                s"Configuration parameter '$prefix.batchSize' must be > 0 and <= '$prefix.maxQueueSize'")
+        }
+    }
+    
+    Config.check()
+    
+    // Initial parameters of the request.
+    private case class Created(
+        usrId: Long,
+        txt: String,
+        dsId: Long,
+        mdlId: String,
+        status: NCApiStatusCode,
+        test: Boolean,
+        usrAgent: String,
+        rmtAddr: String
+    )
+    
+    // Result parameters of the request.
+    private case class Ready(
+        tstamp: Timestamp,
+        errMsg: String,
+        resType: String,
+        resBody: String,
+        timings: String
+    )
+    
+    // Merged pending updates of the single request.
+    private class Entry(val srvReqId: String, val rcvTstamp: Timestamp, val enqueued: Long) {
+        var created: Option[Created] = None
+        var probeSessionId: Option[Long] = None
+        var ready: Option[Ready] = None
+        var cancel: Option[Timestamp] = None
+        // Whether or not cancellation is the latest status update.
+        var cancelLast = false
+        
+        def status: String =
+            if (cancel.isDefined && cancelLast)
+                NCDbManager.QRY_CANCELLED
+            else if (ready.isDefined)
+                QRY_READY.toString
+            else
+                created.get.status.toString
+    }
+    
+    private final val mux = new Object()
+    
+    // Pending entries in the order of their first update (guarded by 'mux').
+    private var pending = new util.LinkedHashMap[String, Entry]()
+    // Enqueue time of the oldest entry being flushed or '0' (guarded by 'mux').
+    private var flushing = 0L
+    private var stopping = false
+    
+    @volatile private var flusher: Thread = _
+    
+    private val flushedCnt = NCMetrics.counter("nlpcraft_proclog_flushed_total", "Total number of requests flushed to the processing log.")
+    private val lostCnt = NCMetrics.counter("nlpcraft_proclog_lost_total", "Total number of requests whose processing log updates were lost.")
+    private val flushHist = NCMetrics.histogram("nlpcraft_proclog_flush_seconds", "Processing log write-behind flush time.")
+    
+    NCMetrics.gauge("nlpcraft_proclog_queue_size", "Number of requests waiting for processing log flush.") {
+        mux.synchronized { pending.size }
+    }
+    
+    /**
+      * Starts this manager.
+      */
+    @throws[NCE]
+    override def start(): NCLifecycle = {
+        ensureStopped()
+        
+        if (Config.writeBehind) {
+            mux.synchronized {
+                stopping = false
+            }
+            
+            flusher = U.mkThread("proc-log-flusher") { _ ⇒
+                var done = false
+                
+                while (!done) {
+                    val batch = mux.synchronized {
+                        if (!stopping && pending.size < Config.batchSize)
+                            mux.wait(Config.flushIntervalMs)
+                        
+                        done = stopping
+                        
+                        swap()
+                    }
+                    
+                    flush(batch)
+                }
+            }
+            
+            flusher.start()
+            
+            logger.info(s"Process log write-behind started [flushIntervalMs=${Config.flushIntervalMs}, " +
+                s"maxLagMs=${Config.maxLagMs}, maxQueueSize=${Config.maxQueueSize}]")
+        }
+        
+        super.start()
+    }
+    
+    /**
+      * Stops this manager flushing all pending updates.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+        
+        if (flusher != null) {
+            mux.synchronized {
+                stopping = true
+                
+                mux.notifyAll()
+            }
+            
+            try
+                flusher.join()
+            catch {
+                case _: InterruptedException ⇒ logger.warn("Process log flusher joining was interrupted.")
+            }
+            
+            // Updates can still arrive while flusher is finishing.
+            flush(mux.synchronized { swap() })
+            
+            flusher = null
+        }
+        
+        super.stop()
+    }
+    
+    /**
+      * Takes all pending entries marking them as being flushed. Should be called under 'mux'.
+      */
+    private def swap(): Seq[Entry] = {
+        val batch = pending.values().asScala.toSeq
+        
+        if (batch.nonEmpty) {
+            pending = new util.LinkedHashMap[String, Entry]()
+            flushing = batch.head.enqueued
+        }
+        
+        batch
+    }
+    
+    /**
+      * Whether or not callers should wait for the flusher to catch up. Should be called under 'mux'.
+      *
+      * @param now Current time.
+      */
+    private def isBehind(now: Long): Boolean = {
+        val oldest =
+            if (flushing != 0)
+                flushing
+            else if (!pending.isEmpty)
+                pending.values().iterator().next().enqueued
+            else
+                now
+        
+        pending.size >= Config.maxQueueSize || now - oldest > Config.maxLagMs
+    }
+    
+    /**
+      * Merges given update into the pending entry of the request.
+      *
+      * @param srvReqId Server request ID.
+      * @param rcvTstamp Receive timestamp of the request.
+      * @param f Update function.
+      */
+    private def enqueue(srvReqId: String, rcvTstamp: Timestamp)(f: Entry ⇒ Unit): Unit =
+        mux.synchronized {
+            // Back pressure.
+            while (!stopping && isBehind(U.nowUtcMs())) {
+                mux.notifyAll()
+                mux.wait(Config.flushIntervalMs)
+            }
+            
+            val e = pending.get(srvReqId) match {
+                case null ⇒
+                    val e = new Entry(srvReqId, rcvTstamp, U.nowUtcMs())
+                    
+                    pending.put(srvReqId, e)
+                    
+                    e
+                case e ⇒ e
+            }
+            
+            f(e)
+            
+            if (pending.size >= Config.batchSize)
+                mux.notifyAll()
+        }
+    
+    /**
+      * Flushes given entries in one transaction falling back to per-request transactions on error.
+      *
+      * @param batch Entries to flush.
+      */
+    private def flush(batch: Seq[Entry]): Unit =
+        if (batch.nonEmpty) {
+            val start = System.nanoTime()
+            
+            var failed = 0
+            
+            try
+                NCPsql.sql { write(batch) }
+            catch {
+                case e: Throwable ⇒
+                    logger.warn(s"Failed to flush process log batch, retrying one by one [size=${batch.size}]", e)
+                    
+                    for (ent ← batch)
+                        try
+                            NCPsql.sql { write(Seq(ent)) }
+                        catch {
+                            case e: Throwable ⇒
+                                failed += 1
+                                
+                                logger.trace(s"Failed to write process log [srvReqId=${ent.srvReqId}]", e)
+                        }
+                    
+                    if (failed > 0) {
+                        lostCnt.inc(failed)
+                        
+                        logger.error(s"Process log updates lost [requests=$failed]")
+                    }
+            }
+            
+            flushHist.recordSince(start)
+            flushedCnt.inc(batch.size - failed)
+            
+            mux.synchronized {
+                flushing = 0
+                
+                mux.notifyAll()
+            }
+        }
+    
+    /**
+      * Writes given entries. Should be called inside of 'NCPsql.sql' block.
+      *
+      * @param batch Entries to write.
+      */
+    @throws[NCE]
+    private def write(batch: Seq[Entry]): Unit = {
+        def readyParams(e: Entry): Seq[Any] = {
+            val r = e.ready.get
+            
+            Seq(QRY_READY.toString, r.errMsg, r.resType, r.resBody, r.tstamp, r.timings, e.srvReqId, e.rcvTstamp)
+        }
+        
+        val size = Config.batchSize
+        
+        val (ins, upd) = batch.partition(_.created.isDefined)
+        
+        if (ins.nonEmpty) {
+            val b = NCDbManager.newFullProcessingLogBatch(size)
+            
+            for (e ← ins) {
+                val c = e.created.get
+                
+                b.add(
+                    c.usrId,
+                    e.srvReqId,
+                    c.txt,
+                    c.dsId,
+                    c.mdlId,
+                    e.status,
+                    c.test,
+                    c.usrAgent,
+                    c.rmtAddr,
+                    e.rcvTstamp,
+                    e.ready.map(_.tstamp).orNull,
+                    e.cancel.orNull,
+                    e.ready.map(_.resType).orNull,
+                    e.ready.map(_.resBody).orNull,
+                    e.ready.map(_.errMsg).orNull,
+                    e.probeSessionId,
+                    e.ready.map(_.timings).orNull
+                )
+            }
+            
+            b.close()
+        }
+        
+        // Updates of already inserted requests are applied in the order they were received.
+        val probes = upd.filter(_.probeSessionId.isDefined)
+        val cancels = upd.filter(_.cancel.isDefined)
+        val (readyFirst, readyLast) = upd.filter(_.ready.isDefined).partition(e ⇒ e.cancel.isEmpty || e.cancelLast)
+        
+        if (probes.nonEmpty) {
+            val b = NCDbManager.updateProbeProcessingLogBatch(size)
+            
+            probes.foreach(e ⇒ b.add(e.probeSessionId.get, e.srvReqId, e.rcvTstamp))
+            
+            b.close()
+        }
+        
+        def addReady(entries: Seq[Entry]): Unit =
+            if (entries.nonEmpty) {
+                val b = NCDbManager.updateReadyProcessingLogBatch(size)
+                
+                entries.foreach(e ⇒ b.add(readyParams(e): _*))
+                
+                b.close()
+            }
+        
+        addReady(readyFirst)
+        
+        if (cancels.nonEmpty) {
+            val b = NCDbManager.updateCancelProcessingLogBatch(size)
+            
+            cancels.foreach(e ⇒ b.add(NCDbManager.QRY_CANCELLED, e.cancel.get, e.srvReqId, e.rcvTstamp))
+            
+            b.close()
+        }
+        
+        addReady(readyLast)
+    }
+    
     /**
       * 
       * @param srvReqId
+      * @param rcvTstamp Receive timestamp of the request.
       * @param tstamp
       */
     @throws[NCE]
     def updateCancel(
         srvReqId: String,
+        rcvTstamp: Timestamp,
         tstamp: Timestamp
     )
     : Unit = {
         ensureStarted()
     
-        NCPsql.sql {
-            NCDbManager.updateCancelProcessingLog(
-                srvReqId,
-                tstamp
-            )
-        }
+        if (flusher != null)
+            enqueue(srvReqId, rcvTstamp) { e ⇒
+                e.cancel = Some(tstamp)
+                e.cancelLast = true
+            }
+        else
+            NCPsql.sql {
+                NCDbManager.updateCancelProcessingLog(
+                    srvReqId,
+                    rcvTstamp,
+                    tstamp
+                )
+            }
     }
     
     /**
       * Updates log entry with given result parameters.
       * 
       * @param srvReqId ID of the server request to update.
+      * @param rcvTstamp Receive timestamp of the request.
       * @param tstamp
       * @param errMsg
       * @param resType
       * @param resBody
+      * @param timings Latency trace hops of the request.
       */
     @throws[NCE]
     def updateReady(
         srvReqId: String,
+        rcvTstamp: Timestamp,
         tstamp: Timestamp,
         errMsg: Option[String] = None,
         resType: Option[String] = None,
-        resBody: Option[String] = None
+        resBody: Option[String] = None,
+        timings: Seq[(String, Long)] = Nil
     ): Unit = {
         ensureStarted()
+        
+        val timingsJs = if (timings.isEmpty) null else NCLatencyTrace.toJson(timings)
     
-        NCPsql.sql {
-            NCDbManager.updateReadyProcessingLog(
-                srvReqId,
-                errMsg.orNull,
-                resType.orNull,
-                resBody.orNull,
-                tstamp
-            )
-        }
+        if (flusher != null)
+            enqueue(srvReqId, rcvTstamp) { e ⇒
+                e.ready = Some(Ready(tstamp, errMsg.orNull, resType.orNull, resBody.orNull, timingsJs))
+                e.cancelLast = false
+            }
+        else
+            NCPsql.sql {
+                NCDbManager.updateReadyProcessingLog(
+                    srvReqId,
+                    rcvTstamp,
+                    errMsg.orNull,
+                    resType.orNull,
+                    resBody.orNull,
+                    tstamp,
+                    timingsJs
+                )
+            }
     }
     
     /**
-      * Updates log entry with given result parameters.
+      * Updates log entry with the probe session processing the request.
       *
       * @param srvReqId ID of the server request to update.
-      * @param probe
+      * @param rcvTstamp Receive timestamp of the request.
+      * @param probeSessionId Probe session ID.
       */
     @throws[NCE]
     def updateProbe(
         srvReqId: String,
-        probe: NCProbeMdo
+        rcvTstamp: Timestamp,
+        probeSessionId: Long
     ): Unit = {
         ensureStarted()
         
-        NCPsql.sql {
-            NCDbManager.updateProbeProcessingLog(
-                srvReqId,
-                probe.probeToken,
-                probe.probeId,
-                probe.probeGuid,
-                probe.probeApiVersion,
-                probe.probeApiDate,
-                probe.osVersion,
-                probe.osName,
-                probe.osArch,
-                probe.startTstamp,
-                probe.tmzId,
-                probe.tmzAbbr,
-                probe.tmzName,
-                probe.userName,
-                probe.javaVersion,
-                probe.javaVendor,
-                probe.hostName,
-                probe.hostAddr,
-                probe.macAddr
-            )
-        }
+        if (flusher != null)
+            enqueue(srvReqId, rcvTstamp) { _.probeSessionId = Some(probeSessionId) }
+        else
+            NCPsql.sql {
+                NCDbManager.updateProbeProcessingLog(
+                    srvReqId,
+                    rcvTstamp,
+                    probeSessionId
+                )
+            }
     }
 
     /**
@@ -162,19 +517,24 @@ object NCProcessLogManager extends NCLifecycle("Process log manager") {
     ): Unit = {
         ensureStarted()
         
-        NCPsql.sql {
-            NCDbManager.newProcessingLog(
-                usrId,
-                srvReqId,
-                txt,
-                dsId,
-                mdlId,
-                status,
-                test,
-                usrAgent,
-                rmtAddr,
-                rcvTstamp
-            )
-        }
+        if (flusher != null)
+            enqueue(srvReqId, rcvTstamp) {
+                _.created = Some(Created(usrId, txt, dsId, mdlId, status, test, usrAgent, rmtAddr))
+            }
+        else
+            NCPsql.sql {
+                NCDbManager.newProcessingLog(
+                    usrId,
+                    srvReqId,
+                    txt,
+                    dsId,
+                    mdlId,
+                    status,
+                    test,
+                    usrAgent,
+                    rmtAddr,
+                    rcvTstamp
+                )
+            }
     }
 }
@@ -0,0 +1,266 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.server.proclog
+
+import java.io.{BufferedOutputStream, File, FileOutputStream}
+import java.time.LocalDate
+import java.time.format.DateTimeFormatter
+import java.util.zip.GZIPOutputStream
+import java.util.{Timer, TimerTask}
+
+import org.nlpcraft.common._
+import org.nlpcraft.common.NCLifecycle
+import org.nlpcraft.server.NCConfigurable
+import org.nlpcraft.server.db.NCDbManager
+import org.nlpcraft.server.db.postgres.NCPsql
+import org.nlpcraft.server.mdo.NCProcessLogPartitionMdo
+import resource.managed
+
+/**
+  * Maintains range partitions of the processing log: creates partitions ahead of time
+  * and expires old ones according to the retention policy.
+  */
+object NCProcessLogPartitionManager extends NCLifecycle("Process log partition manager") {
+    // Expired partition actions.
+    private final val ACTIONS = Seq("drop", "detach", "archive")
+    
+    private final val NAME_FMT = DateTimeFormatter.ofPattern("yyyyMMdd")
+    
+    private object Config extends NCConfigurable {
+        final val prefix = "server.processLog.partitions"
+        
+        val periodDays: Int = hocon.getInt(s"$prefix.periodDays")
+        val precreate: Int = hocon.getInt(s"$prefix.precreate")
+        val retentionDays: Int = hocon.getInt(s"$prefix.retentionDays")
+        val retentionAction: String = hocon.getString(s"$prefix.retentionAction")
+        val archiveDir: String = hocon.getString(s"$prefix.archiveDir")
+        val checkPeriodMins: Int = hocon.getInt(s"$prefix.checkPeriodMins")
+        
+        lazy val checkMs: Long = checkPeriodMins * 60 * 1000L
+        
+        override def check(): Unit = {
+            require(periodDays > 0,
+                s"Configuration parameter '$prefix.periodDays' must be > 0")
+            require(precreate > 0,
+                s"Configuration parameter '$prefix.precreate' must be > 0")
+            require(retentionDays >= 0,
+                s"Configuration parameter '$prefix.retentionDays' must be >= 0 (0 disables retention)")
+            require(ACTIONS.contains(retentionAction),
+                s"Configuration parameter '$prefix.retentionAction' must be one of: ${ACTIONS.mkString(", ")}")
+            require(retentionAction != "archive" || archiveDir.nonEmpty,
+                s"Configuration parameter '$prefix.archiveDir' must be set for 'archive' retention action")
+            require(checkPeriodMins > 0,
+                s"Configuration parameter '$prefix.checkPeriodMins' must be > 0")
+        }
+    }
+    
+    Config.check()
+    
+    @volatile private var timer: Timer = _
+    
+    /**
+      * Starts this manager.
+      */
+    @throws[NCE]
+    override def start(): NCLifecycle = {
+        ensureStopped()
+        
+        if (Config.retentionAction == "archive") {
+            val dir = new File(Config.archiveDir)
+            
+            if (!dir.isDirectory && !dir.mkdirs())
+                throw new NCE(s"Failed to create process log archive folder: ${dir.getAbsolutePath}")
+        }
+        
+        // Partitions for the current period should exist before the first request.
+        maintain()
+        
+        timer = new Timer("proc-log-partitions", true)
+        
+        timer.scheduleAtFixedRate(
+            new TimerTask() {
+                def run() {
+                    try
+                        maintain()
+                    catch {
+                        case e: Throwable ⇒ logger.error("Error during process log partitions maintenance.", e)
+                    }
+                }
+            },
+            Config.checkMs,
+            Config.checkMs
+        )
+        
+        super.start()
+    }
+    
+    /**
+      * Stops this manager.
+      */
+    override def stop(): Unit = {
+        checkStopping()
+        
+        if (timer != null)
+            timer.cancel()
+        
+        timer = null
+        
+        super.stop()
+    }
+    
+    /**
+      * Creates missing partitions and expires old ones.
+      */
+    private def maintain(): Unit = {
+        // Receive timestamps are bound without calendar, i.e. stored as JVM local time,
+        // so partitions bounds (and their dates) are in JVM time zone as well.
+        val today = LocalDate.now()
+        
+        val parts = NCPsql.sql { NCDbManager.getProcessingLogPartitions }
+        
+        create(today, parts)
+        
+        if (Config.retentionDays > 0)
+            expire(today, parts)
+    }
+    
+    /**
+      * Creates current and future partitions not covered by existing ones.
+      *
+      * @param today Current date.
+      * @param parts Existing partitions.
+      */
+    private def create(today: LocalDate, parts: Seq[NCProcessLogPartitionMdo]): Unit = {
+        // Partitions are aligned to the multiples of the period since epoch.
+        val start = today.minusDays(Math.floorMod(today.toEpochDay, Config.periodDays.toLong))
+        
+        for (i ← 0 to Config.precreate) {
+            val from = start.plusDays(i.toLong * Config.periodDays)
+            val to = from.plusDays(Config.periodDays)
+            
+            val covered = parts.exists(p ⇒
+                p.fromTstamp.toLocalDateTime.isBefore(to.atStartOfDay) &&
+                p.toTstamp.toLocalDateTime.isAfter(from.atStartOfDay)
+            )
+            
+            if (!covered) {
+                val name = s"proc_log_${from.format(NAME_FMT)}"
+                
+                try {
+                    // Rows which got into the default partition are moved in the same transaction.
+                    val moved = NCPsql.sql {
+                        NCDbManager.addProcessingLogPartition(name, from, to)
+                    }
+                    
+                    logger.info(s"Process log partition created [name=$name, from=$from, to=$to, movedRows=$moved]")
+                }
+                catch {
+                    case e: NCE ⇒ logger.error(s"Failed to create process log partition: $name", e)
+                }
+            }
+        }
+    }
+    
+    /**
+      * Applies retention action to partitions containing only expired rows.
+      *
+      * @param today Current date.
+      * @param parts Existing partitions.
+      */
+    private def expire(today: LocalDate, parts: Seq[NCProcessLogPartitionMdo]): Unit = {
+        val cutoff = today.minusDays(Config.retentionDays).atStartOfDay
+        
+        for (p ← parts if !p.toTstamp.toLocalDateTime.isAfter(cutoff))
+            try {
+                // Each partition is handled in its own transaction.
+                Config.retentionAction match {
+                    case "drop" ⇒
+                        NCPsql.sql { NCDbManager.dropTable(p.name) }
+                    
+                    case "detach" ⇒
+                        NCPsql.sql { NCDbManager.detachProcessingLogPartition(p.name) }
+                        
+                    case "archive" ⇒
+                        // Partition is exported while still attached: that only needs shared lock on it,
+                        // while detaching locks the whole process log exclusively. Expired partition doesn't
+                        // get new rows, and failed export keeps it attached.
+                        val rows = NCPsql.sql { archive(p.name) }
+                        
+                        logger.info(s"Process log partition archived [name=${p.name}, rows=$rows]")
+                        
+                        NCPsql.sql {
+                            NCDbManager.detachProcessingLogPartition(p.name)
+                            NCDbManager.dropTable(p.name)
+                        }
+                }
+                
+                logger.info(s"Process log partition expired [name=${p.name}, action=${Config.retentionAction}]")
+            }
+            catch {
+                case e: NCE ⇒ logger.error(s"Failed to expire process log partition: ${p.name}", e)
+            }
+    }
+    
+    /**
+      * Exports given table into the GZIP-ed CSV file in the archive folder.
+      * Should be called inside of 'NCPsql.sql' block.
+      *
+      * @param name Table name.
+      * @return Number of exported rows.
+      */
+    @throws[NCE]
+    private def archive(name: String): Long = {
+        val file = new File(Config.archiveDir, s"$name.csv.gz")
+        val tmp = new File(Config.archiveDir, s"$name.csv.gz.tmp")
+        
+        val rows =
+            try
+                managed(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) acquireAndGet {
+                    out ⇒ NCDbManager.exportTable(name, out)
+                }
+            catch {
+                case e: NCE ⇒
+                    tmp.delete()
+                    
+                    throw e
+                case e: Exception ⇒
+                    tmp.delete()
+                    
+                    throw new NCE(s"Failed to write process log archive: ${file.getAbsolutePath}", e)
+            }
+        
+        if (!tmp.renameTo(file))
+            throw new NCE(s"Failed to rename process log archive: ${tmp.getAbsolutePath}")
+        
+        rows
+    }
+}
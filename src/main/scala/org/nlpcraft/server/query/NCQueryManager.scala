@@ -32,10 +32,16 @@
 package org.nlpcraft.server.query
 
 import java.sql.Timestamp
+import java.util.concurrent.ConcurrentHashMap
 
 import org.apache.ignite.IgniteCache
+import org.apache.ignite.events.{CacheEvent, EventType}
+import org.apache.ignite.lang.IgnitePredicate
 import org.nlpcraft.common._
 import org.nlpcraft.common.NCLifecycle
+import org.nlpcraft.common.latency.NCLatencyTrace
+import org.nlpcraft.common.latency.NCLatencyTrace._
+import org.nlpcraft.common.metrics.NCMetrics
 import org.nlpcraft.server.apicodes.NCApiStatusCode._
 import org.nlpcraft.server.ds.NCDsManager
 import org.nlpcraft.server.endpoints.NCEndpointManager
@@ -58,8 +64,20 @@ import scala.util.control.Exception._
   */
 object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance {
     @volatile private var cache: IgniteCache[String/*Server request ID*/, NCQueryStateMdo] = _
+    @volatile private var expLsnr: IgnitePredicate[CacheEvent] = _
     
     private final val MAX_WORDS = 100
+    
+    // Server request IDs which are asked but not answered yet.
+    private val inFlight = ConcurrentHashMap.newKeySet[String]()
+    
+    private val asksCnt = NCMetrics.counter("nlpcraft_query_asks_total", "Total number of asked queries.")
+    private val resultsCnt = NCMetrics.counter("nlpcraft_query_results_total", "Total number of query results.")
+    private val errorsCnt = NCMetrics.counter("nlpcraft_query_errors_total", "Total number of query errors.")
+    private val cancelsCnt = NCMetrics.counter("nlpcraft_query_cancels_total", "Total number of cancelled queries.")
+    private val latencyHist = NCMetrics.histogram("nlpcraft_query_latency_seconds", "Query latency from ask to result or error.")
+    
+    NCMetrics.gauge("nlpcraft_query_in_flight", "Number of queries being processed.") { inFlight.size() }
 
     /**
       * Starts this component.
@@ -73,8 +91,41 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
         
         require(cache != null)
         
+        val cacheName = cache.getName
+        
+        // Query states which are never answered are evicted by the cache expiry policy.
+        expLsnr = new IgnitePredicate[CacheEvent] {
+            override def apply(evt: CacheEvent): Boolean = {
+                if (evt.cacheName() == cacheName)
+                    onExpired(evt.key[String]())
+                
+                true
+            }
+        }
+        
+        catching(wrapIE) {
+            ignite.events().localListen(expLsnr, EventType.EVT_CACHE_OBJECT_EXPIRED)
+        }
+        
         super.start()
     }
+    
+    /**
+      * Stops this component.
+      */
+    override def stop(): Unit = {
+        if (expLsnr != null) {
+            catching(wrapIE) {
+                ignite.events().stopLocalListen(expLsnr, EventType.EVT_CACHE_OBJECT_EXPIRED)
+            }
+            
+            expLsnr = null
+        }
+        
+        cache = null
+        
+        super.stop()
+    }
 
     /**
       *
@@ -112,6 +163,11 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
             throw new NCE(s"User input is too long (max is $MAX_WORDS words).")
         
         val srvReqId = U.genGuid()
+        
+        asksCnt.inc()
+        inFlight.add(srvReqId)
+        
+        val trace = new NCLatencyTrace(Seq(SRV_REST_RECV → rcvTstamp.getTime))
     
         catching(wrapIE) {
             // Enlist for tracking.
@@ -157,15 +213,23 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
             )
     
             // Enrich the user input and send it to the probe.
+            trace.mark(SRV_ENRICH_START)
+            
+            val nlpSen = NCNlpEnricherManager.enrich(txt0)
+            
+            trace.mark(SRV_ENRICH_END)
+            
             NCProbeManager.askProbe(
                 srvReqId,
                 usr,
                 ds,
                 txt0,
-                NCNlpEnricherManager.enrich(txt0),
+                nlpSen,
                 usrAgent,
                 rmtAddr,
-                isTest
+                isTest,
+                rcvTstamp,
+                trace
             )
         }
         
@@ -173,7 +237,7 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
             case e: Throwable ⇒
                 logger.error(s"System error processing query: ${e.getLocalizedMessage}", e)
                 
-                setError(srvReqId, "Processing failed due to a system error.")
+                setError(srvReqId, "Processing failed due to a system error.", trace.toList)
         }
         
         srvReqId
@@ -183,39 +247,48 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
       *
       * @param srvReqId
       * @param errMsg
+      * @param timings Latency trace hops of the request, if available.
       */
     @throws[NCE]
-    def setError(srvReqId: String, errMsg: String): Unit = {
+    def setError(srvReqId: String, errMsg: String, timings: List[(String, Long)] = Nil): Unit = {
         ensureStarted()
         
         val now = new Timestamp(U.nowUtcMs())
     
-        val found = catching(wrapIE) {
+        // Receive timestamp of the found request.
+        val rcvTstamp = catching(wrapIE) {
             cache(srvReqId) match {
                 case Some(copy) ⇒
                     copy.updateTstamp = now
                     copy.status = QRY_READY
                     copy.error = Some(errMsg)
+                    copy.timings = timings
+    
+                    onReady(copy)
 
                     cache += srvReqId → copy
 
                     processEndpoint(copy.userId, ep ⇒ NCEndpointManager.addNotification(copy, ep))
 
-                    true
+                    Some(copy.createTstamp)
 
                 case None ⇒
                     // Safely ignore missing status (cancelled before).
                     ignore(srvReqId)
 
-                    false
+                    None
             }
         }
         
-        if (found) {
+        errorsCnt.inc()
+        
+        if (rcvTstamp.isDefined) {
             NCProcessLogManager.updateReady(
                 srvReqId,
+                rcvTstamp.get,
                 now,
-                errMsg = Some(errMsg)
+                errMsg = Some(errMsg),
+                timings = timings
             )
             
             NCNotificationManager.addEvent("NC_ERROR_QRY",
@@ -230,40 +303,49 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
       * @param srvReqId
       * @param resType
       * @param resBody
+      * @param timings Latency trace hops of the request, if available.
       */
     @throws[NCE]
-    def setResult(srvReqId: String, resType: String, resBody: String): Unit = {
+    def setResult(srvReqId: String, resType: String, resBody: String, timings: List[(String, Long)] = Nil): Unit = {
         ensureStarted()
         
         val now = new Timestamp(U.nowUtcMs())
         
-        val found = catching(wrapIE) {
+        // Receive timestamp of the found request.
+        val rcvTstamp = catching(wrapIE) {
             cache(srvReqId) match {
                 case Some(copy) ⇒
                     copy.updateTstamp = now
                     copy.status = QRY_READY
                     copy.resultType = Some(resType)
                     copy.resultBody = Some(resBody)
+                    copy.timings = timings
+    
+                    onReady(copy)
 
                     cache += srvReqId → copy
 
                     processEndpoint(copy.userId, ep ⇒ NCEndpointManager.addNotification(copy, ep))
 
-                    true
+                    Some(copy.createTstamp)
                 case None ⇒
                     // Safely ignore missing status (cancelled before).
                     ignore(srvReqId)
 
-                    false
+                    None
             }
         }
         
-        if (found) {
+        resultsCnt.inc()
+        
+        if (rcvTstamp.isDefined) {
             NCProcessLogManager.updateReady(
                 srvReqId,
+                rcvTstamp.get,
                 now,
                 resType = Some(resType),
-                resBody = Some(resBody)
+                resBody = Some(resBody),
+                timings = timings
             )
             
             NCNotificationManager.addEvent("NC_RESULT_QRY",
@@ -274,12 +356,40 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
         }
     }
 
+    /**
+      * Records metrics of the query which became ready.
+      *
+      * @param state Query state.
+      */
+    private def onReady(state: NCQueryStateMdo): Unit = {
+        // Error can be set on the server side, before or after the probe got the request.
+        NCProbeManager.forgetAsks(Set(state.srvReqId))
+        
+        if (inFlight.remove(state.srvReqId))
+            latencyHist.record((state.updateTstamp.getTime - state.createTstamp.getTime) * 1000000L)
+    }
+
+    /**
+      * Forgets the query whose state is evicted from the cache by expiry.
+      *
+      * @param srvReqId Server request ID.
+      */
+    private def onExpired(srvReqId: String): Unit = {
+        NCProbeManager.forgetAsks(Set(srvReqId))
+        
+        if (inFlight.remove(srvReqId))
+            logger.trace(s"Unanswered query state expired: $srvReqId")
+    }
+
     /**
       *
       * @param srvReqId
       */
-    private def ignore(srvReqId: String): Unit =
+    private def ignore(srvReqId: String): Unit = {
+        inFlight.remove(srvReqId)
+        
         logger.warn(s"Server request not found - safely ignoring (expired or cancelled): $srvReqId")
+    }
 
     /**
       * Executes function with endpoint if it is found for user.
@@ -303,24 +413,36 @@ object NCQueryManager extends NCLifecycle("Query manager") with NCIgniteInstance
 
         val now = new Timestamp(U.nowUtcMs())
 
-        val userSrvReqIds =
+        // States are read before removal, receive timestamps are needed for the processing log.
+        val states =
             catching(wrapIE) {
                 NCTxManager.startTx {
-                    cache --= srvReqIds
+                    val states = srvReqIds.flatMap(srvReqId ⇒ cache(srvReqId))
 
-                    srvReqIds.
-                        flatMap(srvReqId ⇒ cache(srvReqId)).
-                        groupBy(_.userId).
-                        map { case (usrId, data) ⇒ usrId → data.map(_.srvReqId) }
+                    cache --= srvReqIds
 
+                    states
                 }
             }
+
+        val userSrvReqIds = states.groupBy(_.userId).map { case (usrId, data) ⇒ usrId → data.map(_.srvReqId) }
+        val rcvTstamps = states.map(s ⇒ s.srvReqId → s.createTstamp).toMap
+
         userSrvReqIds.foreach {
             case (usrId, usrSrvReqIds) ⇒ processEndpoint(usrId, _ ⇒ NCEndpointManager.cancelNotifications(usrSrvReqIds))
         }
 
+        NCProbeManager.forgetAsks(srvReqIds)
+
         for (srvReqId ← srvReqIds) {
-            NCProcessLogManager.updateCancel(srvReqId, now)
+            if (inFlight.remove(srvReqId))
+                cancelsCnt.inc()
+            
+            // Processing log of the unknown (expired) request can't be located by its partition key.
+            rcvTstamps.get(srvReqId) match {
+                case Some(rcvTstamp) ⇒ NCProcessLogManager.updateCancel(srvReqId, rcvTstamp, now)
+                case None ⇒ // No-op.
+            }
 
             NCNotificationManager.addEvent("NC_CANCEL_QRY",
                 "srvReqId" → srvReqId
@@ -34,13 +34,14 @@ package org.nlpcraft.server.rest
 import akka.actor.ActorSystem
 import akka.http.scaladsl.Http
 import akka.http.scaladsl.marshallers.sprayjson.SprayJsonSupport._
-import akka.http.scaladsl.model.StatusCodes
+import akka.http.scaladsl.model.{ContentType, HttpCharsets, HttpEntity, MediaType, StatusCodes}
 import akka.http.scaladsl.model.StatusCodes._
 import akka.http.scaladsl.server.Directives._
 import akka.http.scaladsl.server.{Route, _}
 import akka.stream.ActorMaterializer
 import org.apache.commons.validator.routines.UrlValidator
 import org.nlpcraft.common.{NCException, NCLifecycle}
+import org.nlpcraft.common.metrics.NCMetrics
 import org.nlpcraft.server.NCConfigurable
 import org.nlpcraft.server.apicodes.NCApiStatusCode._
 import org.nlpcraft.server.ds.NCDsManager
@@ -59,9 +60,9 @@ import scala.concurrent.{ExecutionContextExecutor, Future}
   * REST manager.
   */
 object NCRestManager extends NCLifecycle("REST manager") {
-    // Akka intestines.
-    private implicit val SYSTEM: ActorSystem = ActorSystem()
-    private implicit val MATERIALIZER: ActorMaterializer = ActorMaterializer()
+    // Akka intestines (server wide, also used by endpoints manager HTTP client).
+    private[server] implicit val SYSTEM: ActorSystem = ActorSystem()
+    private[server] implicit val MATERIALIZER: ActorMaterializer = ActorMaterializer()
     private implicit val CTX: ExecutionContextExecutor = SYSTEM.dispatcher
     
     // Current REST API version (simple increment number), not a semver based.
@@ -71,6 +72,11 @@ object NCRestManager extends NCLifecycle("REST manager") {
 
     private var bindFut: Future[Http.ServerBinding] = _
 
+    // Prometheus text exposition format.
+    private final val PROMETHEUS_TYPE = ContentType(
+        MediaType.customWithFixedCharset("text", "plain", HttpCharsets.`UTF-8`, params = Map("version" → "0.0.4"))
+    )
+
     private final val urlVal = new UrlValidator(Array("http", "https"), UrlValidator.ALLOW_LOCAL_URLS)
 
     private object Config extends NCConfigurable {
@@ -255,6 +261,14 @@ object NCRestManager extends NCLifecycle("REST manager") {
       */
     override def start(): NCLifecycle = {
         val routes: Route = {
+            get {
+                // Scraped by Prometheus, hence no authentication and no JSON envelope.
+                /**/path(API / "metrics") {
+                    complete {
+                        HttpEntity(PROMETHEUS_TYPE, NCMetrics.prometheus(NCProbeManager.getProbesMetrics))
+                    }
+                }
+            } ~
             post {
                 /**/path(API / "ask") {
                     case class Req(
@@ -350,7 +364,13 @@ object NCRestManager extends NCLifecycle("REST manager") {
                 } ~
                 /**/path(API / "check") {
                     case class Req(
-                        accessToken: String
+                        accessToken: String,
+                        timings: Option[Boolean] // Whether or not to return latency trace.
+                    )
+                    case class Hop(
+                        hop: String,
+                        tstamp: Long,
+                        durationMs: Long // Time since the previous hop.
                     )
                     case class QueryState(
                         srvReqId: String,
@@ -363,21 +383,25 @@ object NCRestManager extends NCLifecycle("REST manager") {
                         resBody: Option[String],
                         error: Option[String],
                         createTstamp: Long,
-                        updateTstamp: Long
+                        updateTstamp: Long,
+                        timings: Option[Seq[Hop]]
                     )
                     case class Res(
                         status: String,
                         states: Seq[QueryState]
                     )
     
-                    implicit val reqFmt: RootJsonFormat[Req] = jsonFormat1(Req)
-                    implicit val usrFmt: RootJsonFormat[QueryState] = jsonFormat11(QueryState)
+                    implicit val reqFmt: RootJsonFormat[Req] = jsonFormat2(Req)
+                    implicit val hopFmt: RootJsonFormat[Hop] = jsonFormat3(Hop)
+                    implicit val usrFmt: RootJsonFormat[QueryState] = jsonFormat12(QueryState)
                     implicit val resFmt: RootJsonFormat[Res] = jsonFormat2(Res)
     
                     entity(as[Req]) { req ⇒
                         checkLength("accessToken", req.accessToken, 256)
 
                         val userId = authenticate(req.accessToken).id
+                        
+                        val withTimings = req.timings.getOrElse(false)
 
                         val states =
                             NCQueryManager.check(userId).map(p ⇒
@@ -392,7 +416,15 @@ object NCRestManager extends NCLifecycle("REST manager") {
                                     p.resultBody,
                                     p.error,
                                     p.createTstamp.getTime,
-                                    p.updateTstamp.getTime
+                                    p.updateTstamp.getTime,
+                                    if (withTimings && p.timings.nonEmpty)
+                                        Some(
+                                            p.timings.zip(p.timings.head :: p.timings).map {
+                                                case ((hop, tstamp), (_, prev)) ⇒ Hop(hop, tstamp, tstamp - prev)
+                                            }
+                                        )
+                                    else
+                                        None
                                 )
                         )
                         
@@ -908,6 +940,12 @@ object NCRestManager extends NCLifecycle("REST manager") {
                         name: String,
                         version: String
                     )
+                    case class Metric(
+                        name: String,
+                        labels: Map[String, String],
+                        value: Double, // Number of values for histograms.
+                        sum: Option[Double] // Histograms only.
+                    )
                     case class Probe(
                         probeToken: String,
                         probeId: String,
@@ -927,7 +965,8 @@ object NCRestManager extends NCLifecycle("REST manager") {
                         hostName: String,
                         hostAddr: String,
                         macAddr: String,
-                        models: Set[Model]
+                        models: Set[Model],
+                        metrics: Seq[Metric]
                     )
                     case class Res(
                         status: String,
@@ -936,7 +975,8 @@ object NCRestManager extends NCLifecycle("REST manager") {
 
                     implicit val reqFmt: RootJsonFormat[Req] = jsonFormat1(Req)
                     implicit val mdlFmt: RootJsonFormat[Model] = jsonFormat3(Model)
-                    implicit val probFmt: RootJsonFormat[Probe] = jsonFormat19(Probe)
+                    implicit val metricFmt: RootJsonFormat[Metric] = jsonFormat4(Metric)
+                    implicit val probFmt: RootJsonFormat[Probe] = jsonFormat20(Probe)
                     implicit val resFmt: RootJsonFormat[Res] = jsonFormat2(Res)
 
                     entity(as[Req]) { req ⇒
@@ -967,6 +1007,12 @@ object NCRestManager extends NCLifecycle("REST manager") {
                                 m.id,
                                 m.name,
                                 m.version
+                            )),
+                            NCProbeManager.getProbeMetrics(mdo.probeGuid).map(m ⇒ Metric(
+                                m.name,
+                                m.labels.toMap,
+                                m.value,
+                                if (m.kind == "histogram") Some(m.sum) else None
                             ))
                         ))
     
@@ -0,0 +1,109 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.metrics
+
+import org.scalatest.FlatSpec
+
+/**
+ * Test for metrics registry.
+ */
+class NCMetricsSpec extends FlatSpec {
+    behavior of "Metrics registry"
+    
+    it should "expose metrics in Prometheus text format" in {
+        val c = NCMetrics.counter("test_cnt_total", "Test counter.", "k" → "v")
+        val h = NCMetrics.histogram("test_hist_seconds", "Test histogram.")
+        
+        NCMetrics.gauge("test_gauge", "Test gauge.") { 0.5 }
+        
+        c.inc()
+        c.inc(2)
+        
+        h.record(15000) // 15us.
+        h.record(3000000000L) // 3s.
+        
+        val s = NCMetrics.prometheus()
+        
+        assert(s.contains("# TYPE test_cnt_total counter\n"))
+        assert(s.contains("test_cnt_total{k=\"v\"} 3\n"))
+        assert(s.contains("test_gauge 0.5\n"))
+        assert(s.contains("test_hist_seconds_bucket{le=\"0.00001\"} 0\n"))
+        assert(s.contains("test_hist_seconds_bucket{le=\"0.00002\"} 1\n"))
+        assert(s.contains("test_hist_seconds_bucket{le=\"5\"} 2\n"))
+        assert(s.contains("test_hist_seconds_bucket{le=\"+Inf\"} 2\n"))
+        assert(s.contains("test_hist_seconds_sum 3.000015\n"))
+        assert(s.contains("test_hist_seconds_count 2\n"))
+    }
+    
+    it should "return registered metric" in {
+        val c = NCMetrics.counter("test_same_total", "Test counter.")
+        
+        assert(NCMetrics.counter("test_same_total", "Test counter.") eq c)
+        
+        intercept[Exception] { NCMetrics.histogram("test_same_total", "Test histogram.") }
+    }
+    
+    it should "expose snapshots taken in other JVM" in {
+        val h = NCMetrics.histogram("test_remote_variants", "Test histogram.", NCHistogram.SIZE, "model" → "m")
+        
+        h.record(3)
+        
+        val snap = h.snapshot.withLabels("probe_id" → "p")
+        
+        NCMetrics.remove(h)
+        
+        assert(snap.value == 1)
+        assert(snap.sum == 3)
+        
+        val s = NCMetrics.prometheus(Seq(snap))
+        
+        assert(s.contains("test_remote_variants_bucket{model=\"m\",probe_id=\"p\",le=\"5\"} 1\n"))
+        assert(s.contains("test_remote_variants_count{model=\"m\",probe_id=\"p\"} 1\n"))
+    }
+    
+    it should "compute percentiles" in {
+        val h = new NCHistogram("test_latency", "Test histogram.", Seq.empty, NCHistogram.LATENCY)
+        
+        assert(h.percentile(99) == 0)
+        
+        for (_ ← 1 to 98)
+            h.record(1000000) // 1ms.
+        
+        h.record(12345678) // 12.3ms.
+        h.record(2000000000) // 2s.
+        
+        assert(h.percentile(50) == 0.001)
+        assert(h.percentile(99) == 0.013)
+        assert(h.percentile(100) == 2)
+        assert(h.max == 2)
+    }
+}
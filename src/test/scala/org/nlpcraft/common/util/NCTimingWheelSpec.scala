@@ -0,0 +1,118 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.common.util
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import org.scalatest.FlatSpec
+
+import scala.collection.mutable
+
+/**
+ * Timing wheel tests.
+ */
+class NCTimingWheelSpec extends FlatSpec {
+    behavior of "Timing wheel"
+    
+    it should "expire values at their deadlines" in {
+        val expired = mutable.ArrayBuffer.empty[String]
+        
+        // Small wheel to get several turns, time is controlled by the test (worker isn't started).
+        val wheel = new NCTimingWheel[String, Long]("test-wheel", 10, 8)(vals ⇒ expired ++= vals.map(_._1))
+        
+        def advance(now: Long): Seq[String] = {
+            expired.clear()
+            
+            wheel.advance(now)
+            
+            expired.toList
+        }
+        
+        wheel.schedule("past", 0, 0)
+        wheel.schedule("soon", 1050, 1050)
+        wheel.schedule("later", 1305, 1305)
+        wheel.schedule("cancelled", 1100, 1100)
+        wheel.schedule("rescheduled", 1100, 1100)
+        wheel.schedule("rescheduled", 11000, 11000)
+        
+        assert(wheel.cancel("cancelled"))
+        
+        // Already due values are expired right away.
+        assert(advance(1000) == Seq("past"))
+        
+        // Never early, expired when deadline's tick is over.
+        assert(advance(1050).isEmpty)
+        assert(advance(1059).isEmpty)
+        assert(advance(1060) == Seq("soon"))
+        
+        // Several wheel turns.
+        assert(advance(1309).isEmpty)
+        assert(advance(1310) == Seq("later"))
+        
+        assert(advance(10000).isEmpty)
+        assert(wheel.size() == 1)
+        
+        assert(advance(11010) == Seq("rescheduled"))
+        assert(wheel.size() == 0)
+    }
+    
+    it should "expire values on worker thread" in {
+        val latch = new CountDownLatch(2)
+        
+        @volatile var early = false
+        
+        val wheel = new NCTimingWheel[String, Long]("test-wheel", 10, 8)(vals ⇒
+            vals.foreach { case (_, deadline) ⇒
+                if (System.currentTimeMillis() < deadline)
+                    early = true
+                
+                latch.countDown()
+            }
+        )
+        
+        wheel.start()
+        
+        try {
+            val now = System.currentTimeMillis()
+            
+            wheel.schedule("now", now, now)
+            wheel.schedule("soon", now + 50, now + 50)
+            
+            // Generous timeout, only the order of events is checked.
+            assert(latch.await(10, TimeUnit.SECONDS))
+            assert(!early)
+            assert(wheel.size() == 0)
+        }
+        finally
+            wheel.stop()
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.model.intent.impl
+
+import java.util.{Collections, Optional, ArrayList ⇒ JArrayList, LinkedHashSet ⇒ JLinkedHashSet, List ⇒ JList, Set ⇒ JSet}
+
+import org.apache.commons.lang3.tuple.Pair
+import org.nlpcraft.model.impl.{NCMetadataImpl, NCTokenImpl}
+import org.nlpcraft.model.intent.NCIntentSolver._
+import org.nlpcraft.model.intent.NCIntentSolverContext
+import org.nlpcraft.model.{NCQueryResult, NCSentence, NCToken, NCVariant}
+import org.nlpcraft.probe.mgrs.nlp.impl.NCVariantImpl
+import org.scalatest.FlatSpec
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+import scala.util.{Failure, Random, Success, Try}
+
+/**
+  * Differential test of the intent solver engine against its baseline implementation.
+  */
+class NCIntentSolverEngineSpec extends FlatSpec {
+    private final val IDS = Seq("x:a", "x:b", "x:c", "nlp:geo", "nlp:num")
+    private final val GRPS = Seq("g1", "g2")
+    
+    private val rnd = new Random(42)
+    
+    private def pick[T](seq: Seq[T]): T = seq(rnd.nextInt(seq.size))
+    
+    private def mkToken(idx: Int): NCToken = {
+        val meta = new NCMetadataImpl()
+        
+        meta.put("NLP_INDEX", idx)
+        meta.put("NLP_STOPWORD", rnd.nextInt(8) == 0)
+        meta.put("NLP_FREEWORD", rnd.nextInt(4) == 0)
+        meta.put("NLP_SPARSITY", rnd.nextInt(3))
+        meta.put("NLP_DIRECT", rnd.nextBoolean())
+        meta.put("NLP_WORDLENGTH", 1 + rnd.nextInt(2))
+        meta.put("NUM", rnd.nextInt(5))
+        
+        new NCTokenImpl("req", pick(IDS), pick(GRPS), "parent", pick(Seq("foo", "bar")), meta, new NCMetadataImpl())
+    }
+    
+    private def mkRule(): RULE =
+        rnd.nextInt(6) match {
+            case 0 ⇒ new RULE("group", "==", pick(GRPS))
+            case 1 ⇒ new RULE("value", "%%", "^f.*")
+            case 2 ⇒ new RULE("~NUM", ">=", rnd.nextInt(5))
+            case 3 ⇒ new RULE("id", "!=", pick(IDS))
+            case _ ⇒ new RULE("id", "==", pick(IDS))
+        }
+    
+    private def mkPredicate(depth: Int): Predicate =
+        if (depth == 0 || rnd.nextInt(3) > 0)
+            mkRule()
+        else {
+            val items = Seq(mkPredicate(depth - 1), mkPredicate(depth - 1))
+            
+            rnd.nextInt(4) match {
+                case 0 ⇒ new AND(items: _*)
+                case 1 ⇒ new OR(items: _*)
+                case 2 ⇒ new NOR(items: _*)
+                case _ ⇒ new XOR(items: _*)
+            }
+        }
+    
+    private def mkIntent(id: String): INTENT = {
+        val terms = (0 until 1 + rnd.nextInt(3)).map(_ ⇒ {
+            val items = (0 until 1 + rnd.nextInt(2)).map(_ ⇒ {
+                val min = rnd.nextInt(2)
+                
+                new ITEM(mkPredicate(2), min, min + 1 + rnd.nextInt(2))
+            })
+            
+            new TERM(items: _*)
+        })
+        
+        new INTENT(id, rnd.nextBoolean(), rnd.nextInt(4) == 0, terms: _*)
+    }
+    
+    private def mkSentence(vrns: Seq[NCVariant]): NCSentence =
+        new NCSentence {
+            override def getServerRequestId: String = "req"
+            override def getNormalizedText: String = ""
+            override def getReceiveTimestamp: Long = 0
+            override def getUserFirstName: String = ""
+            override def getUserLastName: String = ""
+            override def getUserEmail: String = ""
+            override def getUserAvatarUrl: String = ""
+            override def isUserAdmin: Boolean = false
+            override def getUserSignupDate: Long = 0
+            override def isOwnerOf(tok: NCToken): Boolean = true
+            override def getVariants: JList[NCVariant] = vrns.asJava
+            override def getRemoteAddress: Optional[String] = Optional.empty()
+            override def getUserClientAgent: Optional[String] = Optional.empty()
+        }
+    
+    /**
+      * Gets comparable representation of the result.
+      */
+    private def repr(res: NCIntentSolverResult): Any = (
+        res.intentId,
+        res.toks.asScala.map(_.asScala.map(System.identityHashCode)),
+        res.isExactMatch,
+        System.identityHashCode(res.variant)
+    )
+    
+    /**
+      * Gets comparable representation of the results or the error class name.
+      */
+    private def solve(f: ⇒ JList[NCIntentSolverResult]): Either[String, Seq[Any]] =
+        try
+            Right(f.asScala.map(repr))
+        catch {
+            case e: Exception ⇒ Left(e.getClass.getName)
+        }
+    
+    /**
+      * Gets comparable representation of the ranked results. Equally ranked results (same exact match flag
+      * and equal variants) are compared regardless of their order, which baseline engine doesn't define.
+      */
+    private def ranked(res: Seq[NCIntentSolverResult]): Seq[Map[Any, Int]] = {
+        val grps = mutable.ArrayBuffer.empty[mutable.ArrayBuffer[NCIntentSolverResult]]
+        
+        for (r ← res)
+            if (grps.nonEmpty && grps.last.last.isExactMatch == r.isExactMatch && grps.last.last.variant.compareTo(r.variant) == 0)
+                grps.last += r
+            else
+                grps += mutable.ArrayBuffer(r)
+        
+        grps.map(_.groupBy(repr).map { case (k, v) ⇒ k → v.size })
+    }
+    
+    private val cb = new IntentCallback {
+        override def apply(ctx: NCIntentSolverContext): NCQueryResult = null
+    }
+    
+    /**
+      * Makes random solver input: sentence, conversation, intents and intents index.
+      */
+    private def mkInput(): (NCSentence, JSet[NCToken], JList[Pair[INTENT, IntentCallback]], NCIntentSolverIndex) = {
+        val index = new NCIntentSolverIndex()
+        val intents = new JArrayList[Pair[INTENT, IntentCallback]]()
+        
+        for (i ← 0 until 1 + rnd.nextInt(8)) {
+            val intent = mkIntent(s"i$i")
+            
+            index.add(intent)
+            intents.add(Pair.of(intent, cb))
+        }
+        
+        val vrns = (0 until 1 + rnd.nextInt(3)).map(_ ⇒
+            new NCVariantImpl((0 until 1 + rnd.nextInt(6)).map(mkToken).asJava)
+        )
+        
+        val conv = new JLinkedHashSet[NCToken]()
+        
+        (0 until rnd.nextInt(7)).foreach(i ⇒ conv.add(mkToken(i)))
+        
+        (mkSentence(vrns), conv, intents, index)
+    }
+    
+    "solve() method" should "return the same results as baseline implementation" in {
+        var matched = 0
+        var failed = 0
+        
+        for (_ ← 0 until 3000) {
+            val (sen, conv, intents, index) = mkInput()
+            
+            // Baseline engine fails on ordered intents if any of their terms is matched without tokens
+            // (optional terms), current engine doesn't check the order of such terms. These intents
+            // are skipped in the comparison.
+            val failing =
+                intents.asScala.filter(pair ⇒
+                    Try(NCIntentSolverLegacyEngine.solve(sen, conv, Collections.singletonList(pair))) match {
+                        case Success(_) ⇒ false
+                        case Failure(e) ⇒
+                            val intent = pair.getLeft
+                            
+                            assert(e.isInstanceOf[UnsupportedOperationException])
+                            assert(intent.isOrdered)
+                            assert(intent.getTerms.exists(_.getItems.forall(_.getMin == 0)))
+                            
+                            true
+                    }
+                ).map(_.getLeft.getId).toSet
+            
+            val solvable = new JArrayList(intents.asScala.filter(pair ⇒ !failing.contains(pair.getLeft.getId)).asJava)
+            
+            val exp = ranked(NCIntentSolverLegacyEngine.solve(sen, conv, solvable).asScala)
+            
+            def solveAll(parallel: Boolean): Seq[Map[Any, Int]] =
+                ranked(
+                    NCIntentSolverEngine.solve(sen, conv, intents, index, parallel).asScala.
+                        filter(res ⇒ !failing.contains(res.intentId))
+                )
+            
+            assert(solveAll(parallel = false) == exp)
+            assert(solveAll(parallel = true) == exp)
+            
+            if (exp.nonEmpty)
+                matched += 1
+            
+            if (failing.nonEmpty)
+                failed += 1
+        }
+        
+        // Make sure that test data is representative.
+        assert(matched > 300)
+        assert(failed > 0)
+    }
+    
+    "solveTop() method" should "return one of the best ranked results of solve() method" in {
+        var matched = 0
+        
+        for (_ ← 0 until 3000) {
+            val (sen, conv, intents, index) = mkInput()
+            
+            // Errors of the intents which aren't reached by 'solveTop' are not checked.
+            solve(NCIntentSolverEngine.solve(sen, conv, intents, index, parallel = false)) match {
+                case Right(all) ⇒
+                    val top = NCIntentSolverEngine.solveTop(sen, conv, intents, index).asScala
+                    
+                    assert(top.size == Math.min(all.size, 1))
+                    
+                    if (top.nonEmpty) {
+                        val best = NCIntentSolverEngine.solve(sen, conv, intents, index, parallel = false).get(0)
+                        
+                        assert(all.contains(solve(top.asJava).right.get.head))
+                        assert(top.head.isExactMatch == best.isExactMatch)
+                        assert(top.head.variant.compareTo(best.variant) == 0)
+                        
+                        matched += 1
+                    }
+                case Left(_) ⇒ // No-op.
+            }
+        }
+        
+        // Make sure that test data is representative.
+        assert(matched > 300)
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * “Commons Clause” License, https://commonsclause.com/
+ *
+ * The Software is provided to you by the Licensor under the License,
+ * as defined below, subject to the following condition.
+ *
+ * Without limiting other conditions in the License, the grant of rights
+ * under the License will not include, and the License does not grant to
+ * you, the right to Sell the Software.
+ *
+ * For purposes of the foregoing, “Sell” means practicing any or all of
+ * the rights granted to you under the License to provide to third parties,
+ * for a fee or other consideration (including without limitation fees for
+ * hosting or consulting/support services related to the Software), a
+ * product or service whose value derives, entirely or substantially, from
+ * the functionality of the Software. Any license notice or attribution
+ * required by the License must also include this Commons Clause License
+ * Condition notice.
+ *
+ * Software:    NLPCraft
+ * License:     Apache 2.0, https://www.apache.org/licenses/LICENSE-2.0
+ * Licensor:    Copyright (C) 2018 DataLingvo, Inc. https://www.datalingvo.com
+ *
+ *     _   ____      ______           ______
+ *    / | / / /___  / ____/________ _/ __/ /_
+ *   /  |/ / / __ \/ /   / ___/ __ `/ /_/ __/
+ *  / /|  / / /_/ / /___/ /  / /_/ / __/ /_
+ * /_/ |_/_/ .___/\____/_/   \__,_/_/  \__/
+ *        /_/
+ */
+
+package org.nlpcraft.server.geo
+
+import org.scalatest.FlatSpec
+
+/**
+  * GEO gazetteer tests.
+  */
+class NCGeoGazetteerSpec extends FlatSpec {
+    private val usa = NCGeoCountry("united states", NCGeoSubContinent("northern america", NCGeoContinent("americas")))
+    private val ca = NCGeoRegion("california", usa)
+    private val sf = NCGeoCity("san francisco", 37.77493, -122.41942, ca)
+    private val la = NCGeoCity("los angeles", 34.05223, -118.24368, ca)
+    
+    private val gaz = NCGeoGazetteer(
+        Map(
+            "san francisco" → Set[NCGeoEntry](sf),
+            "los angeles" → Set[NCGeoEntry](la),
+            "la" → Set[NCGeoEntry](la),
+            "LA" → Set[NCGeoEntry](la),
+            "california" → Set[NCGeoEntry](ca),
+            "ca" → Set[NCGeoEntry](ca),
+            "usa" → Set[NCGeoEntry](usa),
+            "city of los angeles" → Set[NCGeoEntry](la)
+        )
+    )
+    
+    /**
+      *
+      * @param toks Tokens texts.
+      */
+    private def find(toks: String*): Set[(Int, Int, Set[NCGeoEntry])] =
+        gaz.find(toks).map(m ⇒ (m.from, m.to, gaz.getEntries(m.key).toSet)).toSet
+    
+    "lookup() method" should "find exact synonyms only" in {
+        assert(gaz.getEntries(gaz.lookup("san francisco")) == Seq(sf))
+        assert(gaz.getEntries(gaz.lookup("LA")) == Seq(la))
+        assert(gaz.lookup("san") == -1)
+        assert(gaz.lookup("san francisco ca") == -1)
+        assert(gaz.lookup("La") == -1)
+    }
+    
+    "find() method" should "find all synonyms in one pass" in {
+        assert(find("weather", "in", "san", "francisco", "ca", "usa") ==
+            Set((2, 3, Set(sf)), (4, 4, Set(ca)), (5, 5, Set(usa))))
+        
+        // Overlapping synonyms.
+        assert(find("city", "of", "los", "angeles") == Set((0, 3, Set(la)), (2, 3, Set(la))))
+        
+        // Case sensitive synonyms.
+        assert(find("LA", "la", "La") == Set((0, 0, Set(la)), (1, 1, Set(la))))
+        
+        assert(find("san", "diego") == Set.empty)
+        assert(find() == Set.empty)
+    }
+    
+    "find() method" should "match whole tokens only" in {
+        // Multi-word tokens.
+        assert(find("san francisco", "ca") == Set((0, 0, Set(sf)), (1, 1, Set(ca))))
+        assert(find("city of", "los angeles") == Set((0, 1, Set(la)), (1, 1, Set(la))))
+        assert(find("city of los", "angeles") == Set((0, 1, Set(la))))
+        assert(find("of los", "angeles") == Set.empty)
+    }
+    
+    "gazetteer" should "intern equal entries" in {
+        val x = gaz.getEntries(gaz.lookup("la")).head
+        
+        assert(gaz.getEntries(gaz.lookup("los angeles")).head eq x)
+        assert(gaz.getEntries(gaz.lookup("california")).head eq x.asInstanceOf[NCGeoCity].region)
+    }
+}